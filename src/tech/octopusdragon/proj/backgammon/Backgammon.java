@@ -13,10 +13,19 @@ public class Backgammon {
 	
 	// --- Instance variables ---
 	private Board board;	// The board
+	private DiceSource diceSource;	// Where rolled dice values come from
+	private Die[] allDice;	// Every die the game can use, reused each turn
 	private List<Die> dice;	// Dice usable for the current player
 	private Player curPlayer;	// Holds the type of the current player
 	private boolean hasRolled;	// Holds whether the player has rolled this turn
 	private boolean hasMoved;	// Holds whether the current player has moved
+	private int[] history;	// Records of the moves made this turn
+	private int historySize;	// Number of moves made this turn
+	private GameListener listener;	// Told about rolls and moves, or null
+	private int[] targets;	// Legal destinations from each point, one bit per index
+	private int movable;	// Points a man can move from, one bit per index
+	private int blots;	// Points holding a single opponent man, one bit per index
+	private boolean indexed;	// Whether the legal moves are worked out for the dice
 	//private boolean rolledDouble;	// Holds whether the player rolled a double
 	
 	
@@ -24,16 +33,38 @@ public class Backgammon {
 	 * Instantiates a new game of backgammon.
 	 */
 	public Backgammon() {
+		this(new ThreadLocalDiceSource());
+	}
+	
+	
+	/**
+	 * Instantiates a new game of backgammon that rolls its dice with the given
+	 * source.
+	 * @param diceSource The source of dice values
+	 */
+	public Backgammon(DiceSource diceSource) {
+		this(diceSource, null);
+	}
+	
+	
+	/**
+	 * Instantiates a new game of backgammon that rolls its dice with the given
+	 * source and tells a listener about its rolls and moves, starting with the
+	 * opening roll.
+	 * @param diceSource The source of dice values
+	 * @param listener The listener, or null for none
+	 */
+	public Backgammon(DiceSource diceSource, GameListener listener) {
 		board = new Board();
-		dice = new ArrayList<Die>();
-		for (int i = 0; i < NUM_DICE; i++)
-			dice.add(new Die());
+		this.diceSource = diceSource;
+		this.listener = listener;
+		createDice();
 		
 		
 		// Roll to determine the order of play
 		do {
 			for (int i = 0; i < NUM_DICE; i++)
-				dice.get(i).roll();
+				dice.get(i).roll(diceSource);
 			
 			if (dice.get(0).getValue() > dice.get(1).getValue())
 				curPlayer = Player.BLACK;
@@ -42,6 +73,9 @@ public class Backgammon {
 			
 		} while (dice.get(0).getValue() == dice.get(1).getValue());
 		
+		if (listener != null)
+			listener.rolled(this, dice.get(0).getValue(), dice.get(1).getValue());
+		
 		
 		// Instance variable starting values
 		hasRolled = true;
@@ -52,7 +86,157 @@ public class Backgammon {
 		while (!hasMove()) {
 			hasMoved = true;
 			nextPlayer();
-			hasRolled = true;
+			roll();
+		}
+	}
+	
+	
+	/**
+	 * Instantiates a game of backgammon in the given position, with the given
+	 * player about to roll.
+	 * @param board The board, which is copied
+	 * @param curPlayer The player whose turn it is
+	 */
+	public Backgammon(Board board, Player curPlayer) {
+		this(board, curPlayer, new ThreadLocalDiceSource());
+	}
+	
+	
+	/**
+	 * Instantiates a game of backgammon in the given position, with the given
+	 * player about to roll dice from the given source.
+	 * @param board The board, which is copied
+	 * @param curPlayer The player whose turn it is
+	 * @param diceSource The source of dice values
+	 */
+	public Backgammon(Board board, Player curPlayer, DiceSource diceSource) {
+		this.board = new Board(board);
+		this.diceSource = diceSource;
+		this.curPlayer = curPlayer;
+		createDice();
+		
+		hasRolled = false;
+		hasMoved = false;
+	}
+	
+	
+	/**
+	 * Instantiates a game of backgammon in the given position, with the given
+	 * player having just rolled the given dice.
+	 * @param board The board, which is copied
+	 * @param curPlayer The player whose turn it is
+	 * @param die1 The value of the first die
+	 * @param die2 The value of the second die
+	 */
+	public Backgammon(Board board, Player curPlayer, int die1, int die2) {
+		this(board, curPlayer, die1, die2, new ThreadLocalDiceSource());
+	}
+	
+	
+	/**
+	 * Instantiates a game of backgammon in the given position, with the given
+	 * player having just rolled the given dice. Later rolls come from the
+	 * given source.
+	 * @param board The board, which is copied
+	 * @param curPlayer The player whose turn it is
+	 * @param die1 The value of the first die
+	 * @param die2 The value of the second die
+	 * @param diceSource The source of dice values
+	 */
+	public Backgammon(Board board, Player curPlayer, int die1, int die2, DiceSource diceSource) {
+		this.board = new Board(board);
+		this.diceSource = diceSource;
+		this.curPlayer = curPlayer;
+		createDice();
+		dice.get(0).setValue(die1);
+		dice.get(1).setValue(die2);
+		addDoubles();
+		
+		hasRolled = true;
+		hasMoved = !hasMove();
+	}
+	
+	
+	/**
+	 * Instantiates a copy of another game, sharing its source of dice values.
+	 * @param other The game to copy
+	 */
+	public Backgammon(Backgammon other) {
+		this(other, other.diceSource);
+	}
+	
+	
+	/**
+	 * Instantiates a copy of another game that rolls its dice with the given
+	 * source.
+	 * @param other The game to copy
+	 * @param diceSource The source of dice values
+	 */
+	public Backgammon(Backgammon other, DiceSource diceSource) {
+		this(other, diceSource, null);
+	}
+	
+	
+	/**
+	 * Instantiates a copy of another game that rolls its dice with the given
+	 * source and tells a listener about its rolls and moves from now on.
+	 * @param other The game to copy
+	 * @param diceSource The source of dice values
+	 * @param listener The listener, or null for none
+	 */
+	public Backgammon(Backgammon other, DiceSource diceSource, GameListener listener) {
+		board = new Board(other.board);
+		this.diceSource = diceSource;
+		this.listener = listener;
+		allDice = new Die[other.allDice.length];
+		dice = new ArrayList<Die>(allDice.length);
+		for (int i = 0; i < allDice.length; i++) {
+			allDice[i] = new Die(other.allDice[i].getValue());
+			if (other.dice.contains(other.allDice[i]))
+				dice.add(allDice[i]);
+		}
+		history = other.history.clone();
+		historySize = other.historySize;
+		targets = new int[Board.NUM_POINTS + 2];
+		curPlayer = other.curPlayer;
+		hasRolled = other.hasRolled;
+		hasMoved = other.hasMoved;
+	}
+	
+	
+	/**
+	 * Creates the dice the game uses and makes the first two usable.
+	 */
+	private void createDice() {
+		allDice = new Die[NUM_DICE * 2];
+		for (int i = 0; i < allDice.length; i++)
+			allDice[i] = new Die(1);
+		dice = new ArrayList<Die>(allDice.length);
+		history = new int[allDice.length];
+		targets = new int[Board.NUM_POINTS + 2];
+		resetDice();
+	}
+	
+	
+	/**
+	 * Makes only the first two dice usable, as at the start of a turn.
+	 */
+	private void resetDice() {
+		dice.clear();
+		for (int i = 0; i < NUM_DICE; i++)
+			dice.add(allDice[i]);
+	}
+	
+	
+	/**
+	 * Adds two more dice of the same value if a double was rolled.
+	 */
+	private void addDoubles() {
+		if (dice.get(0).getValue() == dice.get(1).getValue()) {
+			for (int i = NUM_DICE; i < allDice.length; i++) {
+				allDice[i].setValue(dice.get(0).getValue());
+				dice.add(allDice[i]);
+			}
 		}
 	}
 	
@@ -62,7 +246,7 @@ public class Backgammon {
 	 * @param type The player
 	 * @return 1 if the player moves up or -1 if the player moves down
 	 */
-	public int direction(Player player) {
+	public static int direction(Player player) {
 		if (player == TOP_PLAYER)
 			return 1;
 		else
@@ -75,7 +259,7 @@ public class Backgammon {
 	 * @param type The player
 	 * @return The index of the start of the home board
 	 */
-	public int homeStart(Player player) {
+	public static int homeStart(Player player) {
 		if (player == TOP_PLAYER)
 			return (Board.NUM_POINTS + 1) - (Board.NUM_POINTS / 4);
 		else
@@ -88,7 +272,7 @@ public class Backgammon {
 	 * @param type The player
 	 * @return The index of the offboard
 	 */
-	public int offboard(Player player) {
+	public static int offboard(Player player) {
 		if (player == TOP_PLAYER)
 			return Board.NUM_POINTS + 1;
 		else
@@ -105,6 +289,39 @@ public class Backgammon {
 	}
 	
 	
+	/**
+	 * Returns the Zobrist key of the position, which covers the men on the
+	 * board and bar and the player to move. The key is kept up to date by
+	 * every move, so it costs nothing to read.
+	 * @return The key
+	 */
+	public long key() {
+		return key(board, curPlayer);
+	}
+	
+	
+	/**
+	 * Returns the Zobrist key of a position.
+	 * @param board The board
+	 * @param player The player to move
+	 * @return The key
+	 */
+	public static long key(Board board, Player player) {
+		return board.key() ^ Zobrist.side(player);
+	}
+	
+	
+	/**
+	 * Returns an independent copy of the game that shares its source of dice
+	 * values, so that moves can be tried without changing this game. The copy
+	 * has no listener.
+	 * @return The copy
+	 */
+	public Backgammon fork() {
+		return new Backgammon(this);
+	}
+	
+	
 	/**
 	 * Returns the game dice.
 	 * @return The game dice
@@ -124,6 +341,17 @@ public class Backgammon {
 	}
 	
 	
+	/**
+	 * Returns the value rolled on one of the two dice this turn, whether or
+	 * not it has been played.
+	 * @param index 0 for the first die or 1 for the second
+	 * @return The value rolled
+	 */
+	public int rolledValue(int index) {
+		return allDice[index].getValue();
+	}
+	
+	
 	/**
 	 * Returns the current player.
 	 * @return The current player
@@ -180,15 +408,19 @@ public class Backgammon {
 		//}
 		
 		// Reset to the default number of dice
-		dice.clear();
-		dice.add(new Die());
-		dice.add(new Die());
+		resetDice();
+		historySize = 0;
+		indexed = false;
 		
 		// The player has not gone yet; reset appropriate variables
 		hasRolled = false;
 		hasMoved = false;
 		//rolledDouble = false;
 		
+		if (listener != null) {
+			listener.passed(this);
+			listener.changed(this, BoardChange.dice());
+		}
 	}
 	
 	
@@ -202,17 +434,18 @@ public class Backgammon {
 			return;
 		
 		for (int i = 0; i < dice.size(); i++) {
-			dice.get(i).roll();
+			dice.get(i).roll(diceSource);
 		}
 		
 		// Add two more dice if the player rolled a double
-		if (dice.get(0).getValue() == dice.get(1).getValue()) {
-			dice.add(new Die(dice.get(0).getValue()));
-			dice.add(new Die(dice.get(0).getValue()));
-		//	rolledDouble = true;
-		}
+		addDoubles();
 		
 		hasRolled = true;
+		indexed = false;
+		if (listener != null) {
+			listener.rolled(this, allDice[0].getValue(), allDice[1].getValue());
+			listener.changed(this, BoardChange.dice());
+		}
 		
 		// If the player cannot move, allow move to the next player
 		if (!hasMove()) {
@@ -223,12 +456,114 @@ public class Backgammon {
 	
 	
 	/**
-	 * Returns whether the given move can be made.
+	 * Returns whether the given move can be made. Moves between points on the
+	 * board are looked up in the index of legal moves, which is only worked
+	 * out once for each set of dice.
 	 * @param fromIndex The point index from which to move a piece
 	 * @param toIndex The point index to which to move the piece
 	 * @return Whether the move can be made
 	 */
 	public boolean isValidMove(int fromIndex, int toIndex) {
+		if (!isIndex(fromIndex) || !isIndex(toIndex))
+			return checkMove(fromIndex, toIndex);
+		return (destinations(fromIndex) & 1 << toIndex) != 0;
+	}
+	
+	
+	/**
+	 * Returns the points a man on the given point can move to with one of
+	 * the dice left this turn. The legal moves from every point are worked
+	 * out together the first time they are needed after the dice or the
+	 * board change, so later questions about the same dice take constant
+	 * time.
+	 * @param fromIndex The index of the point, or the index hit men enter
+	 * from
+	 * @return One bit for the index of each point the man can move to,
+	 * including the offboard point when bearing off
+	 */
+	public int destinations(int fromIndex) {
+		indexMoves();
+		return targets[fromIndex];
+	}
+	
+	
+	/**
+	 * Returns the points a man on the given point can move to while hitting
+	 * a lone opponent man.
+	 * @param fromIndex The index of the point
+	 * @return One bit for the index of each point the man can hit on
+	 */
+	public int hitDestinations(int fromIndex) {
+		indexMoves();
+		return targets[fromIndex] & blots;
+	}
+	
+	
+	/**
+	 * Returns the points the current player can move a man from.
+	 * @return One bit for the index of each point, including the index hit
+	 * men enter from
+	 */
+	public int movablePoints() {
+		indexMoves();
+		return movable;
+	}
+	
+	
+	/**
+	 * Works out the legal moves from every point for the dice left, unless
+	 * they are already known. A man can only land on the point a die takes it
+	 * to, or on the offboard point when bearing off, so only those are
+	 * checked. No objects are created.
+	 */
+	private void indexMoves() {
+		if (indexed)
+			return;
+		
+		int off = offboard(curPlayer);
+		boolean bearOff = canBearOff();
+		Man opponentMen = curOpponent().menType();
+		blots = 0;
+		for (int i = 0; i < Board.NUM_POINTS + 2; i++)
+			if (board.menType(i) == opponentMen && board.menNumber(i) == 1)
+				blots |= 1 << i;
+		
+		movable = 0;
+		for (int from = 0; from < Board.NUM_POINTS + 2; from++) {
+			int mask = 0;
+			for (int i = 0; i < dice.size(); i++) {
+				int to = from + direction(curPlayer) * dice.get(i).getValue();
+				if (isIndex(to) && checkMove(from, to))
+					mask |= 1 << to;
+			}
+			if (bearOff && checkMove(from, off))
+				mask |= 1 << off;
+			targets[from] = mask;
+			if (mask != 0)
+				movable |= 1 << from;
+		}
+		indexed = true;
+	}
+	
+	
+	/**
+	 * Returns whether an index is a point on the board or one of the two
+	 * offboard points.
+	 * @param index The index
+	 * @return Whether the index is in range
+	 */
+	private static boolean isIndex(int index) {
+		return index >= 0 && index <= Board.NUM_POINTS + 1;
+	}
+	
+	
+	/**
+	 * Checks the rules for one move, without using the index of legal moves.
+	 * @param fromIndex The point index from which to move a piece
+	 * @param toIndex The point index to which to move the piece
+	 * @return Whether the move can be made
+	 */
+	private boolean checkMove(int fromIndex, int toIndex) {
 		
 		// The player cannot move if they have not rolled yet
 		if (!hasRolled)
@@ -241,7 +576,7 @@ public class Backgammon {
 		
 		
 		// If the player has hit men, non-hit men cannot move
-		if (!curPlayer.hitMen().isEmpty()) {
+		if (hitMen(curPlayer) > 0) {
 			if (fromIndex != offboard(curOpponent())) {
 				return false;
 			}
@@ -249,7 +584,7 @@ public class Backgammon {
 		
 		
 		// If the from space is not occupied by the player's men, return false
-		if (fromIndex != 0 && fromIndex != Board.NUM_POINTS + 1 && board.point(fromIndex).menType() != curPlayer.menType())
+		else if (fromIndex <= 0 || fromIndex >= Board.NUM_POINTS + 1 || board.menType(fromIndex) != curPlayer.menType())
 			return false;
 		
 		
@@ -268,16 +603,7 @@ public class Backgammon {
 				 (curPlayer == BOTTOM_PLAYER && toIndex <= offboard(curPlayer)))) {
 			// If there is no exact match, but the die is higher, and there are
 			// no men in a higher point, return true
-			boolean hasMenAtHigherPoint = false;
-			for (int i = fromIndex - direction(curPlayer);
-					i != homeStart(curPlayer) - direction(curPlayer);
-					i -= direction(curPlayer)) {
-				if (board.point(i).menType() == curPlayer.menType()) {
-					hasMenAtHigherPoint = true;
-					break;
-				}
-			}
-			if (hasMenAtHigherPoint) {
+			if (hasMenAtHigherPoint(fromIndex)) {
 				return false;
 			}
 			else {
@@ -303,7 +629,7 @@ public class Backgammon {
 		
 		
 		// If the to space has more than one opponent pieces, return false
-		else if (board.point(toIndex).menType() == curOpponent().menType() && board.point(toIndex).menNumber() > 1)
+		else if (board.menType(toIndex) == curOpponent().menType() && board.menNumber(toIndex) > 1)
 			return false;
 		
 		
@@ -320,6 +646,23 @@ public class Backgammon {
 	}
 	
 	
+	/**
+	 * Returns whether the current player has men in their home board that are
+	 * further from the offboard than the given point.
+	 * @param fromIndex The index of the point
+	 * @return Whether there are men at a higher point
+	 */
+	private boolean hasMenAtHigherPoint(int fromIndex) {
+		for (int i = fromIndex - direction(curPlayer);
+				i != homeStart(curPlayer) - direction(curPlayer);
+				i -= direction(curPlayer)) {
+			if (board.menType(i) == curPlayer.menType())
+				return true;
+		}
+		return false;
+	}
+	
+	
 	/**
 	 * Returns whether the given move is a capturing move
 	 * @param fromIndex The point index from which to move a piece
@@ -327,12 +670,9 @@ public class Backgammon {
 	 * @return Whether the move is a capture
 	 */
 	public boolean isCapture(int fromIndex, int toIndex) {
-		if (isValidMove(fromIndex, toIndex) &&
-				board.point(toIndex).menType() == curOpponent().menType() &&
-				board.point(toIndex).menNumber() == 1) {
-			return true;
-		}
-		return false;
+		if (!isIndex(fromIndex) || !isIndex(toIndex))
+			return false;
+		return (hitDestinations(fromIndex) & 1 << toIndex) != 0;
 	}
 	
 	
@@ -355,129 +695,392 @@ public class Backgammon {
 	 * @return Whether the piece can move
 	 */
 	public boolean canMove(int index) {
-		for (Die die: dice)
-			if (isValidMove(index, index + (direction(curPlayer) * die.getValue())))
-				return true;
-		
-		return false;
+		if (!isIndex(index))
+			return false;
+		return (movablePoints() & 1 << index) != 0;
 	}
 	
 	
 	/**
-	 * Returns whether the current player has a valid move.
+	 * Returns whether the current player has a valid move. If the legal moves
+	 * have not been worked out for the dice, the points are checked only
+	 * until a move is found, since this is asked after every move.
 	 * @return Whether the the player can move.
 	 */
 	public boolean hasMove() {
+		if (indexed)
+			return movable != 0;
 		
 		for (int i = 1; i <= Board.NUM_POINTS; i++)
-			if (canMove(i))
+			if (canMoveFrom(i))
 				return true;
 		
-		if (!curPlayer.hitMen().isEmpty())
-			if (canMove(offboard(curOpponent())))
+		if (hitMen(curPlayer) > 0)
+			if (canMoveFrom(offboard(curOpponent())))
 				return true;
 
 		return false;
 	}
 	
 	
+	/**
+	 * Returns whether a piece from the point at the given index can be moved,
+	 * checking the rules without using the index of legal moves.
+	 * @param index The index of the point
+	 * @return Whether the piece can move
+	 */
+	private boolean canMoveFrom(int index) {
+		for (int i = 0; i < dice.size(); i++)
+			if (checkMove(index, index + (direction(curPlayer) * dice.get(i).getValue())))
+				return true;
+		
+		return false;
+	}
+	
+	
+	/**
+	 * Returns every distinct legal play the current player can make with the
+	 * dice left this turn. Plays must use as many dice as possible, and plays
+	 * that lead to the same board are only listed once.
+	 * @return The legal plays, or an empty list if the player cannot move
+	 */
+	public List<Play> legalPlays() {
+		if (!hasRolled || hasMoved)
+			return new ArrayList<Play>();
+		
+		int[] values = new int[dice.size()];
+		for (int i = 0; i < values.length; i++)
+			values[i] = dice.get(i).getValue();
+		return new PlayGenerator(board, curPlayer, values).generate();
+	}
+	
+	
+	/**
+	 * Returns every distinct legal play the current player could make from
+	 * the current position with the given roll. A double is played four
+	 * times.
+	 * @param die1 The value of the first die
+	 * @param die2 The value of the second die
+	 * @return The legal plays, or an empty list if the player cannot move
+	 */
+	public List<Play> legalPlays(int die1, int die2) {
+		return legalPlays(board, curPlayer, die1, die2);
+	}
+	
+	
+	/**
+	 * Returns every distinct legal play a player could make on a board with
+	 * the given roll, without needing a game.
+	 * @param board The board, which is not changed
+	 * @param player The player to move
+	 * @param die1 The value of the first die
+	 * @param die2 The value of the second die
+	 * @return The legal plays, or an empty list if the player cannot move
+	 */
+	public static List<Play> legalPlays(Board board, Player player, int die1, int die2) {
+		int[] values;
+		if (die1 == die2)
+			values = new int[] {die1, die1, die1, die1};
+		else
+			values = new int[] {die1, die2};
+		return new PlayGenerator(board, player, values).generate();
+	}
+	
+	
 	/**
 	 * Returns whether the current player can bear off their men.
 	 * @return Whether the current player can bear off their men
 	 */
 	public boolean canBearOff() {
+		return hitMen(curPlayer) == 0 && board.outsideHome(curPlayer.menType()) == 0;
+	}
+	
+	
+	/**
+	 * Returns whether the game is over.
+	 * @return Whether either player has borne off all their men
+	 */
+	public boolean isOver() {
+		return board.borneOff(Man.BLACK) == Board.NUM_MEN ||
+				board.borneOff(Man.WHITE) == Board.NUM_MEN;
+	}
+	
+	
+	/**
+	 * Returns the winner of the game.
+	 * @return The player who has borne off all their men, or null if the game
+	 * is not over
+	 */
+	public Player winner() {
+		return winner(board);
+	}
+	
+	
+	/**
+	 * Returns the winner on a board.
+	 * @param board The board
+	 * @return The player who has borne off all their men, or null if neither
+	 * has
+	 */
+	public static Player winner(Board board) {
+		if (board.borneOff(Man.BLACK) == Board.NUM_MEN)
+			return Player.BLACK;
+		else if (board.borneOff(Man.WHITE) == Board.NUM_MEN)
+			return Player.WHITE;
+		else
+			return null;
+	}
+	
+	
+	/**
+	 * Returns how many points the game is worth to the winner. A loser who has
+	 * not borne off any men is gammoned, and is backgammoned if they also
+	 * still have a man on the bar or in the winner's home board.
+	 * @return 1 for a single game, 2 for a gammon, 3 for a backgammon, or 0 if
+	 * the game is not over
+	 */
+	public int gameValue() {
+		return gameValue(board);
+	}
+	
+	
+	/**
+	 * Returns how many points a finished game on a board is worth to the
+	 * winner.
+	 * @param board The board
+	 * @return 1 for a single game, 2 for a gammon, 3 for a backgammon, or 0 if
+	 * neither player has borne off all their men
+	 */
+	public static int gameValue(Board board) {
+		Player winner = winner(board);
+		if (winner == null)
+			return 0;
 		
-		// If the current player still has hit men, they cannot bear off, return
-		// false
-		if (!curPlayer.hitMen().isEmpty())
-			return false;
+		Man loser = winner == Player.BLACK ? Man.WHITE: Man.BLACK;
+		if (board.borneOff(loser) > 0)
+			return 1;
 		
+		if (board.hitMen(loser) > 0)
+			return 3;
+		for (int i = 1; i <= Board.NUM_POINTS; i++)
+			if (board.menNumber(i, loser) > 0 &&
+					Board.distance(i, loser) > Board.NUM_POINTS - Board.HOME_POINTS)
+				return 3;
+		return 2;
+	}
+	
+	
+	/**
+	 * Returns the pip count of the given player, including men that have been
+	 * hit.
+	 * @param player The player
+	 * @return The total number of pips the player's men must travel
+	 */
+	public int pipCount(Player player) {
+		return board.pipCount(player.menType());
+	}
+	
+	
+	/**
+	 * Returns the number of the given player's men that have been hit.
+	 * @param player The player
+	 * @return The number of hit men
+	 */
+	public int hitMen(Player player) {
+		return board.hitMen(player.menType());
+	}
+	
+	
+	/**
+	 * Returns the number of the given player's men that have been borne off.
+	 * @param player The player
+	 * @return The number of men borne off
+	 */
+	public int borneOff(Player player) {
+		return board.borneOff(player.menType());
+	}
+	
+	
+	/**
+	 * Tries to move a man from a point to another point. Does nothing if the
+	 * rules do not allow the move or no die exists that can be used for it.
+	 * A die matching the distance exactly is used if there is one;
+	 * otherwise, when bearing off, the lowest die that is high enough is
+	 * used.
+	 * @param fromIndex The index of the point of the piece to move
+	 * @param toIndex The index of the point to which to move
+	 */
+	public void move(int fromIndex, int toIndex) {
 		
-		// If the player has at least one man that is not in the home board,
-		// return false
-		if (curPlayer == TOP_PLAYER) {
-			for (int i = 1; i < homeStart(curPlayer); i++) {
-				if (board.point(i).menType() == curPlayer.menType())
-					return false;
+		// Look for a die that matches the distance exactly
+		int value = 0;
+		for (Die die: dice) {
+			if (fromIndex + (direction(curPlayer) * die.getValue()) == toIndex) {
+				value = die.getValue();
+				break;
 			}
 		}
-		else {
-			for (int i = Board.NUM_POINTS; i > homeStart(curPlayer); i--) {
-				if (board.point(i).menType() == curPlayer.menType())
-					return false;
+		
+		// Otherwise, bear off with the lowest die that reaches the offboard
+		if (value == 0 && isBearingOffMove(fromIndex, toIndex)) {
+			for (Die die: dice) {
+				if (die.getValue() >= Math.abs(fromIndex - toIndex) &&
+						(value == 0 || die.getValue() < value))
+					value = die.getValue();
 			}
 		}
 		
-		
-		// Otherwise, return true
-		return true;
+		move(fromIndex, toIndex, value);
 	}
 	
 	
-	public boolean isOver() {
-		boolean whiteFound = false;
-		boolean blackFound = false;
-		for (int i = 1; i <= Board.NUM_POINTS; i++) {
-			if (board.point(i).menType() == Man.BLACK)
-				blackFound = true;
-			else if (board.point(i).menType() == Man.WHITE)
-				whiteFound = true;
-			
-			if (blackFound && whiteFound)
-				return false;
-		}
-		
-		return true;
+	/**
+	 * Tries to move a man from a point to another point using a die of the
+	 * given value. Does nothing if the rules do not allow the move, or if
+	 * there is no such die or it cannot be used for this move.
+	 * @param fromIndex The index of the point of the piece to move
+	 * @param toIndex The index of the point to which to move
+	 * @param value The value of the die to use
+	 */
+	public void move(int fromIndex, int toIndex, int value) {
+		make(fromIndex, toIndex, value);
 	}
 	
 	
 	/**
-	 * Tries to move a man from a point to another point. Does nothing if no
-	 * die exists that can be used for this move.
+	 * Tries to move a man from a point to another point using a die of the
+	 * given value, and returns a record of the move that undo can use to take
+	 * it back. Does nothing if the rules do not allow the move, or if there
+	 * is no such die or it cannot be used for this move. No objects are
+	 * created.
 	 * @param fromIndex The index of the point of the piece to move
 	 * @param toIndex The index of the point to which to move
+	 * @param value The value of the die to use
+	 * @return The record of the move, or MoveRecord.NONE if it was not made
 	 */
-	public void move(int fromIndex, int toIndex) {
+	public int make(int fromIndex, int toIndex, int value) {
+		
+		// Check the rules, using the index of legal moves if it is known
+		if (indexed && isIndex(fromIndex) && isIndex(toIndex) ?
+				(targets[fromIndex] & 1 << toIndex) == 0: !checkMove(fromIndex, toIndex))
+			return MoveRecord.NONE;
 		
 		// Go through each of the die looking for a match.
-		for (Die die: dice) {
+		for (int i = 0; i < dice.size(); i++) {
+			Die die = dice.get(i);
 			
-			if (fromIndex + (direction(curPlayer) * die.getValue()) == toIndex ||
-					(isBearingOffMove(fromIndex, toIndex) && isValidMove(fromIndex, toIndex) && (die.getValue() >= Math.abs(fromIndex - toIndex)
-					// && isLowestDie(die)
-							))) {
-				
-				// Remove the player's man from the origin
-				if (fromIndex == 0 || fromIndex == Board.NUM_POINTS + 1) {
-					curPlayer.hitMen().pop();
-				}
-				else
-					board.point(fromIndex).remove();
+			if (die.getValue() == value &&
+					(fromIndex + (direction(curPlayer) * value) == toIndex ||
+					(isBearingOffMove(fromIndex, toIndex) && value > Math.abs(fromIndex - toIndex) &&
+					 !hasMenAtHigherPoint(fromIndex)))) {
 				
+				// Move the player's man, hitting a lone opponent man
+				boolean hit = board.makeMove(curPlayer.menType(), fromIndex, toIndex);
 				
-				// If the user captured an opponent's man, remove it from the
-				// board and add it to the hit men
-				if (board.point(toIndex).menType() == curOpponent().menType() &&
-						board.point(toIndex).menNumber() == 1) {
-					curOpponent().hitMen().push(board.point(toIndex).remove());
-				}
 				
+				// Remove the used die from play
+				dice.remove(i);
+				indexed = false;
 				
-				// Add the player's man to the destination
-				board.point(toIndex).add(curPlayer.menType());
 				
+				// If the player cannot move, allow move to the next player
+				int putAway = 0;
+				if (!hasMove()) {
+					putAway = diceMask();
+					dice.clear();
+					hasMoved = true;
+				}
 				
-				// Remove the used die from play
-				dice.remove(die);
+				int record = MoveRecord.pack(fromIndex, toIndex, value, hit, slot(die), putAway);
+				history[historySize++] = record;
 				
-				break;
+				if (listener != null) {
+					listener.moved(this, record);
+					listener.changed(this, BoardChange.of(record, curPlayer.menType()));
+					if (isOver())
+						listener.ended(this);
+				}
+				return record;
 			}
 		}
 		
-		// If the player cannot move, allow move to the next player
-		if (!hasMove()) {
-			dice.clear();
-			hasMoved = true;
+		return MoveRecord.NONE;
+	}
+	
+	
+	/**
+	 * Returns whether a move made this turn can be taken back. Once the game
+	 * is over, it cannot.
+	 * @return Whether there is a move to undo
+	 */
+	public boolean canUndo() {
+		return historySize > 0 && !isOver();
+	}
+	
+	
+	/**
+	 * Takes back the last move made this turn, restoring the board and the
+	 * dice. No objects are created.
+	 * @return The record of the move taken back, or MoveRecord.NONE if no
+	 * move can be taken back
+	 */
+	public int undo() {
+		if (!canUndo())
+			return MoveRecord.NONE;
+		
+		int record = history[--historySize];
+		board.unmakeMove(curPlayer.menType(),
+				MoveRecord.fromIndex(record), MoveRecord.toIndex(record), MoveRecord.isHit(record));
+		
+		// Put back the used die and any dice put away at the end of the turn
+		int mask = diceMask() | MoveRecord.putAway(record) | 1 << MoveRecord.slot(record);
+		dice.clear();
+		for (int i = 0; i < allDice.length; i++)
+			if ((mask & 1 << i) != 0)
+				dice.add(allDice[i]);
+		hasMoved = false;
+		indexed = false;
+		
+		if (listener != null) {
+			listener.undone(this, record);
+			listener.changed(this, BoardChange.of(record, curPlayer.menType()));
 		}
+		return record;
+	}
+	
+	
+	/**
+	 * Returns which of the game's dice are usable.
+	 * @return A bit for each usable die
+	 */
+	private int diceMask() {
+		int mask = 0;
+		for (int i = 0; i < dice.size(); i++)
+			mask |= 1 << slot(dice.get(i));
+		return mask;
+	}
+	
+	
+	/**
+	 * Returns the position of a die among all of the game's dice.
+	 * @param die The die
+	 * @return The index of the die
+	 */
+	private int slot(Die die) {
+		for (int i = 0; i < allDice.length; i++)
+			if (allDice[i] == die)
+				return i;
+		return -1;
+	}
+	
+	
+	/**
+	 * Makes every move of a full turn of play.
+	 * @param play The play, which should be one of the legal plays for the
+	 * current dice
+	 */
+	public void play(Play play) {
+		for (Move move: play.moves())
+			move(move.fromIndex(), move.toIndex(), move.die());
 	}
 }
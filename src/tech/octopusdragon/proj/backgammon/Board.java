@@ -1,60 +1,426 @@
 package tech.octopusdragon.proj.backgammon;
 
+import java.util.Arrays;
+
+/**
+ * The points of a backgammon board. The men on each point are stored as a
+ * single signed count, positive for black men and negative for white men, so
+ * that the whole board fits in one small primitive array.
+ * @author Alex Gill
+ *
+ */
 public class Board {
 	
 	// --- Constants ---
 	public static final int NUM_POINTS = 24;			// Number of points
 	public static final int NUM_MEN = 15;				// Number of men per player
 	public static final boolean BLACK_ON_TOP = true;	// Whether black home is on top
+	public static final int HOME_POINTS = NUM_POINTS / 4;	// Number of points in a home board
 	
 	
 	// --- Instance variables ---
-	private Point[] points;	// The points on the board
+	private byte[] men;	// Signed number of men on each point
+	private byte[] bar;	// Number of hit men of each type
+	private int[] pips;	// Pip count of each type of men on the board
+	private int[] outside;	// Number of each type of men outside home
+	private long key;		// Zobrist key of the men on the board and bar
 	
 	
 	/**
 	 * Constructs a board with the standard backgammon layout.
 	 */
 	public Board() {
-		points = new Point[NUM_POINTS + 2];
+		men = new byte[NUM_POINTS + 2];
+		bar = new byte[Man.values().length];
+		pips = new int[Man.values().length];
+		outside = new int[Man.values().length];
 		
 		for (int i = 0; i < (NUM_POINTS + 2) / 2; i++) {
 			switch (i) {
 			
 			case 1:
-				points[i] = new Point(BLACK_ON_TOP ? Man.BLACK: Man.WHITE, 2);
-				points[NUM_POINTS + 2 - i - 1] = new Point(BLACK_ON_TOP ? Man.WHITE: Man.BLACK, 2);
+				set(i, BLACK_ON_TOP ? Man.BLACK: Man.WHITE, 2);
+				set(NUM_POINTS + 2 - i - 1, BLACK_ON_TOP ? Man.WHITE: Man.BLACK, 2);
 				break;
 			
 			case 6:
-				points[i] = new Point(BLACK_ON_TOP ? Man.WHITE: Man.BLACK, 5);
-				points[NUM_POINTS + 2 - i - 1] = new Point(BLACK_ON_TOP ? Man.BLACK: Man.WHITE, 5);
+				set(i, BLACK_ON_TOP ? Man.WHITE: Man.BLACK, 5);
+				set(NUM_POINTS + 2 - i - 1, BLACK_ON_TOP ? Man.BLACK: Man.WHITE, 5);
 				break;
-				
+			
 			case 8:
-				points[i] = new Point(BLACK_ON_TOP ? Man.WHITE: Man.BLACK, 3);
-				points[NUM_POINTS + 2 - i - 1] = new Point(BLACK_ON_TOP ? Man.BLACK: Man.WHITE, 3);
+				set(i, BLACK_ON_TOP ? Man.WHITE: Man.BLACK, 3);
+				set(NUM_POINTS + 2 - i - 1, BLACK_ON_TOP ? Man.BLACK: Man.WHITE, 3);
 				break;
-				
+			
 			case 12:
-				points[i] = new Point(BLACK_ON_TOP ? Man.BLACK: Man.WHITE, 5);
-				points[NUM_POINTS + 2 - i - 1] = new Point(BLACK_ON_TOP ? Man.WHITE: Man.BLACK, 5);
+				set(i, BLACK_ON_TOP ? Man.BLACK: Man.WHITE, 5);
+				set(NUM_POINTS + 2 - i - 1, BLACK_ON_TOP ? Man.WHITE: Man.BLACK, 5);
 				break;
-				
-			default:
-				points[i] = new Point();
-				points[NUM_POINTS + 2 - i - 1] = new Point();
 			}
 		}
 	}
 	
 	
 	/**
-	 * Returns a point on the board.
+	 * Constructs a board with the given men on it. Men that are neither on a
+	 * point nor hit are borne off.
+	 * @param men The signed number of men on each point from 1 to NUM_POINTS,
+	 * positive for black men and negative for white men; the first and last
+	 * entries are ignored
+	 * @param blackHitMen The number of black men that have been hit
+	 * @param whiteHitMen The number of white men that have been hit
+	 * @throws IllegalArgumentException If a player has more than NUM_MEN men
+	 */
+	public Board(int[] men, int blackHitMen, int whiteHitMen) {
+		this.men = new byte[NUM_POINTS + 2];
+		bar = new byte[Man.values().length];
+		pips = new int[Man.values().length];
+		outside = new int[Man.values().length];
+		
+		for (int i = 1; i <= NUM_POINTS; i++) {
+			if (men[i] > 0)
+				set(i, Man.BLACK, men[i]);
+			else if (men[i] < 0)
+				set(i, Man.WHITE, -men[i]);
+		}
+		for (int i = 0; i < blackHitMen; i++)
+			addHitMan(Man.BLACK);
+		for (int i = 0; i < whiteHitMen; i++)
+			addHitMan(Man.WHITE);
+		
+		for (Man type: Man.values()) {
+			int onBoard = hitMen(type);
+			for (int i = 1; i <= NUM_POINTS; i++)
+				onBoard += menNumber(i, type);
+			if (onBoard > NUM_MEN)
+				throw new IllegalArgumentException(type + " has " + onBoard + " men");
+			set(offIndex(type), type, NUM_MEN - onBoard);
+		}
+	}
+	
+	
+	/**
+	 * Constructs a copy of another board.
+	 * @param other The board to copy
+	 */
+	public Board(Board other) {
+		men = other.men.clone();
+		bar = other.bar.clone();
+		pips = other.pips.clone();
+		outside = other.outside.clone();
+		key = other.key;
+	}
+	
+	
+	/**
+	 * Places a number of men of one type on an empty point.
+	 * @param index The index of the point
+	 * @param type The type of men
+	 * @param numMen The number of men
+	 */
+	private void set(int index, Man type, int numMen) {
+		men[index] = (byte)(sign(type) * numMen);
+		count(index, type, numMen);
+		key ^= Zobrist.point(index, men[index]);
+	}
+	
+	
+	/**
+	 * Updates the running totals after men of one type are added to or removed
+	 * from a point.
+	 * @param index The index of the point
+	 * @param type The type of men
+	 * @param numMen The number of men added, or negative if removed
+	 */
+	private void count(int index, Man type, int numMen) {
+		int distance = distance(index, type);
+		pips[type.ordinal()] += distance * numMen;
+		if (distance > HOME_POINTS)
+			outside[type.ordinal()] += numMen;
+	}
+	
+	
+	/**
+	 * Returns how many pips a man of the given type on a point has left to
+	 * travel before it is borne off.
+	 * @param index The index of the point
+	 * @param type The type of man
+	 * @return The distance to the point where the man is borne off
+	 */
+	public static int distance(int index, Man type) {
+		return Math.abs(offIndex(type) - index);
+	}
+	
+	
+	/**
+	 * Returns the index of the point a man of the given type is on when it is
+	 * the given distance from being borne off.
+	 * @param distance The distance
+	 * @param type The type of man
+	 * @return The index of the point
+	 */
+	public static int point(int distance, Man type) {
+		return offIndex(type) == 0 ? distance: NUM_POINTS + 1 - distance;
+	}
+	
+	
+	/**
+	 * Returns the index hit men of the given type enter the board from.
+	 * @param type The type of men
+	 * @return The index of the opposite offboard point
+	 */
+	public static int entryIndex(Man type) {
+		return NUM_POINTS + 1 - offIndex(type);
+	}
+	
+	
+	/**
+	 * Returns the index of the point where men of the given type are borne
+	 * off to.
+	 * @param type The type of men
+	 * @return The index of the offboard point
+	 */
+	public static int offIndex(Man type) {
+		if ((type == Man.BLACK) == BLACK_ON_TOP)
+			return NUM_POINTS + 1;
+		else
+			return 0;
+	}
+	
+	
+	/**
+	 * Returns the sign used to store men of the given type.
+	 * @param type The type of men
+	 * @return 1 for black men or -1 for white men
+	 */
+	private static int sign(Man type) {
+		return type == Man.BLACK ? 1: -1;
+	}
+	
+	
+	/**
+	 * Returns the type of the men occupying a point.
+	 * @param index The index of the point
+	 * @return The type of men or null if unoccupied
+	 */
+	public Man menType(int index) {
+		if (men[index] > 0)
+			return Man.BLACK;
+		else if (men[index] < 0)
+			return Man.WHITE;
+		else
+			return null;
+	}
+	
+	
+	/**
+	 * Returns the number of men occupying a point.
+	 * @param index The index of the point
+	 * @return The number of men
+	 */
+	public int menNumber(int index) {
+		return Math.abs(men[index]);
+	}
+	
+	
+	/**
+	 * Returns the number of men of the given type occupying a point.
+	 * @param index The index of the point
+	 * @param type The type of men
+	 * @return The number of men of that type, or 0 if the point is empty or
+	 * held by the other type
+	 */
+	public int menNumber(int index, Man type) {
+		int count = men[index] * sign(type);
+		return count > 0 ? count: 0;
+	}
+	
+	
+	/**
+	 * Returns whether a point is unoccupied.
+	 * @param index The index of the point
+	 * @return Whether the point is unoccupied
+	 */
+	public boolean isUnoccupied(int index) {
+		return men[index] == 0;
+	}
+	
+	
+	/**
+	 * Adds a man to a point only if there are no opponent men already on the
+	 * point.
 	 * @param index The index of the point
-	 * @return The point
+	 * @param type The type of man
+	 * @return Whether the man was successfully added
+	 */
+	public boolean add(int index, Man type) {
+		if (men[index] * sign(type) < 0)
+			return false;
+		key ^= Zobrist.point(index, men[index]);
+		men[index] += sign(type);
+		key ^= Zobrist.point(index, men[index]);
+		count(index, type, 1);
+		return true;
+	}
+	
+	
+	/**
+	 * Removes a man from a point as long as there is at least one man on the
+	 * point.
+	 * @param index The index of the point
+	 * @return The removed man or null if nothing was removed
+	 */
+	public Man remove(int index) {
+		Man type = menType(index);
+		if (type != null) {
+			key ^= Zobrist.point(index, men[index]);
+			men[index] -= sign(type);
+			key ^= Zobrist.point(index, men[index]);
+			count(index, type, -1);
+		}
+		return type;
+	}
+	
+	
+	/**
+	 * Moves a man from one point to another, hitting a lone opponent man on
+	 * the destination. A man moved from the index hit men enter from is taken
+	 * off the bar. No rules are checked.
+	 * @param type The type of man
+	 * @param fromIndex The index of the point the man leaves
+	 * @param toIndex The index of the point the man lands on
+	 * @return Whether an opponent man was hit
+	 */
+	public boolean makeMove(Man type, int fromIndex, int toIndex) {
+		if (fromIndex == entryIndex(type))
+			removeHitMan(type);
+		else
+			remove(fromIndex);
+		
+		boolean hit = men[toIndex] == -sign(type);
+		if (hit)
+			addHitMan(remove(toIndex));
+		add(toIndex, type);
+		return hit;
+	}
+	
+	
+	/**
+	 * Takes back a move made with makeMove.
+	 * @param type The type of man
+	 * @param fromIndex The index of the point the man left
+	 * @param toIndex The index of the point the man landed on
+	 * @param hit Whether an opponent man was hit
+	 */
+	public void unmakeMove(Man type, int fromIndex, int toIndex, boolean hit) {
+		remove(toIndex);
+		if (hit) {
+			Man opponent = type == Man.BLACK ? Man.WHITE: Man.BLACK;
+			removeHitMan(opponent);
+			add(toIndex, opponent);
+		}
+		
+		if (fromIndex == entryIndex(type))
+			addHitMan(type);
+		else
+			add(fromIndex, type);
+	}
+	
+	
+	/**
+	 * Returns the number of hit men of the given type.
+	 * @param type The type of men
+	 * @return The number of hit men
+	 */
+	public int hitMen(Man type) {
+		return bar[type.ordinal()];
+	}
+	
+	
+	/**
+	 * Puts a man that has been hit on the bar.
+	 * @param type The type of man
+	 */
+	public void addHitMan(Man type) {
+		key ^= Zobrist.bar(type, bar[type.ordinal()]);
+		bar[type.ordinal()]++;
+		key ^= Zobrist.bar(type, bar[type.ordinal()]);
+		pips[type.ordinal()] += NUM_POINTS + 1;
+	}
+	
+	
+	/**
+	 * Takes a hit man off the bar so it can enter the board.
+	 * @param type The type of man
+	 * @return The removed man or null if there were no hit men of that type
 	 */
-	public Point point(int index) {
-		return points[index];
+	public Man removeHitMan(Man type) {
+		if (bar[type.ordinal()] == 0)
+			return null;
+		key ^= Zobrist.bar(type, bar[type.ordinal()]);
+		bar[type.ordinal()]--;
+		key ^= Zobrist.bar(type, bar[type.ordinal()]);
+		pips[type.ordinal()] -= NUM_POINTS + 1;
+		return type;
+	}
+	
+	
+	/**
+	 * Returns the pip count of the men of the given type, including men that
+	 * have been hit.
+	 * @param type The type of men
+	 * @return The total number of pips the men must travel
+	 */
+	public int pipCount(Man type) {
+		return pips[type.ordinal()];
+	}
+	
+	
+	/**
+	 * Returns the number of men of the given type on points outside their
+	 * home board, not counting men that have been hit.
+	 * @param type The type of men
+	 * @return The number of men outside home
+	 */
+	public int outsideHome(Man type) {
+		return outside[type.ordinal()];
+	}
+	
+	
+	/**
+	 * Returns the number of men of the given type that have been borne off.
+	 * @param type The type of men
+	 * @return The number of men borne off
+	 */
+	public int borneOff(Man type) {
+		return menNumber(offIndex(type), type);
+	}
+	
+	
+	/**
+	 * Returns the Zobrist key of the men on the board and bar. Boards with the
+	 * same men have the same key, and the key is kept up to date as men are
+	 * added and removed, so it costs nothing to read.
+	 * @return The key
+	 */
+	public long key() {
+		return key;
+	}
+	
+	
+	@Override
+	public boolean equals(Object obj) {
+		if (!(obj instanceof Board))
+			return false;
+		Board other = (Board)obj;
+		return key == other.key &&
+				Arrays.equals(men, other.men) && Arrays.equals(bar, other.bar);
+	}
+	
+	
+	@Override
+	public int hashCode() {
+		return (int)(key ^ (key >>> 32));
 	}
 }
@@ -0,0 +1,107 @@
+package tech.octopusdragon.proj.backgammon;
+
+/**
+ * Packs what a change to a game touched into a single int, so that a view
+ * can update only the parts of the board that changed. The set of changes
+ * has a bit for each point index, one for the hit men of each type, and one
+ * for the usable dice.
+ * @author Alex Gill
+ *
+ */
+public final class BoardChange {
+	
+	// --- Constants ---
+	public static final int NONE = 0;	// Set of changes that touched nothing
+	
+	private static final int BAR_SHIFT = Board.NUM_POINTS + 2;
+	private static final int DICE = 1 << BAR_SHIFT + Man.values().length;
+	
+	
+	/**
+	 * Not instantiable
+	 */
+	private BoardChange() {
+	}
+	
+	
+	/**
+	 * Returns the changes made by a move or by taking it back: the points
+	 * the man left and landed on, the bar if the man entered or hit, and the
+	 * dice.
+	 * @param record The record of the move
+	 * @param type The type of the man moved
+	 * @return The set of changes
+	 */
+	static int of(int record, Man type) {
+		int fromIndex = MoveRecord.fromIndex(record);
+		int changes = DICE | point(MoveRecord.toIndex(record));
+		if (fromIndex == Board.entryIndex(type))
+			changes |= bar(type);
+		else
+			changes |= point(fromIndex);
+		if (MoveRecord.isHit(record))
+			changes |= bar(type == Man.BLACK ? Man.WHITE: Man.BLACK);
+		return changes;
+	}
+	
+	
+	/**
+	 * Returns the change to the usable dice.
+	 * @return The set of changes
+	 */
+	static int dice() {
+		return DICE;
+	}
+	
+	
+	/**
+	 * Returns the change to a point.
+	 * @param index The index of the point
+	 * @return The set of changes
+	 */
+	private static int point(int index) {
+		return 1 << index;
+	}
+	
+	
+	/**
+	 * Returns the change to the hit men of one type.
+	 * @param type The type of men
+	 * @return The set of changes
+	 */
+	private static int bar(Man type) {
+		return 1 << BAR_SHIFT + type.ordinal();
+	}
+	
+	
+	/**
+	 * Returns whether the men on a point changed.
+	 * @param changes The set of changes
+	 * @param index The index of the point, including the offboard points
+	 * @return Whether the point changed
+	 */
+	public static boolean isPointChanged(int changes, int index) {
+		return (changes & point(index)) != 0;
+	}
+	
+	
+	/**
+	 * Returns whether the number of hit men of one type changed.
+	 * @param changes The set of changes
+	 * @param type The type of men
+	 * @return Whether the bar changed
+	 */
+	public static boolean isBarChanged(int changes, Man type) {
+		return (changes & bar(type)) != 0;
+	}
+	
+	
+	/**
+	 * Returns whether dice were used up, put back or rolled.
+	 * @param changes The set of changes
+	 * @return Whether the usable dice changed
+	 */
+	public static boolean areDiceChanged(int changes) {
+		return (changes & DICE) != 0;
+	}
+}
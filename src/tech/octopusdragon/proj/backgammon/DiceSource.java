@@ -0,0 +1,17 @@
+package tech.octopusdragon.proj.backgammon;
+
+/**
+ * Where the values of rolled dice come from. A game takes its dice source
+ * when it is constructed, so games can be made reproducible or fast as
+ * needed.
+ * @author Alex Gill
+ *
+ */
+public interface DiceSource {
+	
+	/**
+	 * Rolls one die.
+	 * @return A value between 1 and Die.NUM_SIDES
+	 */
+	int roll();
+}
@@ -1,6 +1,6 @@
 package tech.octopusdragon.proj.backgammon;
 
-import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * Represents a standard six-sided die that can be rolled.
@@ -36,13 +36,30 @@ public class Die {
 		return value;
 	}
 	
+	/**
+	 * Sets the value of the face-up side.
+	 * @param value The value
+	 */
+	void setValue(int value) {
+		this.value = value;
+	}
+	
 	/**
 	 * Rolls the die to produce a random number between 1 and 6.
 	 * @return The roll
 	 */
 	public int roll() {
-		Random rand = new Random();
-		value = rand.nextInt(NUM_SIDES) + 1;
+		value = ThreadLocalRandom.current().nextInt(NUM_SIDES) + 1;
+		return value;
+	}
+	
+	/**
+	 * Rolls the die using the given source of dice values.
+	 * @param source The source of dice values
+	 * @return The roll
+	 */
+	public int roll(DiceSource source) {
+		value = source.roll();
 		return value;
 	}
 	
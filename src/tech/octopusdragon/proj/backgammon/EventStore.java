@@ -0,0 +1,301 @@
+package tech.octopusdragon.proj.backgammon;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Keeps every event of one game, so the game can be audited, sent to other
+ * machines, or rebuilt as it was at any point. The store listens to the game
+ * for its events. Every so many events it also keeps a copy of the game at a
+ * turn boundary, so that rebuilding a long game only replays the events
+ * since the last copy rather than every move since the opening roll.
+ * <p>
+ * Events are added on the thread playing the game, and can be read and games
+ * rebuilt on any thread.
+ * @author Alex Gill
+ *
+ */
+public class EventStore implements GameListener {
+	
+	// --- Constants ---
+	public static final int SNAPSHOT_INTERVAL = 64;	// Events between copies of the game by default
+	
+	
+	// --- Instance variables ---
+	private final List<GameEvent> events;				// Events in the order they happened
+	private final List<Backgammon> snapshots;			// Copies of the game at turn boundaries
+	private final List<Integer> snapshotSizes;			// Events before each copy
+	private final List<Consumer<GameEvent>> subscribers;	// Told about each new event
+	private final int interval;							// Fewest events between copies
+	
+	
+	/**
+	 * Instantiates an empty store that copies the game every
+	 * SNAPSHOT_INTERVAL events.
+	 */
+	public EventStore() {
+		this(SNAPSHOT_INTERVAL);
+	}
+	
+	
+	/**
+	 * Instantiates an empty store.
+	 * @param interval The fewest events between copies of the game
+	 */
+	public EventStore(int interval) {
+		if (interval < 1)
+			throw new IllegalArgumentException("Interval must be positive: " + interval);
+		events = new ArrayList<GameEvent>();
+		snapshots = new ArrayList<Backgammon>();
+		snapshotSizes = new ArrayList<Integer>();
+		subscribers = new CopyOnWriteArrayList<Consumer<GameEvent>>();
+		this.interval = interval;
+	}
+	
+	
+	/**
+	 * Tells a subscriber about every event added from now on, such as to
+	 * send it to a replica. The subscriber is called on the thread playing
+	 * the game.
+	 * @param subscriber The subscriber
+	 */
+	public void subscribe(Consumer<GameEvent> subscriber) {
+		subscribers.add(subscriber);
+	}
+	
+	
+	/**
+	 * Returns the number of events.
+	 * @return The number of events
+	 */
+	public synchronized int size() {
+		return events.size();
+	}
+	
+	
+	/**
+	 * Returns an event.
+	 * @param index The number of the event, counting from 0
+	 * @return The event
+	 */
+	public synchronized GameEvent event(int index) {
+		return events.get(index);
+	}
+	
+	
+	/**
+	 * Returns the events from some point on, such as to bring a replica up
+	 * to date.
+	 * @param from The number of the first event
+	 * @return A copy of the events
+	 */
+	public synchronized List<GameEvent> events(int from) {
+		return Collections.unmodifiableList(new ArrayList<GameEvent>(events.subList(from, events.size())));
+	}
+	
+	
+	/**
+	 * Returns the number of copies of the game kept.
+	 * @return The number of snapshots
+	 */
+	public synchronized int snapshots() {
+		return snapshots.size();
+	}
+	
+	
+	/**
+	 * Adds an event and tells the subscribers about it.
+	 * @param event The event
+	 */
+	private void add(GameEvent event) {
+		synchronized (this) {
+			events.add(event);
+		}
+		for (Consumer<GameEvent> subscriber: subscribers)
+			subscriber.accept(event);
+	}
+	
+	
+	/**
+	 * Records a player resigning the game. The game does not know about
+	 * resignations, so whoever hosts it reports them here.
+	 * @param player The player who resigned
+	 * @param points The number of points the opponent wins
+	 */
+	public void resigned(Player player, int points) {
+		add(GameEvent.resigned(player, points));
+	}
+	
+	
+	/**
+	 * Returns the player who resigned the game, so that a host rebuilding
+	 * the game can tell that it is over.
+	 * @return The player, or null if nobody has resigned
+	 */
+	public synchronized Player resignation() {
+		for (GameEvent event: events)
+			if (event.type() == GameEvent.Type.RESIGNED)
+				return event.player();
+		return null;
+	}
+	
+	
+	@Override
+	public void rolled(Backgammon game, int die1, int die2) {
+		add(GameEvent.rolled(game.curPlayer(), die1, die2));
+	}
+	
+	
+	@Override
+	public void moved(Backgammon game, int record) {
+		Player player = game.curPlayer();
+		add(GameEvent.move(GameEvent.Type.MOVED, player, record));
+		if (MoveRecord.isHit(record))
+			add(GameEvent.move(GameEvent.Type.HIT, player, record));
+		if (MoveRecord.toIndex(record) == Board.offIndex(player.menType()))
+			add(GameEvent.move(GameEvent.Type.BORNE_OFF, player, record));
+	}
+	
+	
+	@Override
+	public void undone(Backgammon game, int record) {
+		add(GameEvent.move(GameEvent.Type.UNDONE, game.curPlayer(), record));
+	}
+	
+	
+	@Override
+	public void passed(Backgammon game) {
+		add(GameEvent.passed(game.curPlayer()));
+		synchronized (this) {
+			int last = snapshotSizes.isEmpty() ? 0: snapshotSizes.get(snapshotSizes.size() - 1);
+			if (events.size() - last >= interval) {
+				snapshots.add(new Backgammon(game, null));
+				snapshotSizes.add(events.size());
+			}
+		}
+	}
+	
+	
+	@Override
+	public void ended(Backgammon game) {
+		add(GameEvent.over(game.winner(), game.gameValue()));
+	}
+	
+	
+	/**
+	 * Rebuilds the game as it is now.
+	 * @param diceSource The source of the dice the rebuilt game rolls next
+	 * @return A new game in the same state, which tells no listener about
+	 * its moves
+	 */
+	public Backgammon rebuild(DiceSource diceSource) {
+		return rebuild(size(), diceSource);
+	}
+	
+	
+	/**
+	 * Rebuilds the game as it was after a number of events, starting from
+	 * the last copy of the game kept before then.
+	 * @param count The number of events, at least 1 for the opening roll
+	 * @param diceSource The source of the dice the rebuilt game rolls next
+	 * @return A new game in that state, which tells no listener about its
+	 * moves
+	 */
+	public synchronized Backgammon rebuild(int count, DiceSource diceSource) {
+		if (count < 1 || count > events.size())
+			throw new IndexOutOfBoundsException("Cannot rebuild after " + count + " of " + events.size() + " events");
+		
+		int snapshot = snapshotSizes.size() - 1;
+		while (snapshot >= 0 && snapshotSizes.get(snapshot) > count)
+			snapshot--;
+		
+		Replay replay = new Replay(diceSource);
+		if (snapshot < 0)
+			return fold(events.subList(0, count), replay);
+		Backgammon game = new Backgammon(snapshots.get(snapshot), replay);
+		for (GameEvent event: events.subList(snapshotSizes.get(snapshot), count))
+			event.apply(game, replay);
+		return game;
+	}
+	
+	
+	/**
+	 * Rebuilds a game from all of its events, such as on a replica.
+	 * @param events The events, starting with the opening roll
+	 * @param diceSource The source of the dice the rebuilt game rolls next
+	 * @return A new game in the state after the events
+	 * @throws IllegalStateException If the events do not make up a game
+	 */
+	public static Backgammon fold(List<GameEvent> events, DiceSource diceSource) {
+		return fold(events, new Replay(diceSource));
+	}
+	
+	
+	/**
+	 * Rebuilds a game from all of its events.
+	 * @param events The events, starting with the opening roll
+	 * @param replay The source the game rolls its dice with
+	 * @return A new game in the state after the events
+	 */
+	private static Backgammon fold(List<GameEvent> events, Replay replay) {
+		if (events.isEmpty() || events.get(0).type() != GameEvent.Type.ROLLED)
+			throw new IllegalStateException("A game starts with the opening roll");
+		GameEvent opening = events.get(0);
+		replay.set(opening.die1(), opening.die2());
+		Backgammon game = new Backgammon(replay);
+		for (GameEvent event: events.subList(1, events.size()))
+			event.apply(game, replay);
+		return game;
+	}
+	
+	
+	/**
+	 * Rolls the values of the roll being replayed, and after that rolls with
+	 * another source.
+	 * @author Alex Gill
+	 *
+	 */
+	static class Replay implements DiceSource {
+		
+		private final DiceSource fallback;	// Source used once nothing is replayed
+		private final int[] values;			// Values of the roll being replayed
+		private int next;					// Index of the next value to roll
+		
+		
+		/**
+		 * Instantiates the source.
+		 * @param fallback The source to roll with when nothing is being
+		 * replayed, or null for none
+		 */
+		Replay(DiceSource fallback) {
+			this.fallback = fallback;
+			values = new int[Backgammon.NUM_DICE];
+			next = values.length;
+		}
+		
+		
+		/**
+		 * Sets the roll to replay.
+		 * @param die1 The value of the first die
+		 * @param die2 The value of the second die
+		 */
+		void set(int die1, int die2) {
+			values[0] = die1;
+			values[1] = die2;
+			next = 0;
+		}
+		
+		
+		@Override
+		public int roll() {
+			if (next < values.length)
+				return values[next++];
+			if (fallback == null)
+				throw new IllegalStateException("No roll to replay");
+			return fallback.roll();
+		}
+	}
+}
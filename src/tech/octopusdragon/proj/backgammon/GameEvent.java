@@ -0,0 +1,218 @@
+package tech.octopusdragon.proj.backgammon;
+
+/**
+ * Something that happened in a game: a roll, a move, a hit, a man borne off,
+ * a move taken back, the turn passing, a player resigning, or the end of the
+ * game. Events are
+ * immutable, so they can be kept, sent elsewhere or read by other threads
+ * freely. Hits and men borne off are reported as events of their own right
+ * after the move that caused them; folding the events back into a game only
+ * needs the others.
+ * @author Alex Gill
+ *
+ */
+public final class GameEvent {
+	
+	/**
+	 * The kinds of event.
+	 */
+	public enum Type {
+		ROLLED, MOVED, HIT, BORNE_OFF, UNDONE, PASSED, RESIGNED, OVER
+	}
+	
+	
+	// --- Instance variables ---
+	private final Type type;		// Kind of event
+	private final Player player;	// Player the event happened to
+	private final int value1;		// First die, move record or points
+	private final int value2;		// Second die
+	
+	
+	/**
+	 * Instantiates an event.
+	 * @param type The kind of event
+	 * @param player The player the event happened to
+	 * @param value1 The first die, the move record or the points
+	 * @param value2 The second die, or 0
+	 */
+	private GameEvent(Type type, Player player, int value1, int value2) {
+		this.type = type;
+		this.player = player;
+		this.value1 = value1;
+		this.value2 = value2;
+	}
+	
+	
+	/**
+	 * Returns the event of a player rolling the dice.
+	 * @param player The player
+	 * @param die1 The value of the first die
+	 * @param die2 The value of the second die
+	 * @return The event
+	 */
+	public static GameEvent rolled(Player player, int die1, int die2) {
+		return new GameEvent(Type.ROLLED, player, die1, die2);
+	}
+	
+	
+	/**
+	 * Returns an event about a move: the move itself, a hit, a man borne off
+	 * or the move being taken back.
+	 * @param type MOVED, HIT, BORNE_OFF or UNDONE
+	 * @param player The player who moved
+	 * @param record The record of the move, read with MoveRecord
+	 * @return The event
+	 */
+	public static GameEvent move(Type type, Player player, int record) {
+		return new GameEvent(type, player, record, 0);
+	}
+	
+	
+	/**
+	 * Returns the event of the turn passing to a player.
+	 * @param player The player about to roll
+	 * @return The event
+	 */
+	public static GameEvent passed(Player player) {
+		return new GameEvent(Type.PASSED, player, 0, 0);
+	}
+	
+	
+	/**
+	 * Returns the event of a player winning the game.
+	 * @param winner The winner
+	 * @param points The number of points won
+	 * @return The event
+	 */
+	public static GameEvent over(Player winner, int points) {
+		return new GameEvent(Type.OVER, winner, points, 0);
+	}
+	
+	
+	/**
+	 * Returns the event of a player resigning the game, which the game itself
+	 * does not know about.
+	 * @param player The player who resigned
+	 * @param points The number of points the opponent wins
+	 * @return The event
+	 */
+	public static GameEvent resigned(Player player, int points) {
+		return new GameEvent(Type.RESIGNED, player, points, 0);
+	}
+	
+	
+	/**
+	 * Returns the kind of event.
+	 * @return The kind of event
+	 */
+	public Type type() {
+		return type;
+	}
+	
+	
+	/**
+	 * Returns the player the event happened to: the player who rolled or
+	 * moved, the player the turn passed to, the player who resigned, or the
+	 * winner.
+	 * @return The player
+	 */
+	public Player player() {
+		return player;
+	}
+	
+	
+	/**
+	 * Returns the value of the first die of a roll.
+	 * @return The value
+	 */
+	public int die1() {
+		return value1;
+	}
+	
+	
+	/**
+	 * Returns the value of the second die of a roll.
+	 * @return The value
+	 */
+	public int die2() {
+		return value2;
+	}
+	
+	
+	/**
+	 * Returns the record of the move a move event is about.
+	 * @return The record, read with MoveRecord
+	 */
+	public int record() {
+		return value1;
+	}
+	
+	
+	/**
+	 * Returns the number of points won at the end of the game, or given up
+	 * by a resignation.
+	 * @return The points
+	 */
+	public int points() {
+		return value1;
+	}
+	
+	
+	/**
+	 * Makes the change the event describes to a game. Hits, men borne off
+	 * and the end of the game follow from the move before them, so they
+	 * change nothing. Nor does a resignation, which only the host of the
+	 * game keeps track of.
+	 * @param game The game, in the state the event happened in
+	 * @param dice The source the game rolls its dice with, which is given
+	 * the values of a roll
+	 * @throws IllegalStateException If the event cannot happen in the game
+	 */
+	void apply(Backgammon game, EventStore.Replay dice) {
+		switch (type) {
+		
+		case ROLLED:
+			if (game.hasRolled())
+				throw new IllegalStateException("Rolled twice");
+			dice.set(value1, value2);
+			game.roll();
+			break;
+		
+		case MOVED:
+			if (game.make(MoveRecord.fromIndex(value1), MoveRecord.toIndex(value1),
+					MoveRecord.die(value1)) == MoveRecord.NONE)
+				throw new IllegalStateException("Illegal move: " + MoveRecord.toMove(value1));
+			break;
+		
+		case UNDONE:
+			if (game.undo() == MoveRecord.NONE)
+				throw new IllegalStateException("Nothing to undo");
+			break;
+		
+		case PASSED:
+			if (!game.hasMoved())
+				throw new IllegalStateException("Passed before moving");
+			game.nextPlayer();
+			break;
+		
+		default:
+			break;
+		}
+	}
+	
+	
+	@Override
+	public String toString() {
+		switch (type) {
+		case ROLLED:
+			return player + " " + type + " " + value1 + " " + value2;
+		case PASSED:
+			return player + " " + type;
+		case RESIGNED:
+		case OVER:
+			return player + " " + type + " " + value1;
+		default:
+			return player + " " + type + " " + MoveRecord.toMove(value1);
+		}
+	}
+}
@@ -0,0 +1,68 @@
+package tech.octopusdragon.proj.backgammon;
+
+/**
+ * Is told about the rolls, moves and turns of a game as they happen, such as to
+ * record the game. Every method does nothing unless overridden. The methods
+ * are called on the thread playing the game, in the middle of the game loop,
+ * so they should return quickly.
+ * @author Alex Gill
+ *
+ */
+public interface GameListener {
+	
+	/**
+	 * Called when the current player has rolled the dice, including the
+	 * opening roll that decides who goes first.
+	 * @param game The game
+	 * @param die1 The value of the first die
+	 * @param die2 The value of the second die
+	 */
+	default void rolled(Backgammon game, int die1, int die2) {
+	}
+	
+	
+	/**
+	 * Called when the current player has moved a man.
+	 * @param game The game
+	 * @param record The record of the move, read with MoveRecord
+	 */
+	default void moved(Backgammon game, int record) {
+	}
+	
+	
+	/**
+	 * Called when the current player has taken back a move.
+	 * @param game The game
+	 * @param record The record of the move taken back
+	 */
+	default void undone(Backgammon game, int record) {
+	}
+	
+	
+	/**
+	 * Called whenever the board or the usable dice change, after the more
+	 * specific method for the change. A view can use this to update only
+	 * what changed.
+	 * @param game The game
+	 * @param changes The set of changes, read with BoardChange
+	 */
+	default void changed(Backgammon game, int changes) {
+	}
+	
+	
+	/**
+	 * Called when the turn has passed to the other player, who is about to
+	 * roll.
+	 * @param game The game, whose current player is the new player
+	 */
+	default void passed(Backgammon game) {
+	}
+	
+	
+	/**
+	 * Called when a move has ended the game.
+	 * @param game The game, which has a winner
+	 */
+	default void ended(Backgammon game) {
+	}
+}
@@ -0,0 +1,74 @@
+package tech.octopusdragon.proj.backgammon;
+
+/**
+ * A single hop of one man from one point to another using one die.
+ * @author Alex Gill
+ *
+ */
+public final class Move {
+	
+	private final int fromIndex;	// Index of the point the man leaves
+	private final int toIndex;		// Index of the point the man lands on
+	private final int die;			// Value of the die used
+	
+	
+	/**
+	 * Instantiates a move.
+	 * @param fromIndex The index of the point the man leaves
+	 * @param toIndex The index of the point the man lands on
+	 * @param die The value of the die used
+	 */
+	public Move(int fromIndex, int toIndex, int die) {
+		this.fromIndex = fromIndex;
+		this.toIndex = toIndex;
+		this.die = die;
+	}
+	
+	
+	/**
+	 * Returns the index of the point the man leaves.
+	 * @return The index of the point the man leaves
+	 */
+	public int fromIndex() {
+		return fromIndex;
+	}
+	
+	
+	/**
+	 * Returns the index of the point the man lands on.
+	 * @return The index of the point the man lands on
+	 */
+	public int toIndex() {
+		return toIndex;
+	}
+	
+	
+	/**
+	 * Returns the value of the die used.
+	 * @return The value of the die used
+	 */
+	public int die() {
+		return die;
+	}
+	
+	
+	@Override
+	public boolean equals(Object obj) {
+		if (!(obj instanceof Move))
+			return false;
+		Move other = (Move)obj;
+		return fromIndex == other.fromIndex && toIndex == other.toIndex && die == other.die;
+	}
+	
+	
+	@Override
+	public int hashCode() {
+		return (fromIndex * (Board.NUM_POINTS + 2) + toIndex) * (Die.NUM_SIDES + 1) + die;
+	}
+	
+	
+	@Override
+	public String toString() {
+		return fromIndex + "/" + toIndex;
+	}
+}
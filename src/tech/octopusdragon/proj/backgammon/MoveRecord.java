@@ -0,0 +1,127 @@
+package tech.octopusdragon.proj.backgammon;
+
+/**
+ * Packs everything needed to take back a move into a single int, so that
+ * moves can be made and unmade without creating any objects. The record holds
+ * the from and to indices, the value of the die used, whether an opponent man
+ * was hit, which of the game's dice was used, and which unusable dice were
+ * put away because the turn ended.
+ * @author Alex Gill
+ *
+ */
+public final class MoveRecord {
+	
+	// --- Constants ---
+	public static final int NONE = -1;	// Record of a move that was not made
+	
+	private static final int INDEX_BITS = 5;	// Bits holding a point index
+	private static final int DIE_BITS = 3;		// Bits holding a die value
+	private static final int SLOT_BITS = 2;		// Bits holding which die was used
+	private static final int INDEX_MASK = (1 << INDEX_BITS) - 1;
+	private static final int DIE_MASK = (1 << DIE_BITS) - 1;
+	private static final int SLOT_MASK = (1 << SLOT_BITS) - 1;
+	
+	private static final int TO_SHIFT = INDEX_BITS;
+	private static final int DIE_SHIFT = TO_SHIFT + INDEX_BITS;
+	private static final int HIT_SHIFT = DIE_SHIFT + DIE_BITS;
+	private static final int SLOT_SHIFT = HIT_SHIFT + 1;
+	private static final int PUT_AWAY_SHIFT = SLOT_SHIFT + SLOT_BITS;
+	
+	
+	/**
+	 * Not instantiable
+	 */
+	private MoveRecord() {
+	}
+	
+	
+	/**
+	 * Packs a move into a record.
+	 * @param fromIndex The index of the point the man left
+	 * @param toIndex The index of the point the man landed on
+	 * @param die The value of the die used
+	 * @param hit Whether an opponent man was hit
+	 * @param slot Which of the game's dice was used
+	 * @param putAway A bit for each of the game's dice that was put away
+	 * because the turn ended
+	 * @return The record
+	 */
+	static int pack(int fromIndex, int toIndex, int die, boolean hit, int slot, int putAway) {
+		return fromIndex |
+				toIndex << TO_SHIFT |
+				die << DIE_SHIFT |
+				(hit ? 1: 0) << HIT_SHIFT |
+				slot << SLOT_SHIFT |
+				putAway << PUT_AWAY_SHIFT;
+	}
+	
+	
+	/**
+	 * Returns the index of the point the man left.
+	 * @param record The record
+	 * @return The from index
+	 */
+	public static int fromIndex(int record) {
+		return record & INDEX_MASK;
+	}
+	
+	
+	/**
+	 * Returns the index of the point the man landed on.
+	 * @param record The record
+	 * @return The to index
+	 */
+	public static int toIndex(int record) {
+		return (record >>> TO_SHIFT) & INDEX_MASK;
+	}
+	
+	
+	/**
+	 * Returns the value of the die used.
+	 * @param record The record
+	 * @return The die value
+	 */
+	public static int die(int record) {
+		return (record >>> DIE_SHIFT) & DIE_MASK;
+	}
+	
+	
+	/**
+	 * Returns whether an opponent man was hit.
+	 * @param record The record
+	 * @return Whether the move hit
+	 */
+	public static boolean isHit(int record) {
+		return ((record >>> HIT_SHIFT) & 1) != 0;
+	}
+	
+	
+	/**
+	 * Returns which of the game's dice was used.
+	 * @param record The record
+	 * @return The index of the die among all of the game's dice
+	 */
+	static int slot(int record) {
+		return (record >>> SLOT_SHIFT) & SLOT_MASK;
+	}
+	
+	
+	/**
+	 * Returns which of the game's dice were put away because the turn ended.
+	 * @param record The record
+	 * @return A bit for each die that was put away
+	 */
+	static int putAway(int record) {
+		return record >>> PUT_AWAY_SHIFT;
+	}
+	
+	
+	/**
+	 * Returns the move as a Move object.
+	 * @param record The record
+	 * @return The move
+	 */
+	public static Move toMove(int record) {
+		return new Move(fromIndex(record), toIndex(record), die(record));
+	}
+}
@@ -0,0 +1,58 @@
+package tech.octopusdragon.proj.backgammon;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A full turn of play: the moves made with one roll of the dice and the board
+ * they lead to.
+ * @author Alex Gill
+ *
+ */
+public final class Play {
+	
+	private final List<Move> moves;	// The moves in the order they are made
+	private final Board result;		// The board after all moves are made
+	
+	
+	/**
+	 * Instantiates a play.
+	 * @param moves The moves in the order they are made
+	 * @param result The board after all moves are made
+	 */
+	public Play(List<Move> moves, Board result) {
+		this.moves = Collections.unmodifiableList(new ArrayList<Move>(moves));
+		this.result = result;
+	}
+	
+	
+	/**
+	 * Returns the moves in the order they are made.
+	 * @return The moves
+	 */
+	public List<Move> moves() {
+		return moves;
+	}
+	
+	
+	/**
+	 * Returns the board after all moves are made.
+	 * @return The resulting board
+	 */
+	public Board result() {
+		return result;
+	}
+	
+	
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		for (Move move: moves) {
+			if (sb.length() > 0)
+				sb.append(' ');
+			sb.append(move);
+		}
+		return sb.toString();
+	}
+}
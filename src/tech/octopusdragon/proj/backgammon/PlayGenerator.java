@@ -0,0 +1,196 @@
+package tech.octopusdragon.proj.backgammon;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finds every distinct legal play for one player and one set of dice. The
+ * search makes and unmakes moves on a private copy of the board, keeps only
+ * the plays that use as many dice as possible, applies the higher die rule,
+ * and collapses plays that lead to the same board.
+ * @author Alex Gill
+ *
+ */
+class PlayGenerator {
+	
+	// --- Instance variables ---
+	private Board pos;			// Scratch board the moves are made on
+	private Man man;			// Type of the moving player's men
+	private Man opponentMan;	// Type of the opponent's men
+	private int direction;		// Direction in which the player's men move
+	private int entry;			// Index hit men enter from
+	private int off;			// Index men are borne off to
+	private int homeStart;		// Index of the start of the home board
+	
+	private int[] dice;			// Values of the dice to play
+	private boolean[] used;		// Whether each die has been played
+	private boolean doubles;	// Whether all dice have the same value
+	private int[] fromIndices;	// From indices of the current sequence
+	private int[] toIndices;	// To indices of the current sequence
+	private int[] dieValues;	// Dice used by the current sequence
+	
+	private int maxLength;				// Most moves found in one sequence
+	private Map<Board, Play> plays;		// Longest plays by resulting board
+	
+	
+	/**
+	 * Prepares a search.
+	 * @param board The board to play on, which is not modified
+	 * @param player The player to move
+	 * @param dice The values of the dice to play
+	 */
+	PlayGenerator(Board board, Player player, int[] dice) {
+		pos = new Board(board);
+		man = player.menType();
+		opponentMan = man == Man.BLACK ? Man.WHITE: Man.BLACK;
+		direction = Backgammon.direction(player);
+		off = Backgammon.offboard(player);
+		entry = Board.entryIndex(man);
+		homeStart = Backgammon.homeStart(player);
+		
+		this.dice = dice;
+		used = new boolean[dice.length];
+		doubles = true;
+		for (int die: dice)
+			if (die != dice[0])
+				doubles = false;
+		fromIndices = new int[dice.length];
+		toIndices = new int[dice.length];
+		dieValues = new int[dice.length];
+		
+		plays = new LinkedHashMap<Board, Play>();
+	}
+	
+	
+	/**
+	 * Runs the search.
+	 * @return The distinct legal plays, or an empty list if no move is
+	 * possible
+	 */
+	List<Play> generate() {
+		search(0, Integer.MAX_VALUE);
+		
+		// If only one die can be played, the higher one must be played
+		if (maxLength == 1 && !doubles) {
+			int highest = 0;
+			for (Play play: plays.values())
+				highest = Math.max(highest, play.moves().get(0).die());
+			for (Iterator<Play> it = plays.values().iterator(); it.hasNext();)
+				if (it.next().moves().get(0).die() != highest)
+					it.remove();
+		}
+		
+		return new ArrayList<Play>(plays.values());
+	}
+	
+	
+	/**
+	 * Tries every unused die from every point and records the sequences that
+	 * cannot be continued.
+	 * @param depth The number of moves made so far
+	 * @param lastDistance The distance from home of the last man moved, used
+	 * to avoid trying the same moves in every order when rolling doubles
+	 */
+	private void search(int depth, int lastDistance) {
+		boolean moved = false;
+		
+		for (int d = 0; d < dice.length; d++) {
+			if (used[d] || isRepeatedDie(d))
+				continue;
+			
+			int first = pos.hitMen(man) > 0 ? entry: 1;
+			int last = pos.hitMen(man) > 0 ? entry: Board.NUM_POINTS;
+			for (int from = first; from <= last; from++) {
+				if (doubles && Board.distance(from, man) > lastDistance)
+					continue;
+				
+				int to = target(from, dice[d]);
+				if (to < 0)
+					continue;
+				
+				moved = true;
+				boolean hit = pos.makeMove(man, from, to);
+				fromIndices[depth] = from;
+				toIndices[depth] = to;
+				dieValues[depth] = dice[d];
+				used[d] = true;
+				search(depth + 1, Board.distance(from, man));
+				used[d] = false;
+				pos.unmakeMove(man, from, to, hit);
+			}
+		}
+		
+		if (!moved)
+			record(depth);
+	}
+	
+	
+	/**
+	 * Returns whether an unused die of the same value comes before the given
+	 * die, in which case trying it again would repeat the same moves.
+	 * @param d The index of the die
+	 * @return Whether the die repeats an earlier one
+	 */
+	private boolean isRepeatedDie(int d) {
+		for (int e = 0; e < d; e++)
+			if (!used[e] && dice[e] == dice[d])
+				return true;
+		return false;
+	}
+	
+	
+	/**
+	 * Records the current sequence if it is at least as long as the longest
+	 * one found so far.
+	 * @param depth The number of moves in the sequence
+	 */
+	private void record(int depth) {
+		if (depth == 0 || depth < maxLength)
+			return;
+		if (depth > maxLength) {
+			maxLength = depth;
+			plays.clear();
+		}
+		if (plays.containsKey(pos))
+			return;
+		
+		List<Move> moves = new ArrayList<Move>(depth);
+		for (int i = 0; i < depth; i++)
+			moves.add(new Move(fromIndices[i], toIndices[i], dieValues[i]));
+		Board result = new Board(pos);
+		plays.put(result, new Play(moves, result));
+	}
+	
+	
+	/**
+	 * Returns where a man on the given point would land using the given die.
+	 * @param from The index of the point
+	 * @param die The value of the die
+	 * @return The index of the landing point, or -1 if the move is not legal
+	 */
+	private int target(int from, int die) {
+		if (from != entry && pos.menNumber(from, man) == 0)
+			return -1;
+		
+		int to = from + direction * die;
+		
+		// Bearing off needs every man home, and a die higher than needed can
+		// only be used if no man is further from home
+		if (direction > 0 ? to >= off: to <= off) {
+			if (pos.hitMen(man) > 0 || pos.outsideHome(man) > 0)
+				return -1;
+			if (to != off)
+				for (int i = from - direction; i != homeStart - direction; i -= direction)
+					if (pos.menNumber(i, man) > 0)
+						return -1;
+			return off;
+		}
+		
+		if (pos.menNumber(to, opponentMan) > 1)
+			return -1;
+		return to;
+	}
+}
@@ -1,10 +1,8 @@
 package tech.octopusdragon.proj.backgammon;
 
-import java.util.Stack;
-
 /**
- * Represents a player in backgammon. Can be black or white and can have hit men
- * and beared off men.
+ * Represents a player in backgammon. Can be black or white. The player's hit
+ * men and borne off men are kept on the board of each game.
  * @author Alex Gill
  *
  */
@@ -14,7 +12,6 @@ public enum Player {
 	
 	
 	private Man menType;				// Type of men player has
-	private Stack<Man> hitMen;			// Men that have been hit
 	
 	
 	/**
@@ -22,7 +19,6 @@ public enum Player {
 	 */
 	private Player(Man type) {
 		menType = type;
-		hitMen = new Stack<Man>();
 	}
 	
 	
@@ -33,13 +29,4 @@ public enum Player {
 	public Man menType() {
 		return menType;
 	}
-	
-	
-	/**
-	 * Returns the player's men that have been hit.
-	 * @return The player's men that have been hit
-	 */
-	public Stack<Man> hitMen() {
-		return hitMen;
-	}
 }
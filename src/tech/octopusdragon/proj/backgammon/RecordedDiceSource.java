@@ -0,0 +1,63 @@
+package tech.octopusdragon.proj.backgammon;
+
+/**
+ * Replays dice values recorded earlier, such as the rolls of a saved game.
+ * Once the recording runs out, rolls come from a fallback source if there is
+ * one.
+ * @author Alex Gill
+ *
+ */
+public class RecordedDiceSource implements DiceSource {
+	
+	private final int[] values;			// The recorded values
+	private final DiceSource fallback;	// Source used after the recording
+	private int next;					// Index of the next value to replay
+	
+	
+	/**
+	 * Instantiates a dice source that replays only the given values.
+	 * @param values The values to replay, in order
+	 */
+	public RecordedDiceSource(int... values) {
+		this(values, null);
+	}
+	
+	
+	/**
+	 * Instantiates a dice source that replays the given values and then rolls
+	 * with another source.
+	 * @param values The values to replay, in order
+	 * @param fallback The source to roll with afterwards, or null for none
+	 */
+	public RecordedDiceSource(int[] values, DiceSource fallback) {
+		for (int value: values)
+			if (value < 1 || value > Die.NUM_SIDES)
+				throw new IllegalArgumentException("Not a die value: " + value);
+		this.values = values;
+		this.fallback = fallback;
+	}
+	
+	
+	/**
+	 * Returns how many recorded values have not been replayed yet.
+	 * @return The number of values left
+	 */
+	public int remaining() {
+		return values.length - next;
+	}
+	
+	
+	/**
+	 * Replays the next value.
+	 * @throws IllegalStateException If the recording has run out and there
+	 * is no fallback source
+	 */
+	@Override
+	public int roll() {
+		if (next < values.length)
+			return values[next++];
+		if (fallback == null)
+			throw new IllegalStateException("No recorded rolls left");
+		return fallback.roll();
+	}
+}
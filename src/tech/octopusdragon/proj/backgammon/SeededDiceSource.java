@@ -0,0 +1,51 @@
+package tech.octopusdragon.proj.backgammon;
+
+import java.util.SplittableRandom;
+
+/**
+ * Rolls dice from a seed, so that the same seed always gives the same rolls.
+ * Not safe to share between threads; give each game its own source.
+ * @author Alex Gill
+ *
+ */
+public class SeededDiceSource implements DiceSource {
+	
+	private final long seed;				// The seed
+	private final SplittableRandom random;	// Generates the rolls
+	
+	
+	/**
+	 * Instantiates a dice source.
+	 * @param seed The seed
+	 */
+	public SeededDiceSource(long seed) {
+		this.seed = seed;
+		random = new SplittableRandom(seed);
+	}
+	
+	
+	/**
+	 * Returns a new generator for the other random choices of a game, such
+	 * as those of its players. It is decided by the seed alone, but does not
+	 * repeat the rolls.
+	 * @return The generator
+	 */
+	public SplittableRandom choices() {
+		return new SplittableRandom(seed).split();
+	}
+	
+	
+	/**
+	 * Returns the seed the rolls are generated from.
+	 * @return The seed
+	 */
+	public long seed() {
+		return seed;
+	}
+	
+	
+	@Override
+	public int roll() {
+		return random.nextInt(Die.NUM_SIDES) + 1;
+	}
+}
@@ -0,0 +1,18 @@
+package tech.octopusdragon.proj.backgammon;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Rolls dice with the random number generator of the current thread. Rolling
+ * allocates nothing and never contends with other threads, so one instance can
+ * be shared by any number of games.
+ * @author Alex Gill
+ *
+ */
+public class ThreadLocalDiceSource implements DiceSource {
+	
+	@Override
+	public int roll() {
+		return ThreadLocalRandom.current().nextInt(Die.NUM_SIDES) + 1;
+	}
+}
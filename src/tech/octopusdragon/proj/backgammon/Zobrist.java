@@ -0,0 +1,78 @@
+package tech.octopusdragon.proj.backgammon;
+
+import java.util.SplittableRandom;
+
+/**
+ * Random keys used to hash positions. A position's key is the exclusive or of
+ * one key for the signed number of men on each point, one for the number of
+ * hit men of each type, and one more if white is to move, so it can be kept
+ * up to date by swapping a few keys whenever a man moves. The keys come from a
+ * fixed seed so that they are the same in every run.
+ * @author Alex Gill
+ *
+ */
+final class Zobrist {
+	
+	// --- Constants ---
+	private static final long SEED = 0x6261636B67616D6DL;	// Seed the keys are generated from
+	
+	private static final long[][] POINTS;	// Keys by point and signed number of men
+	private static final long[][] BAR;		// Keys by type and number of hit men
+	static final long WHITE_TO_MOVE;		// Key added when white is to move
+	
+	static {
+		SplittableRandom random = new SplittableRandom(SEED);
+		
+		// An empty point or bar has no key, so the empty board hashes to 0
+		POINTS = new long[Board.NUM_POINTS + 2][Board.NUM_MEN * 2 + 1];
+		for (long[] point: POINTS)
+			for (int i = 0; i < point.length; i++)
+				if (i != Board.NUM_MEN)
+					point[i] = random.nextLong();
+		BAR = new long[Man.values().length][Board.NUM_MEN + 1];
+		for (long[] bar: BAR)
+			for (int i = 1; i < bar.length; i++)
+				bar[i] = random.nextLong();
+		WHITE_TO_MOVE = random.nextLong();
+	}
+	
+	
+	/**
+	 * Not instantiable
+	 */
+	private Zobrist() {
+	}
+	
+	
+	/**
+	 * Returns the key for a number of men on a point.
+	 * @param index The index of the point
+	 * @param men The signed number of men, positive for black men and
+	 * negative for white men
+	 * @return The key
+	 */
+	static long point(int index, int men) {
+		return POINTS[index][men + Board.NUM_MEN];
+	}
+	
+	
+	/**
+	 * Returns the key for a number of hit men.
+	 * @param type The type of men
+	 * @param men The number of hit men
+	 * @return The key
+	 */
+	static long bar(Man type, int men) {
+		return BAR[type.ordinal()][men];
+	}
+	
+	
+	/**
+	 * Returns the key for the player to move.
+	 * @param player The player to move
+	 * @return The key
+	 */
+	static long side(Player player) {
+		return player == Player.WHITE ? WHITE_TO_MOVE: 0;
+	}
+}
@@ -0,0 +1,22 @@
+package tech.octopusdragon.proj.backgammon.ai;
+
+import tech.octopusdragon.proj.backgammon.Board;
+import tech.octopusdragon.proj.backgammon.Player;
+
+/**
+ * Estimates how good a position is. Evaluators may be called from many search
+ * threads at once, so implementations must be thread-safe.
+ * @author Alex Gill
+ *
+ */
+public interface Evaluator {
+	
+	/**
+	 * Estimates the equity of a position for the player who has just moved,
+	 * with the opponent about to roll.
+	 * @param board The board, which must not be changed
+	 * @param player The player who has just moved
+	 * @return The expected number of points the player wins, from -3 to 3
+	 */
+	double evaluate(Board board, Player player);
+}
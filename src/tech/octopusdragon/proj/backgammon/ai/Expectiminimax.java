@@ -0,0 +1,304 @@
+package tech.octopusdragon.proj.backgammon.ai;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+import tech.octopusdragon.proj.backgammon.Backgammon;
+import tech.octopusdragon.proj.backgammon.Board;
+import tech.octopusdragon.proj.backgammon.Die;
+import tech.octopusdragon.proj.backgammon.Play;
+import tech.octopusdragon.proj.backgammon.Player;
+import tech.octopusdragon.proj.backgammon.sim.Strategy;
+
+/**
+ * Looks ahead a number of rolls to find the best play. After each play the
+ * search averages over the opponent's 21 distinct rolls, with each
+ * non-double counted twice, and assumes the opponent makes the play that is
+ * best for them. The rolls of a chance node are searched in parallel on a
+ * fork/join pool. Before a play is searched deeper, the plays of that roll
+ * are ranked by the evaluator alone and only the best few are kept.
+ * Positions already searched can be shared between threads through a
+ * transposition table.
+ * @author Alex Gill
+ *
+ */
+public class Expectiminimax implements Strategy, Evaluator {
+	
+	// --- Constants ---
+	public static final int DEFAULT_FILTER = 8;	// Plays searched deeper by default
+	private static final int[][] ROLLS;			// The distinct rolls
+	private static final int[] WEIGHTS;			// Chance of each roll out of 36
+	private static final int OUTCOMES = Die.NUM_SIDES * Die.NUM_SIDES;	// Number of ordered rolls
+	
+	static {
+		int distinct = Die.NUM_SIDES * (Die.NUM_SIDES + 1) / 2;
+		ROLLS = new int[distinct][];
+		WEIGHTS = new int[distinct];
+		int i = 0;
+		for (int die1 = 1; die1 <= Die.NUM_SIDES; die1++) {
+			for (int die2 = die1; die2 <= Die.NUM_SIDES; die2++) {
+				ROLLS[i] = new int[] {die1, die2};
+				WEIGHTS[i] = die1 == die2 ? 1: 2;
+				i++;
+			}
+		}
+	}
+	
+	
+	// --- Instance variables ---
+	private Evaluator evaluator;		// Evaluates the positions at the end of the search
+	private int depth;					// Number of the opponent's rolls looked ahead
+	private int filter;					// Number of plays of a roll searched deeper
+	private TranspositionTable table;	// Values of positions already searched, or null
+	private ForkJoinPool pool;			// Pool the rolls are searched on
+	
+	
+	/**
+	 * Instantiates a search that uses every core.
+	 * @param evaluator The evaluator of the positions at the end of the search
+	 * @param depth The number of the opponent's rolls to look ahead; 0 simply
+	 * makes the play the evaluator likes best
+	 */
+	public Expectiminimax(Evaluator evaluator, int depth) {
+		this(evaluator, depth, ForkJoinPool.commonPool());
+	}
+	
+	
+	/**
+	 * Instantiates a search that runs on the given pool.
+	 * @param evaluator The evaluator of the positions at the end of the search
+	 * @param depth The number of the opponent's rolls to look ahead; 0 simply
+	 * makes the play the evaluator likes best
+	 * @param pool The pool to search on
+	 * @throws IllegalArgumentException If the depth is negative
+	 */
+	public Expectiminimax(Evaluator evaluator, int depth, ForkJoinPool pool) {
+		if (depth < 0)
+			throw new IllegalArgumentException("Depth " + depth);
+		this.evaluator = evaluator;
+		this.depth = depth;
+		this.pool = pool;
+		filter = DEFAULT_FILTER;
+	}
+	
+	
+	/**
+	 * Sets how many of the plays of each roll are searched deeper, the rest
+	 * being dropped after being ranked by the evaluator alone.
+	 * @param filter The number of plays to keep
+	 * @throws IllegalArgumentException If the number is not positive
+	 */
+	public void setFilter(int filter) {
+		if (filter <= 0)
+			throw new IllegalArgumentException("Filter " + filter);
+		this.filter = filter;
+	}
+	
+	
+	/**
+	 * Shares values of positions between searches through a table. The same
+	 * table must not be used with a different evaluator.
+	 * @param table The table, or null to use none
+	 */
+	public void setTable(TranspositionTable table) {
+		this.table = table;
+	}
+	
+	
+	@Override
+	public Play choosePlay(Backgammon game, List<Play> plays) {
+		double[] values = evaluate(plays, game.curPlayer());
+		int best = 0;
+		for (int i = 1; i < values.length; i++)
+			if (values[i] > values[best])
+				best = i;
+		return plays.get(best);
+	}
+	
+	
+	/**
+	 * Searches every play. Plays dropped by the move filter are given a value
+	 * of negative infinity.
+	 * @param plays The plays to search
+	 * @param player The player making the plays
+	 * @return The equity of each play for the player
+	 */
+	public double[] evaluate(List<Play> plays, Player player) {
+		return run(new RecursiveTask<double[]>() {
+			private static final long serialVersionUID = 1L;
+			
+			@Override
+			protected double[] compute() {
+				return searchPlays(plays, player, depth);
+			}
+		});
+	}
+	
+	
+	@Override
+	public double evaluate(Board board, Player player) {
+		return run(new RecursiveTask<Double>() {
+			private static final long serialVersionUID = 1L;
+			
+			@Override
+			protected Double compute() {
+				return value(board, player, depth);
+			}
+		});
+	}
+	
+	
+	/**
+	 * Runs a task on the pool, or straight away if already running on a pool.
+	 * @param task The task
+	 * @return The result of the task
+	 */
+	private <T> T run(RecursiveTask<T> task) {
+		if (ForkJoinTask.inForkJoinPool())
+			return task.invoke();
+		else
+			return pool.invoke(task);
+	}
+	
+	
+	/**
+	 * Searches a player's plays, first ranking them by the evaluator alone and
+	 * then searching only the best of them deeper. The others are given a
+	 * value of negative infinity.
+	 * @param plays The plays
+	 * @param player The player making the plays
+	 * @param depth The number of rolls to look ahead after each play
+	 * @return The equity of each play for the player
+	 */
+	private double[] searchPlays(List<Play> plays, Player player, int depth) {
+		double[] values = new double[plays.size()];
+		for (int i = 0; i < values.length; i++)
+			values[i] = value(plays.get(i).result(), player, 0);
+		if (depth == 0)
+			return values;
+		
+		Integer[] order = new Integer[values.length];
+		for (int i = 0; i < order.length; i++)
+			order[i] = i;
+		Arrays.sort(order, Comparator.comparingDouble((Integer i) -> values[i]).reversed());
+		for (int i = 0; i < order.length; i++)
+			values[order[i]] = i < filter ?
+					value(plays.get(order[i]).result(), player, depth): Double.NEGATIVE_INFINITY;
+		return values;
+	}
+	
+	
+	/**
+	 * Returns the equity of a position for the player who has just moved.
+	 * @param board The board
+	 * @param player The player who has just moved
+	 * @param depth The number of the opponent's rolls to look ahead
+	 * @return The equity for the player
+	 */
+	private double value(Board board, Player player, int depth) {
+		Player winner = Backgammon.winner(board);
+		if (winner != null)
+			return winner == player ? Backgammon.gameValue(board): -Backgammon.gameValue(board);
+		if (depth == 0)
+			return evaluator.evaluate(board, player);
+		
+		Player opponent = opponent(player);
+		long key = Backgammon.key(board, opponent);
+		if (table != null) {
+			double stored = table.probe(key, depth);
+			if (!Double.isNaN(stored))
+				return stored;
+		}
+		
+		// Search each of the opponent's rolls on its own thread
+		List<RollTask> tasks = new ArrayList<RollTask>(ROLLS.length);
+		for (int i = 0; i < ROLLS.length; i++)
+			tasks.add(new RollTask(board, player, depth, i));
+		ForkJoinTask.invokeAll(tasks);
+		double total = 0;
+		for (RollTask task: tasks)
+			total += WEIGHTS[task.roll] * task.join();
+		double value = total / OUTCOMES;
+		
+		if (table != null)
+			table.store(key, depth, value);
+		return value;
+	}
+	
+	
+	/**
+	 * Returns the equity of a position for the player who has just moved, once
+	 * the opponent has rolled the given roll and made their best play.
+	 * @param board The board
+	 * @param player The player who has just moved
+	 * @param depth The number of the opponent's rolls to look ahead,
+	 * including this one
+	 * @param roll The index of the opponent's roll
+	 * @return The equity for the player
+	 */
+	private double rollValue(Board board, Player player, int depth, int roll) {
+		Player opponent = opponent(player);
+		List<Play> plays = Backgammon.legalPlays(board, opponent, ROLLS[roll][0], ROLLS[roll][1]);
+		
+		// An opponent who cannot move leaves the board as it is
+		if (plays.isEmpty())
+			return -value(board, opponent, depth - 1);
+		
+		double best = Double.NEGATIVE_INFINITY;
+		for (double value: searchPlays(plays, opponent, depth - 1))
+			best = Math.max(best, value);
+		return -best;
+	}
+	
+	
+	/**
+	 * Returns the other player.
+	 * @param player The player
+	 * @return The player's opponent
+	 */
+	private static Player opponent(Player player) {
+		return player == Player.BLACK ? Player.WHITE: Player.BLACK;
+	}
+	
+	
+	/**
+	 * Searches one roll of a chance node.
+	 * @author Alex Gill
+	 *
+	 */
+	private class RollTask extends RecursiveTask<Double> {
+		
+		private static final long serialVersionUID = 1L;
+		
+		private Board board;	// The board before the roll
+		private Player player;	// The player who has just moved
+		private int depth;		// Number of rolls to look ahead, including this one
+		private int roll;		// Index of the roll
+		
+		
+		/**
+		 * Instantiates the task.
+		 * @param board The board before the roll
+		 * @param player The player who has just moved
+		 * @param depth The number of rolls to look ahead, including this one
+		 * @param roll The index of the roll
+		 */
+		RollTask(Board board, Player player, int depth, int roll) {
+			this.board = board;
+			this.player = player;
+			this.depth = depth;
+			this.roll = roll;
+		}
+		
+		
+		@Override
+		protected Double compute() {
+			return rollValue(board, player, depth, roll);
+		}
+	}
+}
@@ -0,0 +1,24 @@
+package tech.octopusdragon.proj.backgammon.ai;
+
+import tech.octopusdragon.proj.backgammon.Board;
+import tech.octopusdragon.proj.backgammon.Player;
+import tech.octopusdragon.proj.backgammon.sim.HeuristicStrategy;
+
+/**
+ * Turns the hand-made score of HeuristicStrategy into an equity between -1
+ * and 1. Cheap enough to use at the leaves of a search, and as the move
+ * filter of deeper ones.
+ * @author Alex Gill
+ *
+ */
+public class HeuristicEvaluator implements Evaluator {
+	
+	// --- Constants ---
+	private static final double SCALE = 40.0;	// Score worth about three quarters of a point
+	
+	
+	@Override
+	public double evaluate(Board board, Player player) {
+		return Math.tanh(HeuristicStrategy.score(board, player.menType()) / SCALE);
+	}
+}
@@ -0,0 +1,176 @@
+package tech.octopusdragon.proj.backgammon.ai;
+
+import tech.octopusdragon.proj.backgammon.Board;
+import tech.octopusdragon.proj.backgammon.Man;
+import tech.octopusdragon.proj.backgammon.Player;
+
+/**
+ * Evaluates positions with a TD-Gammon style neural network. The inputs are
+ * the standard encoding of 198 units: four for each point and player, giving
+ * the number of men there as three on-off units and a fourth for any men past
+ * the third, then the men on the bar, the men borne off and whose turn it is.
+ * The outputs are the chances of winning, winning a gammon, winning a
+ * backgammon, losing a gammon and losing a backgammon.
+ * <p>
+ * Each thread keeps the inputs and hidden sums of the last position it
+ * evaluated. A search evaluates many positions that differ in only a few
+ * points, so only the inputs that changed are fed through the first layer,
+ * and evaluating creates no objects.
+ * @author Alex Gill
+ *
+ */
+public class NeuralEvaluator implements Evaluator {
+	
+	// --- Constants ---
+	public static final int UNITS_PER_POINT = 4;	// Inputs for each point and player
+	public static final int INPUTS = 2 * (Board.NUM_POINTS * UNITS_PER_POINT + 2) + 2;	// Number of inputs
+	public static final int OUTPUTS = 5;			// Number of outputs
+	public static final int DEFAULT_HIDDEN = 80;	// Hidden units of a new network
+	public static final int WIN = 0;				// Output giving the chance of winning
+	public static final int WIN_GAMMON = 1;			// Output giving the chance of winning a gammon
+	public static final int WIN_BACKGAMMON = 2;		// Output giving the chance of winning a backgammon
+	public static final int LOSE_GAMMON = 3;		// Output giving the chance of losing a gammon
+	public static final int LOSE_BACKGAMMON = 4;	// Output giving the chance of losing a backgammon
+	private static final int REFRESH = 1024;		// Evaluations after which the hidden sums are recomputed
+	
+	
+	// --- Instance variables ---
+	private final NeuralNetwork network;		// The network
+	private final ThreadLocal<State> states;	// Last position evaluated by each thread
+	
+	
+	/**
+	 * Instantiates an evaluator.
+	 * @param network The network, which must have INPUTS inputs and OUTPUTS
+	 * outputs
+	 * @throws IllegalArgumentException If the network has the wrong shape
+	 */
+	public NeuralEvaluator(NeuralNetwork network) {
+		if (network.inputs() != INPUTS || network.outputs() != OUTPUTS)
+			throw new IllegalArgumentException("Network must have " + INPUTS + " inputs and " + OUTPUTS + " outputs");
+		this.network = network;
+		states = ThreadLocal.withInitial(State::new);
+	}
+	
+	
+	/**
+	 * Returns the network.
+	 * @return The network
+	 */
+	public NeuralNetwork network() {
+		return network;
+	}
+	
+	
+	@Override
+	public double evaluate(Board board, Player player) {
+		double[] output = states.get().output;
+		probabilities(board, player, output);
+		return output[WIN] * 2.0 - 1.0 +
+				output[WIN_GAMMON] - output[LOSE_GAMMON] +
+				output[WIN_BACKGAMMON] - output[LOSE_BACKGAMMON];
+	}
+	
+	
+	/**
+	 * Estimates the chances of each result for the player who has just moved.
+	 * @param board The board
+	 * @param player The player who has just moved
+	 * @param output Receives the chance of each result, indexed by WIN,
+	 * WIN_GAMMON, WIN_BACKGAMMON, LOSE_GAMMON and LOSE_BACKGAMMON
+	 */
+	public void probabilities(Board board, Player player, double[] output) {
+		State state = states.get();
+		encode(board, player, state.next);
+		
+		if (state.version != network.version() || state.evaluations++ >= REFRESH) {
+			network.hiddenSums(state.next, state.sums);
+			System.arraycopy(state.next, 0, state.input, 0, INPUTS);
+			state.version = network.version();
+			state.evaluations = 0;
+		}
+		else {
+			for (int i = 0; i < INPUTS; i++) {
+				if (state.next[i] != state.input[i]) {
+					network.addInput(state.sums, i, state.next[i] - state.input[i]);
+					state.input[i] = state.next[i];
+				}
+			}
+		}
+		
+		network.outputs(state.sums, state.activations, output);
+	}
+	
+	
+	/**
+	 * Moves the network's estimate for a position towards the given chances.
+	 * Must not be called while other threads evaluate.
+	 * @param board The board
+	 * @param player The player who has just moved
+	 * @param target The desired chance of each result
+	 * @param rate The learning rate
+	 */
+	public void learn(Board board, Player player, double[] target, double rate) {
+		float[] input = new float[INPUTS];
+		encode(board, player, input);
+		network.learn(input, target, rate);
+	}
+	
+	
+	/**
+	 * Encodes a position as the network's inputs, seen from the player who has
+	 * just moved. The player's units come first, then the opponent's, each
+	 * with the points in order of distance from being borne off.
+	 * @param board The board
+	 * @param player The player who has just moved
+	 * @param input Receives the inputs
+	 */
+	public static void encode(Board board, Player player, float[] input) {
+		Man man = player.menType();
+		Man opponent = man == Man.BLACK ? Man.WHITE: Man.BLACK;
+		int i = encode(board, man, input, 0);
+		i = encode(board, opponent, input, i);
+		
+		// The opponent is on roll
+		input[i++] = 0.0f;
+		input[i] = 1.0f;
+	}
+	
+	
+	/**
+	 * Encodes the men of one type.
+	 * @param board The board
+	 * @param type The type of men
+	 * @param input Receives the inputs
+	 * @param i The index of the first input to write
+	 * @return The index after the last input written
+	 */
+	private static int encode(Board board, Man type, float[] input, int i) {
+		for (int distance = 1; distance <= Board.NUM_POINTS; distance++) {
+			int men = board.menNumber(Board.point(distance, type), type);
+			input[i++] = men >= 1 ? 1.0f: 0.0f;
+			input[i++] = men >= 2 ? 1.0f: 0.0f;
+			input[i++] = men >= 3 ? 1.0f: 0.0f;
+			input[i++] = men > 3 ? (men - 3) / 2.0f: 0.0f;
+		}
+		input[i++] = board.hitMen(type) / 2.0f;
+		input[i++] = board.borneOff(type) / (float)Board.NUM_MEN;
+		return i;
+	}
+	
+	
+	/**
+	 * The inputs and hidden sums of the last position a thread evaluated.
+	 * @author Alex Gill
+	 *
+	 */
+	private class State {
+		private final float[] input = new float[INPUTS];		// Inputs the sums were computed from
+		private final float[] next = new float[INPUTS];			// Inputs of the position being evaluated
+		private final float[] sums = new float[network.hidden()];	// Sum of each hidden unit
+		private final float[] activations = new float[network.hidden()];	// Output of each hidden unit
+		private final double[] output = new double[OUTPUTS];	// Outputs of the last evaluation
+		private int version = -1;		// Version of the weights the sums were computed with
+		private int evaluations;		// Evaluations since the sums were last recomputed
+	}
+}
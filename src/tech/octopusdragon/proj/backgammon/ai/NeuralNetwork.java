@@ -0,0 +1,271 @@
+package tech.octopusdragon.proj.backgammon.ai;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+
+/**
+ * A neural network with one hidden layer and sigmoid units, as used by
+ * TD-Gammon. The weights from each input are stored together, so that a
+ * change to one input can be added to the hidden sums with a single pass over
+ * a contiguous row.
+ * <p>
+ * Evaluating is safe from any number of threads; learning changes the
+ * weights and must not be done while other threads evaluate.
+ * @author Alex Gill
+ *
+ */
+public class NeuralNetwork {
+	
+	// --- Constants ---
+	private static final int MAGIC = 0x42474E4E;		// First int of a weights file
+	private static final double INITIAL_WEIGHT = 0.1;	// Largest initial weight
+	private static final float SIGMOID_LIMIT = 16.0f;	// Inputs beyond which the logistic function is flat
+	private static final int SIGMOID_STEPS = 4096;		// Table entries on each side of zero
+	private static final float[] SIGMOID;				// The logistic function at evenly spaced inputs
+	
+	static {
+		SIGMOID = new float[2 * SIGMOID_STEPS + 2];
+		for (int i = 0; i < SIGMOID.length; i++)
+			SIGMOID[i] = (float)(1.0 / (1.0 + Math.exp(-(i - SIGMOID_STEPS) * SIGMOID_LIMIT / SIGMOID_STEPS)));
+	}
+	
+	
+	// --- Instance variables ---
+	private final int inputs;				// Number of inputs
+	private final int hidden;				// Number of hidden units
+	private final int outputs;				// Number of outputs
+	private final float[] inputWeights;		// Weights from each input to each hidden unit
+	private final float[] hiddenBiases;		// Bias of each hidden unit
+	private final float[] outputWeights;	// Weights from each hidden unit to each output
+	private final float[] outputBiases;		// Bias of each output
+	private volatile int version;			// Number of times the weights have changed
+	
+	
+	/**
+	 * Instantiates a network with small random weights.
+	 * @param inputs The number of inputs
+	 * @param hidden The number of hidden units
+	 * @param outputs The number of outputs
+	 * @param seed The seed of the weights
+	 */
+	public NeuralNetwork(int inputs, int hidden, int outputs, long seed) {
+		this(inputs, hidden, outputs);
+		SplittableRandom random = new SplittableRandom(seed);
+		for (float[] weights: weights())
+			for (int i = 0; i < weights.length; i++)
+				weights[i] = (float)random.nextDouble(-INITIAL_WEIGHT, INITIAL_WEIGHT);
+	}
+	
+	
+	/**
+	 * Instantiates a network with all weights zero.
+	 * @param inputs The number of inputs
+	 * @param hidden The number of hidden units
+	 * @param outputs The number of outputs
+	 */
+	private NeuralNetwork(int inputs, int hidden, int outputs) {
+		this.inputs = inputs;
+		this.hidden = hidden;
+		this.outputs = outputs;
+		inputWeights = new float[inputs * hidden];
+		hiddenBiases = new float[hidden];
+		outputWeights = new float[outputs * hidden];
+		outputBiases = new float[outputs];
+	}
+	
+	
+	/**
+	 * Reads a network saved with save.
+	 * @param file The file
+	 * @return The network
+	 * @throws IOException If the file cannot be read or does not hold a
+	 * network
+	 */
+	public static NeuralNetwork load(Path file) throws IOException {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+			if (in.readInt() != MAGIC)
+				throw new IOException(file + " does not hold a neural network");
+			NeuralNetwork network = new NeuralNetwork(in.readInt(), in.readInt(), in.readInt());
+			for (float[] weights: network.weights())
+				for (int i = 0; i < weights.length; i++)
+					weights[i] = in.readFloat();
+			return network;
+		}
+	}
+	
+	
+	/**
+	 * Writes the network to a file.
+	 * @param file The file
+	 * @throws IOException If the file cannot be written
+	 */
+	public void save(Path file) throws IOException {
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+			out.writeInt(MAGIC);
+			out.writeInt(inputs);
+			out.writeInt(hidden);
+			out.writeInt(outputs);
+			for (float[] weights: weights())
+				for (float weight: weights)
+					out.writeFloat(weight);
+		}
+	}
+	
+	
+	/**
+	 * Returns the number of inputs.
+	 * @return The number of inputs
+	 */
+	public int inputs() {
+		return inputs;
+	}
+	
+	
+	/**
+	 * Returns the number of hidden units.
+	 * @return The number of hidden units
+	 */
+	public int hidden() {
+		return hidden;
+	}
+	
+	
+	/**
+	 * Returns the number of outputs.
+	 * @return The number of outputs
+	 */
+	public int outputs() {
+		return outputs;
+	}
+	
+	
+	/**
+	 * Returns a number that changes whenever the weights change, so that
+	 * hidden sums kept from before can be recomputed.
+	 * @return The version of the weights
+	 */
+	public int version() {
+		return version;
+	}
+	
+	
+	/**
+	 * Computes the weighted sum of the inputs of each hidden unit.
+	 * @param input The inputs
+	 * @param sums Receives the sum of each hidden unit
+	 */
+	public void hiddenSums(float[] input, float[] sums) {
+		System.arraycopy(hiddenBiases, 0, sums, 0, hidden);
+		for (int i = 0; i < inputs; i++)
+			if (input[i] != 0.0f)
+				addInput(sums, i, input[i]);
+	}
+	
+	
+	/**
+	 * Updates the hidden sums after one input changes.
+	 * @param sums The sum of each hidden unit
+	 * @param input The index of the input
+	 * @param change How much the input went up by
+	 */
+	public void addInput(float[] sums, int input, float change) {
+		int row = input * hidden;
+		for (int h = 0; h < hidden; h++)
+			sums[h] += change * inputWeights[row + h];
+	}
+	
+	
+	/**
+	 * Computes the outputs from the hidden sums.
+	 * @param sums The sum of each hidden unit
+	 * @param activations Receives the output of each hidden unit
+	 * @param output Receives the outputs
+	 */
+	public void outputs(float[] sums, float[] activations, double[] output) {
+		for (int h = 0; h < hidden; h++)
+			activations[h] = sigmoid(sums[h]);
+		
+		for (int o = 0; o < outputs; o++) {
+			int row = o * hidden;
+			float sum = outputBiases[o];
+			for (int h = 0; h < hidden; h++)
+				sum += activations[h] * outputWeights[row + h];
+			output[o] = sigmoid(sum);
+		}
+	}
+	
+	
+	/**
+	 * Moves the outputs for the given inputs towards the given targets by one
+	 * step of gradient descent, as in temporal difference learning.
+	 * @param input The inputs
+	 * @param target The desired outputs
+	 * @param rate The learning rate
+	 */
+	public void learn(float[] input, double[] target, double rate) {
+		float[] sums = new float[hidden];
+		float[] activations = new float[hidden];
+		double[] output = new double[outputs];
+		hiddenSums(input, sums);
+		outputs(sums, activations, output);
+		
+		// Find how much each output and hidden unit should change
+		float[] outputErrors = new float[outputs];
+		for (int o = 0; o < outputs; o++)
+			outputErrors[o] = (float)(rate * (target[o] - output[o]) * output[o] * (1.0 - output[o]));
+		float[] hiddenErrors = new float[hidden];
+		for (int h = 0; h < hidden; h++) {
+			float error = 0.0f;
+			for (int o = 0; o < outputs; o++)
+				error += outputErrors[o] * outputWeights[o * hidden + h];
+			hiddenErrors[h] = error * activations[h] * (1.0f - activations[h]);
+		}
+		
+		for (int o = 0; o < outputs; o++) {
+			outputBiases[o] += outputErrors[o];
+			for (int h = 0; h < hidden; h++)
+				outputWeights[o * hidden + h] += outputErrors[o] * activations[h];
+		}
+		for (int h = 0; h < hidden; h++)
+			hiddenBiases[h] += hiddenErrors[h];
+		for (int i = 0; i < inputs; i++)
+			if (input[i] != 0.0f)
+				for (int h = 0; h < hidden; h++)
+					inputWeights[i * hidden + h] += hiddenErrors[h] * input[i];
+		version++;
+	}
+	
+	
+	/**
+	 * Returns every array of weights, in the order they are saved.
+	 * @return The weights
+	 */
+	private float[][] weights() {
+		return new float[][] {inputWeights, hiddenBiases, outputWeights, outputBiases};
+	}
+	
+	
+	/**
+	 * The logistic function, interpolated from a table, which is much faster
+	 * than calling Math.exp and accurate to about one part in a million.
+	 * @param x The input
+	 * @return A value between 0 and 1
+	 */
+	private static float sigmoid(float x) {
+		if (x <= -SIGMOID_LIMIT)
+			return SIGMOID[0];
+		if (x >= SIGMOID_LIMIT)
+			return SIGMOID[2 * SIGMOID_STEPS];
+		float position = (x + SIGMOID_LIMIT) * (SIGMOID_STEPS / SIGMOID_LIMIT);
+		int i = (int)position;
+		float fraction = position - i;
+		return SIGMOID[i] + fraction * (SIGMOID[i + 1] - SIGMOID[i]);
+	}
+	
+}
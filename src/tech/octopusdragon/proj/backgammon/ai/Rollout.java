@@ -0,0 +1,215 @@
+package tech.octopusdragon.proj.backgammon.ai;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+import tech.octopusdragon.proj.backgammon.Backgammon;
+import tech.octopusdragon.proj.backgammon.Board;
+import tech.octopusdragon.proj.backgammon.DiceSource;
+import tech.octopusdragon.proj.backgammon.Die;
+import tech.octopusdragon.proj.backgammon.Player;
+import tech.octopusdragon.proj.backgammon.RecordedDiceSource;
+import tech.octopusdragon.proj.backgammon.SeededDiceSource;
+import tech.octopusdragon.proj.backgammon.ThreadLocalDiceSource;
+import tech.octopusdragon.proj.backgammon.sim.Simulator;
+import tech.octopusdragon.proj.backgammon.sim.Strategy;
+
+/**
+ * Estimates the equity of a position by playing it out many times with a
+ * strategy. The games are spread over all cores with a fork/join pool.
+ * Instead of rolling the first two rolls of each game at random, they are
+ * rotated through every combination in turn, so each batch of games sees
+ * every pair of opening rolls exactly once, which removes most of the luck of
+ * those rolls from the result. The rollout stops early once the standard
+ * error of the equity is small enough.
+ * @author Alex Gill
+ *
+ */
+public class Rollout implements Evaluator {
+	
+	// --- Constants ---
+	private static final int ROLLS = Die.NUM_SIDES * Die.NUM_SIDES;	// Number of ordered rolls
+	public static final int BATCH = ROLLS * ROLLS;		// Games in a full rotation of the first two rolls
+	public static final int DEFAULT_TRIALS = BATCH * 4;	// Most games played by default
+	private static final int TRIALS_PER_TASK = 16;		// Games a task plays without splitting
+	
+	
+	// --- Instance variables ---
+	private Simulator simulator;	// Plays the games out
+	private ForkJoinPool pool;		// Pool the games are played on
+	private int maxTrials;			// Most games to play
+	private double targetError;		// Standard error of the equity at which to stop
+	private DiceSource dice;		// Dice shared by games that are not seeded
+	private boolean seeded;			// Whether each game rolls from its own seed
+	private long seed;				// Seed of the first game if seeded
+	
+	
+	/**
+	 * Instantiates a rollout that uses every core.
+	 * @param strategy The strategy both players use
+	 */
+	public Rollout(Strategy strategy) {
+		this(strategy, ForkJoinPool.commonPool());
+	}
+	
+	
+	/**
+	 * Instantiates a rollout that plays on the given pool.
+	 * @param strategy The strategy both players use
+	 * @param pool The pool to play the games on
+	 */
+	public Rollout(Strategy strategy, ForkJoinPool pool) {
+		simulator = new Simulator(strategy, strategy, pool);
+		this.pool = pool;
+		maxTrials = DEFAULT_TRIALS;
+		dice = new ThreadLocalDiceSource();
+	}
+	
+	
+	/**
+	 * Sets the most games to play.
+	 * @param maxTrials The number of games
+	 * @throws IllegalArgumentException If the number is not positive
+	 */
+	public void setTrials(int maxTrials) {
+		if (maxTrials <= 0)
+			throw new IllegalArgumentException("Trials " + maxTrials);
+		this.maxTrials = maxTrials;
+	}
+	
+	
+	/**
+	 * Makes the rollout stop as soon as a batch of games brings the standard
+	 * error of the equity down to the given value.
+	 * @param targetError The standard error, or 0 to always play every game
+	 */
+	public void setTargetError(double targetError) {
+		this.targetError = targetError;
+	}
+	
+	
+	/**
+	 * Makes the rollout reproducible: game number i rolls its dice after the
+	 * rotated ones, and makes the random choices of its strategy, from the
+	 * seed plus i, no matter which thread plays it.
+	 * @param seed The seed of the first game
+	 */
+	public void setSeed(long seed) {
+		this.seed = seed;
+		seeded = true;
+	}
+	
+	
+	/**
+	 * Plays a position out.
+	 * @param board The board, which is not changed
+	 * @param player The player who has just moved, with the opponent about
+	 * to roll
+	 * @return The totals of the games, seen from the player
+	 */
+	public RolloutResult rollout(Board board, Player player) {
+		long start = System.nanoTime();
+		RolloutResult result = new RolloutResult();
+		
+		// Play a batch at a time, so that every batch is a full rotation of
+		// the first rolls and the error can be checked in between
+		while (result.trials() < maxTrials) {
+			int trials = Math.min(BATCH, maxTrials - result.trials());
+			RolloutTask task = new RolloutTask(board, player, result.trials(), trials);
+			result.add(ForkJoinTask.inForkJoinPool() ? task.invoke(): pool.invoke(task));
+			if (result.equityError() <= targetError)
+				break;
+		}
+		
+		result.setNanos(System.nanoTime() - start);
+		return result;
+	}
+	
+	
+	@Override
+	public double evaluate(Board board, Player player) {
+		return rollout(board, player).equity();
+	}
+	
+	
+	/**
+	 * Plays one game out.
+	 * @param result The totals to add the finished game to
+	 * @param board The board
+	 * @param player The player who has just moved
+	 * @param trial The number of the game, which decides its first two rolls
+	 */
+	private void playTrial(RolloutResult result, Board board, Player player, int trial) {
+		int first = trial % ROLLS;
+		int second = trial / ROLLS % ROLLS;
+		DiceSource fallback = dice;
+		SplittableRandom random;
+		if (seeded) {
+			SeededDiceSource seededSource = new SeededDiceSource(seed + trial);
+			fallback = seededSource;
+			random = seededSource.choices();
+		}
+		else
+			random = new SplittableRandom();
+		DiceSource source = new RecordedDiceSource(
+				new int[] {second / Die.NUM_SIDES + 1, second % Die.NUM_SIDES + 1}, fallback);
+		
+		Player opponent = player == Player.BLACK ? Player.WHITE: Player.BLACK;
+		Backgammon game = new Backgammon(board, opponent,
+				first / Die.NUM_SIDES + 1, first % Die.NUM_SIDES + 1, source);
+		simulator.playOut(game, random);
+		result.add(game.winner() == player, game.gameValue());
+	}
+	
+	
+	/**
+	 * Plays a number of games, splitting them between tasks until each task
+	 * has only a few games left to play.
+	 * @author Alex Gill
+	 *
+	 */
+	private class RolloutTask extends RecursiveTask<RolloutResult> {
+		
+		private static final long serialVersionUID = 1L;
+		
+		private Board board;	// The board
+		private Player player;	// The player who has just moved
+		private int first;		// Number of the first game to play
+		private int trials;		// Number of games to play
+		
+		
+		/**
+		 * Instantiates the task.
+		 * @param board The board
+		 * @param player The player who has just moved
+		 * @param first The number of the first game to play
+		 * @param trials The number of games to play
+		 */
+		RolloutTask(Board board, Player player, int first, int trials) {
+			this.board = board;
+			this.player = player;
+			this.first = first;
+			this.trials = trials;
+		}
+		
+		
+		@Override
+		protected RolloutResult compute() {
+			if (trials > TRIALS_PER_TASK) {
+				RolloutTask left = new RolloutTask(board, player, first, trials / 2);
+				RolloutTask right = new RolloutTask(board, player, first + trials / 2, trials - trials / 2);
+				left.fork();
+				RolloutResult result = right.compute();
+				result.add(left.join());
+				return result;
+			}
+			
+			RolloutResult result = new RolloutResult();
+			for (int i = first; i < first + trials; i++)
+				playTrial(result, board, player, i);
+			return result;
+		}
+	}
+}
@@ -0,0 +1,184 @@
+package tech.octopusdragon.proj.backgammon.ai;
+
+/**
+ * The totals of a rollout, seen from the player who had just moved when the
+ * rollout started. Results of parts of a rollout can be added together.
+ * @author Alex Gill
+ *
+ */
+public class RolloutResult {
+	
+	// --- Instance variables ---
+	private int trials;				// Number of games played out
+	private long points;			// Points won, less points lost
+	private long squaredPoints;		// Sum of the squared points of each game
+	private int wins;				// Games won
+	private int winGammons;			// Games won by a gammon, backgammons included
+	private int winBackgammons;		// Games won by a backgammon
+	private int loseGammons;		// Games lost by a gammon, backgammons included
+	private int loseBackgammons;	// Games lost by a backgammon
+	private long nanos;				// Wall-clock time taken
+	
+	
+	/**
+	 * Adds a finished game to the totals.
+	 * @param won Whether the player won
+	 * @param value The value of the game: 1, 2 for a gammon or 3 for a
+	 * backgammon
+	 */
+	public void add(boolean won, int value) {
+		trials++;
+		points += won ? value: -value;
+		squaredPoints += value * value;
+		if (won) {
+			wins++;
+			if (value >= 2)
+				winGammons++;
+			if (value >= 3)
+				winBackgammons++;
+		}
+		else {
+			if (value >= 2)
+				loseGammons++;
+			if (value >= 3)
+				loseBackgammons++;
+		}
+	}
+	
+	
+	/**
+	 * Adds the totals of another result to this one.
+	 * @param other The other result
+	 */
+	public void add(RolloutResult other) {
+		trials += other.trials;
+		points += other.points;
+		squaredPoints += other.squaredPoints;
+		wins += other.wins;
+		winGammons += other.winGammons;
+		winBackgammons += other.winBackgammons;
+		loseGammons += other.loseGammons;
+		loseBackgammons += other.loseBackgammons;
+	}
+	
+	
+	/**
+	 * Records the wall-clock time the rollout took.
+	 * @param nanos The time in nanoseconds
+	 */
+	public void setNanos(long nanos) {
+		this.nanos = nanos;
+	}
+	
+	
+	/**
+	 * Returns the number of games played out.
+	 * @return The number of trials
+	 */
+	public int trials() {
+		return trials;
+	}
+	
+	
+	/**
+	 * Returns the average number of points won per game.
+	 * @return The equity
+	 */
+	public double equity() {
+		return trials == 0 ? 0.0: (double)points / trials;
+	}
+	
+	
+	/**
+	 * Returns the standard error of the equity.
+	 * @return The standard error
+	 */
+	public double equityError() {
+		if (trials < 2)
+			return Double.POSITIVE_INFINITY;
+		double mean = equity();
+		double variance = ((double)squaredPoints / trials - mean * mean) * trials / (trials - 1);
+		return Math.sqrt(Math.max(0.0, variance) / trials);
+	}
+	
+	
+	/**
+	 * Returns the fraction of games won.
+	 * @return The probability of winning
+	 */
+	public double winRate() {
+		return rate(wins);
+	}
+	
+	
+	/**
+	 * Returns the fraction of games won by a gammon or backgammon.
+	 * @return The probability of winning a gammon
+	 */
+	public double winGammonRate() {
+		return rate(winGammons);
+	}
+	
+	
+	/**
+	 * Returns the fraction of games won by a backgammon.
+	 * @return The probability of winning a backgammon
+	 */
+	public double winBackgammonRate() {
+		return rate(winBackgammons);
+	}
+	
+	
+	/**
+	 * Returns the fraction of games lost by a gammon or backgammon.
+	 * @return The probability of losing a gammon
+	 */
+	public double loseGammonRate() {
+		return rate(loseGammons);
+	}
+	
+	
+	/**
+	 * Returns the fraction of games lost by a backgammon.
+	 * @return The probability of losing a backgammon
+	 */
+	public double loseBackgammonRate() {
+		return rate(loseBackgammons);
+	}
+	
+	
+	/**
+	 * Returns the standard error of one of the rates.
+	 * @param rate The rate
+	 * @return The standard error
+	 */
+	public double rateError(double rate) {
+		return trials == 0 ? Double.POSITIVE_INFINITY: Math.sqrt(rate * (1.0 - rate) / trials);
+	}
+	
+	
+	/**
+	 * Returns a count as a fraction of the trials.
+	 * @param count The count
+	 * @return The fraction
+	 */
+	private double rate(int count) {
+		return trials == 0 ? 0.0: (double)count / trials;
+	}
+	
+	
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append(String.format("Trials:      %d in %.2f s%n", trials, nanos / 1e9));
+		sb.append(String.format("Equity:      %+.4f (+/- %.4f)%n", equity(), equityError()));
+		sb.append(String.format("Win:         %.2f%% (+/- %.2f%%)%n", winRate() * 100, rateError(winRate()) * 100));
+		sb.append(String.format("Win gammon:  %.2f%% (+/- %.2f%%), backgammon %.2f%% (+/- %.2f%%)%n",
+				winGammonRate() * 100, rateError(winGammonRate()) * 100,
+				winBackgammonRate() * 100, rateError(winBackgammonRate()) * 100));
+		sb.append(String.format("Lose gammon: %.2f%% (+/- %.2f%%), backgammon %.2f%% (+/- %.2f%%)%n",
+				loseGammonRate() * 100, rateError(loseGammonRate()) * 100,
+				loseBackgammonRate() * 100, rateError(loseBackgammonRate()) * 100));
+		return sb.toString();
+	}
+}
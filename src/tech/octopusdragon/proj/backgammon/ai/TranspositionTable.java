@@ -0,0 +1,121 @@
+package tech.octopusdragon.proj.backgammon.ai;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed-size table of position values, keyed by Zobrist key, that any
+ * number of search threads can share without locking. Each entry is two
+ * longs: the data, and the key exclusive-ored with the data. A thread that
+ * reads an entry while another thread is writing it sees a key that does not
+ * match and treats it as a miss, so torn entries are never used.
+ * @author Alex Gill
+ *
+ */
+public class TranspositionTable {
+	
+	// --- Constants ---
+	private static final int DEPTH_SHIFT = 32;	// Position of the depth in the data
+	private static final long VALUE_MASK = 0xFFFFFFFFL;	// Bits of the value in the data
+	
+	
+	// --- Instance variables ---
+	private final AtomicLongArray entries;	// Checked key and data of each entry
+	private final int mask;					// Mask giving the entry of a key
+	
+	
+	/**
+	 * Instantiates an empty table.
+	 * @param capacity The least number of entries, which is rounded up to a
+	 * power of two
+	 * @throws IllegalArgumentException If the capacity is not positive or too
+	 * large
+	 */
+	public TranspositionTable(int capacity) {
+		if (capacity <= 0 || capacity > 1 << 29)
+			throw new IllegalArgumentException("Capacity " + capacity);
+		int size = Integer.highestOneBit(capacity);
+		if (size < capacity)
+			size <<= 1;
+		entries = new AtomicLongArray(size * 2);
+		mask = size - 1;
+	}
+	
+	
+	/**
+	 * Returns the number of entries.
+	 * @return The number of entries
+	 */
+	public int capacity() {
+		return mask + 1;
+	}
+	
+	
+	/**
+	 * Looks up the value of a position.
+	 * @param key The Zobrist key of the position
+	 * @param depth The least depth the value must have been searched to
+	 * @return The value, or NaN if the table holds no value for the position
+	 * searched deep enough
+	 */
+	public double probe(long key, int depth) {
+		int i = index(key);
+		long data = entries.get(i + 1);
+		if (data == 0 || (entries.get(i) ^ data) != key)
+			return Double.NaN;
+		if (depth(data) < depth)
+			return Double.NaN;
+		return Float.intBitsToFloat((int)(data & VALUE_MASK));
+	}
+	
+	
+	/**
+	 * Stores the value of a position, replacing whatever entry the position
+	 * shares unless it holds the same position searched deeper.
+	 * @param key The Zobrist key of the position
+	 * @param depth The depth the position was searched to, which must not be
+	 * negative
+	 * @param value The value, which is stored as a float
+	 */
+	public void store(long key, int depth, double value) {
+		int i = index(key);
+		long old = entries.get(i + 1);
+		if (old != 0 && (entries.get(i) ^ old) == key && depth(old) > depth)
+			return;
+		
+		// The depth is stored one higher so that no entry has zero data
+		long data = (long)(depth + 1) << DEPTH_SHIFT |
+				Float.floatToRawIntBits((float)value) & VALUE_MASK;
+		entries.set(i + 1, data);
+		entries.set(i, key ^ data);
+	}
+	
+	
+	/**
+	 * Removes every entry. Should not be called while other threads use the
+	 * table.
+	 */
+	public void clear() {
+		for (int i = 0; i < entries.length(); i++)
+			entries.set(i, 0);
+	}
+	
+	
+	/**
+	 * Returns the position of the entry a key belongs in.
+	 * @param key The key
+	 * @return The index of the entry's first long
+	 */
+	private int index(long key) {
+		return ((int)(key ^ (key >>> 32)) & mask) << 1;
+	}
+	
+	
+	/**
+	 * Returns the depth stored in an entry's data.
+	 * @param data The data
+	 * @return The depth
+	 */
+	private static int depth(long data) {
+		return (int)(data >>> DEPTH_SHIFT) - 1;
+	}
+}
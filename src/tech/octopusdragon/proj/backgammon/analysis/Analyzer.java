@@ -0,0 +1,526 @@
+package tech.octopusdragon.proj.backgammon.analysis;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+import tech.octopusdragon.proj.backgammon.Backgammon;
+import tech.octopusdragon.proj.backgammon.Board;
+import tech.octopusdragon.proj.backgammon.GameListener;
+import tech.octopusdragon.proj.backgammon.Man;
+import tech.octopusdragon.proj.backgammon.Move;
+import tech.octopusdragon.proj.backgammon.Play;
+import tech.octopusdragon.proj.backgammon.Player;
+import tech.octopusdragon.proj.backgammon.ai.Evaluator;
+import tech.octopusdragon.proj.backgammon.ai.Expectiminimax;
+import tech.octopusdragon.proj.backgammon.ai.HeuristicEvaluator;
+import tech.octopusdragon.proj.backgammon.ai.NeuralEvaluator;
+import tech.octopusdragon.proj.backgammon.ai.NeuralNetwork;
+import tech.octopusdragon.proj.backgammon.io.GameFormat;
+import tech.octopusdragon.proj.backgammon.io.GameImporter;
+import tech.octopusdragon.proj.backgammon.io.GameLogReader;
+import tech.octopusdragon.proj.backgammon.io.GameRecord;
+
+/**
+ * Analyses every turn of a collection of recorded games, comparing the play
+ * made with the best play a search finds. The work is a pipeline of four
+ * stages joined by bounded queues:
+ * <ol>
+ * <li>one thread reads the files and parses the games,</li>
+ * <li>one thread replays each game with the rules engine and notes the
+ * position and roll of every turn,</li>
+ * <li>a thread for each core evaluates every legal play of every turn,</li>
+ * <li>and the calling thread writes the results.</li>
+ * </ol>
+ * The queues hold only a few games each, so a collection of any size is
+ * analysed in constant memory, and a slow stage holds back the ones before
+ * it rather than letting work pile up.
+ * <p>
+ * Two files are written: moves.csv, with the equity lost by each play, and
+ * games.csv, with each player's error rate in each game.
+ * @author Alex Gill
+ *
+ */
+public class Analyzer {
+	
+	// --- Constants ---
+	public static final double ERROR = 0.04;	// Least loss that is an error
+	public static final double BLUNDER = 0.16;	// Least loss that is a blunder
+	private static final int QUEUE_SIZE = 64;	// Games waiting between two stages
+	private static final ParsedGame END_OF_GAMES = new ParsedGame(null, 0, null);	// Ends the parsed games
+	private static final GameAnalysis END_OF_ANALYSES = new GameAnalysis(null, 0);	// Ends the analyses
+	
+	
+	// --- Instance variables ---
+	private Expectiminimax search;	// Search the plays are evaluated with
+	private ForkJoinPool pool;		// Pool the games are parsed and searched on
+	private int threads;			// Number of threads evaluating plays
+	private AtomicLong skipped;		// Number of games that could not be analysed
+	
+	
+	/**
+	 * Instantiates an analyzer that uses every core.
+	 * @param evaluator The evaluator of the positions at the end of the search
+	 * @param depth The number of the opponent's rolls to look ahead
+	 */
+	public Analyzer(Evaluator evaluator, int depth) {
+		this(evaluator, depth, ForkJoinPool.commonPool());
+	}
+	
+	
+	/**
+	 * Instantiates an analyzer that parses and searches on the given pool,
+	 * with as many threads evaluating plays as the pool has.
+	 * @param evaluator The evaluator of the positions at the end of the search
+	 * @param depth The number of the opponent's rolls to look ahead
+	 * @param pool The pool
+	 */
+	public Analyzer(Evaluator evaluator, int depth, ForkJoinPool pool) {
+		search = new Expectiminimax(evaluator, depth, pool);
+		this.pool = pool;
+		threads = pool.getParallelism();
+		skipped = new AtomicLong();
+	}
+	
+	
+	/**
+	 * Returns how many games could not be analysed because they were not
+	 * valid. The reason for each is printed to the standard error stream.
+	 * @return The number of games skipped
+	 */
+	public long skipped() {
+		return skipped.get();
+	}
+	
+	
+	/**
+	 * Analyses every game in a file or in the files of a directory that have
+	 * the extension of a game file format or of a game log.
+	 * @param input The file or directory
+	 * @param output The directory to write the results to
+	 * @return The number of games analysed
+	 * @throws IOException If a file cannot be read or written
+	 * @throws InterruptedException If the thread is interrupted while waiting
+	 */
+	public long run(Path input, Path output) throws IOException, InterruptedException {
+		BlockingQueue<ParsedGame> parsed = new ArrayBlockingQueue<ParsedGame>(QUEUE_SIZE);
+		BlockingQueue<GameAnalysis> replayed = new ArrayBlockingQueue<GameAnalysis>(QUEUE_SIZE);
+		BlockingQueue<GameAnalysis> evaluated = new ArrayBlockingQueue<GameAnalysis>(QUEUE_SIZE);
+		AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		List<Path> files = files(input);
+		
+		ExecutorService stages = Executors.newFixedThreadPool(threads + 2);
+		try {
+			stage(stages, failure, () -> {
+				for (Path file: files)
+					parse(file, parsed);
+				parsed.put(END_OF_GAMES);
+			});
+			stage(stages, failure, () -> {
+				for (ParsedGame game = parsed.take(); game != END_OF_GAMES; game = parsed.take())
+					replay(game, replayed);
+				for (int i = 0; i < threads; i++)
+					replayed.put(END_OF_ANALYSES);
+			});
+			for (int i = 0; i < threads; i++) {
+				stage(stages, failure, () -> {
+					for (GameAnalysis game = replayed.take(); game != END_OF_ANALYSES; game = replayed.take()) {
+						for (Decision decision: game.decisions())
+							evaluate(decision);
+						evaluated.put(game);
+					}
+					evaluated.put(END_OF_ANALYSES);
+				});
+			}
+			
+			return write(evaluated, output, failure);
+		}
+		finally {
+			stages.shutdownNow();
+		}
+	}
+	
+	
+	/**
+	 * Starts a stage of the pipeline. If it fails, the failure is kept for
+	 * the last stage to report.
+	 * @param stages The threads the stages run on
+	 * @param failure Where to keep the first failure
+	 * @param stage The stage
+	 */
+	private static void stage(ExecutorService stages, AtomicReference<Throwable> failure, Stage stage) {
+		stages.execute(() -> {
+			try {
+				stage.run();
+			}
+			catch (InterruptedException | CancellationException e) {
+				// The pipeline is being shut down
+			}
+			catch (Throwable e) {
+				failure.compareAndSet(null, e);
+			}
+		});
+	}
+	
+	
+	/**
+	 * Returns the files to analyse.
+	 * @param input A file or a directory
+	 * @return The file, or the game files in the directory by name
+	 * @throws IOException If the directory cannot be read
+	 */
+	private static List<Path> files(Path input) throws IOException {
+		if (!Files.isDirectory(input))
+			return Collections.singletonList(input);
+		
+		List<Path> files = new ArrayList<Path>();
+		try (Stream<Path> list = Files.list(input)) {
+			list.filter(file -> isGameFile(file)).sorted().forEach(files::add);
+		}
+		return files;
+	}
+	
+	
+	/**
+	 * Returns whether a file has the extension of a game file format or of
+	 * a game log.
+	 * @param file The file
+	 * @return Whether the games in the file can be read
+	 */
+	private static boolean isGameFile(Path file) {
+		String name = file.getFileName().toString();
+		if (name.endsWith(".log"))
+			return true;
+		try {
+			GameFormat.forName(name);
+			return true;
+		}
+		catch (IllegalArgumentException e) {
+			return false;
+		}
+	}
+	
+	
+	/**
+	 * Reads the games of a file, the first stage.
+	 * @param file The file
+	 * @param parsed Given each game
+	 * @throws IOException If the file cannot be read
+	 * @throws InterruptedException If interrupted while waiting for room
+	 */
+	private void parse(Path file, BlockingQueue<ParsedGame> parsed) throws IOException, InterruptedException {
+		String source = file.getFileName().toString();
+		if (source.endsWith(".log")) {
+			GameLogReader log = new GameLogReader(file);
+			for (int i = 0; i < log.games(); i++)
+				parsed.put(new ParsedGame(source, i + 1, log.record(i)));
+			return;
+		}
+		
+		// Invalid games are counted too, so that games keep their numbers
+		long[] number = {0};
+		GameImporter importer = new GameImporter(GameFormat.forName(source), pool);
+		importer.setErrorHandler(e -> {
+			number[0]++;
+			skip(source, e);
+		});
+		importer.read(file, game -> {
+			try {
+				parsed.put(new ParsedGame(source, ++number[0], game));
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new CancellationException();
+			}
+		});
+	}
+	
+	
+	/**
+	 * Replays a game and notes every turn, the second stage.
+	 * @param game The game
+	 * @param replayed Given the turns of the game
+	 * @throws InterruptedException If interrupted while waiting for room
+	 */
+	private void replay(ParsedGame game, BlockingQueue<GameAnalysis> replayed) throws InterruptedException {
+		GameAnalysis analysis = new GameAnalysis(game.source, game.number);
+		TurnNotes notes = new TurnNotes(analysis);
+		try {
+			Backgammon replay = game.record.replay(game.record.size(), notes);
+			notes.finish(replay.board());
+		}
+		catch (IllegalStateException e) {
+			skip(game.source, new IllegalArgumentException("Game " + game.number + ": " + e.getMessage(), e));
+			return;
+		}
+		replayed.put(analysis);
+	}
+	
+	
+	/**
+	 * Finds the equity of every legal play of a turn, the third stage.
+	 * @param decision The turn
+	 */
+	private void evaluate(Decision decision) {
+		List<Play> plays = Backgammon.legalPlays(decision.before(), decision.player(),
+				decision.die1(), decision.die2());
+		Man man = decision.player().menType();
+		if (plays.size() < 2) {
+			String only = plays.isEmpty() ? "": notation(plays.get(0), man);
+			decision.setResult(plays.size(), only, 0.0, only, 0.0);
+			return;
+		}
+		
+		double[] equities = search.evaluate(plays, decision.player());
+		int best = 0;
+		int played = -1;
+		for (int i = 0; i < plays.size(); i++) {
+			if (equities[i] > equities[best])
+				best = i;
+			if (plays.get(i).result().equals(decision.after()))
+				played = i;
+		}
+		
+		// A turn cut short when a record ends matches no play and is left out
+		if (played < 0) {
+			decision.setResult(0, "", 0.0, notation(plays.get(best), man), equities[best]);
+			return;
+		}
+		
+		// A play dropped by the search's move filter is searched on its own
+		double playedEquity = equities[played];
+		if (playedEquity == Double.NEGATIVE_INFINITY)
+			playedEquity = search.evaluate(decision.after(), decision.player());
+		decision.setResult(plays.size(), notation(plays.get(played), man), playedEquity,
+				notation(plays.get(best), man), equities[best]);
+	}
+	
+	
+	/**
+	 * Writes the analysed games as they come, the last stage.
+	 * @param evaluated The analysed games
+	 * @param output The directory to write to
+	 * @param failure The first failure of another stage, if any
+	 * @return The number of games written
+	 * @throws IOException If the files cannot be written
+	 * @throws InterruptedException If interrupted while waiting for a game
+	 */
+	private long write(BlockingQueue<GameAnalysis> evaluated, Path output, AtomicReference<Throwable> failure)
+			throws IOException, InterruptedException {
+		Files.createDirectories(output);
+		long games = 0;
+		try (Writer moves = Files.newBufferedWriter(output.resolve("moves.csv"), StandardCharsets.UTF_8);
+				Writer totals = Files.newBufferedWriter(output.resolve("games.csv"), StandardCharsets.UTF_8)) {
+			moves.write("source,game,turn,player,dice,plays,played,best,played_equity,best_equity,loss\n");
+			totals.write("source,game,player,choices,loss,error_rate,errors,blunders\n");
+			
+			int running = threads;
+			while (running > 0) {
+				GameAnalysis game = evaluated.poll(100, TimeUnit.MILLISECONDS);
+				if (failure.get() != null)
+					throw new IllegalStateException("Analysis failed", failure.get());
+				if (game == null)
+					continue;
+				if (game == END_OF_ANALYSES) {
+					running--;
+					continue;
+				}
+				
+				for (Decision decision: game.decisions())
+					moves.write(String.format(Locale.ROOT, "%s,%d,%d,%s,%d%d,%d,%s,%s,%.4f,%.4f,%.4f%n",
+							game.source(), game.number(), decision.turn(), decision.player(),
+							decision.die1(), decision.die2(), decision.plays(), decision.played(),
+							decision.best(), decision.playedEquity(), decision.bestEquity(), decision.loss()));
+				for (Player player: Player.values())
+					totals.write(String.format(Locale.ROOT, "%s,%d,%s,%d,%.4f,%.4f,%d,%d%n",
+							game.source(), game.number(), player, game.choices(player), game.loss(player),
+							game.errorRate(player), game.errors(player, ERROR), game.errors(player, BLUNDER)));
+				games++;
+			}
+		}
+		return games;
+	}
+	
+	
+	/**
+	 * Notes a game that could not be analysed.
+	 * @param source The name of the file the game came from
+	 * @param e Why the game is not valid
+	 */
+	private void skip(String source, IllegalArgumentException e) {
+		skipped.incrementAndGet();
+		System.err.println(source + ": " + e.getMessage());
+	}
+	
+	
+	/**
+	 * Returns how a play is written from the player's own side, such as
+	 * "8/5 6/5".
+	 * @param play The play
+	 * @param man The type of the player's men
+	 * @return The play
+	 */
+	private static String notation(Play play, Man man) {
+		StringBuilder sb = new StringBuilder();
+		for (Move move: play.moves()) {
+			if (sb.length() > 0)
+				sb.append(' ');
+			sb.append(point(move.fromIndex(), man)).append('/').append(point(move.toIndex(), man));
+		}
+		return sb.toString();
+	}
+	
+	
+	/**
+	 * Returns how a point is written from a player's own side.
+	 * @param index The index of the point
+	 * @param man The type of the player's men
+	 * @return The number of the point, "bar" or "off"
+	 */
+	private static String point(int index, Man man) {
+		if (index == Board.entryIndex(man))
+			return "bar";
+		if (index == Board.offIndex(man))
+			return "off";
+		return Integer.toString(Board.distance(index, man));
+	}
+	
+	
+	/**
+	 * A stage of the pipeline.
+	 * @author Alex Gill
+	 *
+	 */
+	private interface Stage {
+		
+		/**
+		 * Runs the stage until its input runs out.
+		 * @throws Exception If the stage fails
+		 */
+		void run() throws Exception;
+	}
+	
+	
+	/**
+	 * A game read from a file, waiting to be replayed.
+	 * @author Alex Gill
+	 *
+	 */
+	private static class ParsedGame {
+		
+		private final String source;		// Name of the file the game came from
+		private final long number;			// Number of the game in the file
+		private final GameRecord record;	// The record of the game
+		
+		
+		/**
+		 * Instantiates the parsed game.
+		 * @param source The name of the file the game came from
+		 * @param number The number of the game in the file
+		 * @param record The record of the game
+		 */
+		ParsedGame(String source, long number, GameRecord record) {
+			this.source = source;
+			this.number = number;
+			this.record = record;
+		}
+	}
+	
+	
+	/**
+	 * Notes the position and roll of every turn of a game as it is replayed,
+	 * and the board the turn left.
+	 * @author Alex Gill
+	 *
+	 */
+	private static class TurnNotes implements GameListener {
+		
+		private final GameAnalysis analysis;	// Where to add the turns
+		private Decision turn;					// The turn being played, or null
+		private int turns;						// Number of turns so far
+		
+		
+		/**
+		 * Instantiates the notes.
+		 * @param analysis Where to add the turns
+		 */
+		TurnNotes(GameAnalysis analysis) {
+			this.analysis = analysis;
+		}
+		
+		
+		@Override
+		public void rolled(Backgammon game, int die1, int die2) {
+			finish(game.board());
+			turn = new Decision(++turns, game.curPlayer(), game.board(), die1, die2);
+		}
+		
+		
+		@Override
+		public void ended(Backgammon game) {
+			finish(game.board());
+		}
+		
+		
+		/**
+		 * Adds the turn being played, if there is one.
+		 * @param board The board after the turn
+		 */
+		void finish(Board board) {
+			if (turn == null)
+				return;
+			turn.setAfter(board);
+			analysis.add(turn);
+			turn = null;
+		}
+	}
+	
+	
+	/**
+	 * Analyses recorded games and writes the results.
+	 * @param args The game file or directory of game files, the directory to
+	 * write the results to, optionally the number of the opponent's rolls to
+	 * look ahead (0 by default), the number of threads (every core by
+	 * default) and a file of neural network weights to evaluate with instead
+	 * of the heuristic
+	 * @throws IOException If a file cannot be read or written
+	 * @throws InterruptedException If interrupted
+	 */
+	public static void main(String[] args) throws IOException, InterruptedException {
+		Path input = Paths.get(args[0]);
+		Path output = Paths.get(args[1]);
+		int depth = args.length > 2 ? Integer.parseInt(args[2]): 0;
+		int threads = args.length > 3 ? Integer.parseInt(args[3]): Runtime.getRuntime().availableProcessors();
+		Evaluator evaluator = args.length > 4 ?
+				new NeuralEvaluator(NeuralNetwork.load(Paths.get(args[4]))): new HeuristicEvaluator();
+		
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		try {
+			Analyzer analyzer = new Analyzer(evaluator, depth, pool);
+			long start = System.nanoTime();
+			long games = analyzer.run(input, output);
+			System.out.printf("%d games analysed, %d skipped, in %.1f s%n",
+					games, analyzer.skipped(), (System.nanoTime() - start) / 1e9);
+		}
+		finally {
+			pool.shutdown();
+		}
+	}
+}
@@ -0,0 +1,189 @@
+package tech.octopusdragon.proj.backgammon.analysis;
+
+import tech.octopusdragon.proj.backgammon.Board;
+import tech.octopusdragon.proj.backgammon.Player;
+
+/**
+ * One turn of a recorded game: the position and roll the player faced, the
+ * play they made, and, once analysed, how much equity it lost against the
+ * best play.
+ * @author Alex Gill
+ *
+ */
+public class Decision {
+	
+	// --- Instance variables ---
+	private final int turn;			// Number of the turn in the game, from 1
+	private final Player player;	// Player whose turn it was
+	private final Board before;		// Board before the turn
+	private final int die1;			// Value of the first die
+	private final int die2;			// Value of the second die
+	private Board after;			// Board after the turn
+	
+	private int plays;				// Number of legal plays
+	private String played;			// The play made
+	private String best;			// The best play
+	private double playedEquity;	// Equity of the play made
+	private double bestEquity;		// Equity of the best play
+	
+	
+	/**
+	 * Instantiates a decision.
+	 * @param turn The number of the turn in the game, from 1
+	 * @param player The player whose turn it was
+	 * @param before The board before the turn, which is copied
+	 * @param die1 The value of the first die
+	 * @param die2 The value of the second die
+	 */
+	Decision(int turn, Player player, Board before, int die1, int die2) {
+		this.turn = turn;
+		this.player = player;
+		this.before = new Board(before);
+		this.die1 = die1;
+		this.die2 = die2;
+	}
+	
+	
+	/**
+	 * Sets the board after the turn.
+	 * @param after The board, which is copied
+	 */
+	void setAfter(Board after) {
+		this.after = new Board(after);
+	}
+	
+	
+	/**
+	 * Sets the result of analysing the decision.
+	 * @param plays The number of legal plays
+	 * @param played The play made
+	 * @param playedEquity The equity of the play made
+	 * @param best The best play
+	 * @param bestEquity The equity of the best play
+	 */
+	void setResult(int plays, String played, double playedEquity, String best, double bestEquity) {
+		this.plays = plays;
+		this.played = played;
+		this.playedEquity = playedEquity;
+		this.best = best;
+		this.bestEquity = bestEquity;
+	}
+	
+	
+	/**
+	 * Returns the number of the turn in the game.
+	 * @return The number, from 1
+	 */
+	public int turn() {
+		return turn;
+	}
+	
+	
+	/**
+	 * Returns the player whose turn it was.
+	 * @return The player
+	 */
+	public Player player() {
+		return player;
+	}
+	
+	
+	/**
+	 * Returns the board before the turn.
+	 * @return The board
+	 */
+	public Board before() {
+		return before;
+	}
+	
+	
+	/**
+	 * Returns the board after the turn.
+	 * @return The board
+	 */
+	public Board after() {
+		return after;
+	}
+	
+	
+	/**
+	 * Returns the value of the first die.
+	 * @return The value
+	 */
+	public int die1() {
+		return die1;
+	}
+	
+	
+	/**
+	 * Returns the value of the second die.
+	 * @return The value
+	 */
+	public int die2() {
+		return die2;
+	}
+	
+	
+	/**
+	 * Returns whether the player had a choice to make, which is only so if
+	 * there was more than one legal play. Only then is the decision analysed.
+	 * @return Whether there was a choice
+	 */
+	public boolean isChoice() {
+		return plays > 1;
+	}
+	
+	
+	/**
+	 * Returns the number of legal plays.
+	 * @return The number of plays, or 0 if not analysed
+	 */
+	public int plays() {
+		return plays;
+	}
+	
+	
+	/**
+	 * Returns the play made.
+	 * @return The play, written from the player's side
+	 */
+	public String played() {
+		return played;
+	}
+	
+	
+	/**
+	 * Returns the best play.
+	 * @return The play, written from the player's side
+	 */
+	public String best() {
+		return best;
+	}
+	
+	
+	/**
+	 * Returns the equity of the play made.
+	 * @return The equity for the player
+	 */
+	public double playedEquity() {
+		return playedEquity;
+	}
+	
+	
+	/**
+	 * Returns the equity of the best play.
+	 * @return The equity for the player
+	 */
+	public double bestEquity() {
+		return bestEquity;
+	}
+	
+	
+	/**
+	 * Returns how much equity the play made lost against the best play.
+	 * @return The loss, which is never negative
+	 */
+	public double loss() {
+		return Math.max(0.0, bestEquity - playedEquity);
+	}
+}
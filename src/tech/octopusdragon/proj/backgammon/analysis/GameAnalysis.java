@@ -0,0 +1,124 @@
+package tech.octopusdragon.proj.backgammon.analysis;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import tech.octopusdragon.proj.backgammon.Player;
+
+/**
+ * The decisions of one recorded game, and totals of how well each player
+ * made them.
+ * @author Alex Gill
+ *
+ */
+public class GameAnalysis {
+	
+	// --- Instance variables ---
+	private final String source;			// Name of the file the game came from
+	private final long number;				// Number of the game in the file, from 1
+	private final List<Decision> decisions;	// The turns of the game
+	
+	
+	/**
+	 * Instantiates the analysis of a game with no decisions yet.
+	 * @param source The name of the file the game came from
+	 * @param number The number of the game in the file, from 1
+	 */
+	GameAnalysis(String source, long number) {
+		this.source = source;
+		this.number = number;
+		decisions = new ArrayList<Decision>();
+	}
+	
+	
+	/**
+	 * Adds a decision.
+	 * @param decision The decision
+	 */
+	void add(Decision decision) {
+		decisions.add(decision);
+	}
+	
+	
+	/**
+	 * Returns the name of the file the game came from.
+	 * @return The name
+	 */
+	public String source() {
+		return source;
+	}
+	
+	
+	/**
+	 * Returns the number of the game in its file.
+	 * @return The number, from 1
+	 */
+	public long number() {
+		return number;
+	}
+	
+	
+	/**
+	 * Returns the turns of the game.
+	 * @return The decisions, in the order they were made
+	 */
+	public List<Decision> decisions() {
+		return Collections.unmodifiableList(decisions);
+	}
+	
+	
+	/**
+	 * Returns how many real choices a player made, leaving out turns with
+	 * only one legal play or none.
+	 * @param player The player
+	 * @return The number of choices
+	 */
+	public int choices(Player player) {
+		int choices = 0;
+		for (Decision decision: decisions)
+			if (decision.player() == player && decision.isChoice())
+				choices++;
+		return choices;
+	}
+	
+	
+	/**
+	 * Returns the total equity a player lost.
+	 * @param player The player
+	 * @return The total loss
+	 */
+	public double loss(Player player) {
+		double loss = 0.0;
+		for (Decision decision: decisions)
+			if (decision.player() == player && decision.isChoice())
+				loss += decision.loss();
+		return loss;
+	}
+	
+	
+	/**
+	 * Returns a player's error rate, the average equity lost per choice.
+	 * @param player The player
+	 * @return The error rate, or 0 if the player made no choices
+	 */
+	public double errorRate(Player player) {
+		int choices = choices(player);
+		return choices == 0 ? 0.0: loss(player) / choices;
+	}
+	
+	
+	/**
+	 * Returns how many of a player's plays lost at least the given equity.
+	 * @param player The player
+	 * @param threshold The least loss counted
+	 * @return The number of plays
+	 */
+	public int errors(Player player, double threshold) {
+		int errors = 0;
+		for (Decision decision: decisions)
+			if (decision.player() == player && decision.isChoice() && decision.loss() >= threshold)
+				errors++;
+		return errors;
+	}
+}
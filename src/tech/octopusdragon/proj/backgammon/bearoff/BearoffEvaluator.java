@@ -0,0 +1,60 @@
+package tech.octopusdragon.proj.backgammon.bearoff;
+
+import tech.octopusdragon.proj.backgammon.Board;
+import tech.octopusdragon.proj.backgammon.Player;
+import tech.octopusdragon.proj.backgammon.ai.Evaluator;
+
+/**
+ * Evaluates races where both players have all their men home exactly, using
+ * the two-sided bear-off database if it covers the position and the one-sided
+ * one otherwise, and hands every other position to another evaluator.
+ * Gammons are ignored, as they are rare once both sides are home.
+ * @author Alex Gill
+ *
+ */
+public class BearoffEvaluator implements Evaluator {
+	
+	// --- Instance variables ---
+	private OneSidedBearoff database;	// The bear-off database
+	private TwoSidedBearoff twoSided;	// The two-sided bear-off database, or null
+	private Evaluator fallback;			// Evaluates positions not in the database
+	
+	
+	/**
+	 * Instantiates an evaluator.
+	 * @param database The bear-off database
+	 * @param fallback The evaluator of positions not in the database
+	 */
+	public BearoffEvaluator(OneSidedBearoff database, Evaluator fallback) {
+		this.database = database;
+		this.fallback = fallback;
+	}
+	
+	
+	/**
+	 * Makes the evaluator use a two-sided database for the positions it
+	 * covers, which is exact where the one-sided one is not.
+	 * @param twoSided The two-sided database, or null to use none
+	 */
+	public void setTwoSided(TwoSidedBearoff twoSided) {
+		this.twoSided = twoSided;
+	}
+	
+	
+	@Override
+	public double evaluate(Board board, Player player) {
+		Player opponent = player == Player.BLACK ? Player.WHITE: Player.BLACK;
+		if (!OneSidedBearoff.covers(board, player.menType()) ||
+				!OneSidedBearoff.covers(board, opponent.menType()))
+			return fallback.evaluate(board, player);
+		
+		double opponentWins;
+		if (twoSided != null && twoSided.covers(board))
+			opponentWins = twoSided.winProbability(board, opponent);
+		else
+			opponentWins = database.winProbability(
+					OneSidedBearoff.index(board, opponent.menType()),
+					OneSidedBearoff.index(board, player.menType()));
+		return 1.0 - 2.0 * opponentWins;
+	}
+}
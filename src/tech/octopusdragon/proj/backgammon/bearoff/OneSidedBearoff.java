@@ -0,0 +1,192 @@
+package tech.octopusdragon.proj.backgammon.bearoff;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import tech.octopusdragon.proj.backgammon.Board;
+import tech.octopusdragon.proj.backgammon.Man;
+
+/**
+ * A one-sided bear-off database: for every way of placing up to NUM_MEN men
+ * on the six points of a home board, the chance of bearing them all off in
+ * exactly each number of rolls. The chances are stored as 16-bit fixed-point
+ * numbers in a file, which is memory-mapped read-only so that every thread
+ * and every process using it shares one copy through the page cache. Lookups
+ * create no objects.
+ * <p>
+ * A position is indexed by ranking it among all positions with the
+ * combinatorial number system: writing the men as stars and the ends of the
+ * six points as bars, the index is the rank of the set of bar positions.
+ * @author Alex Gill
+ *
+ */
+public class OneSidedBearoff {
+	
+	// --- Constants ---
+	public static final int POINTS = Board.HOME_POINTS;	// Number of points covered
+	public static final int MAX_ROLLS = 32;				// Rolls stored for each position
+	public static final int POSITIONS;					// Number of positions
+	static final int MAGIC = 0x42474F31;				// First int of the file
+	static final int HEADER_SIZE = 3 * Integer.BYTES;	// Bytes before the chances
+	static final int SCALE = 0xFFFF;					// Fixed-point value of a certainty
+	
+	private static final int[][] CHOOSE;	// Binomial coefficients
+	
+	static {
+		int n = Board.NUM_MEN + POINTS;
+		CHOOSE = new int[n + 1][POINTS + 1];
+		for (int i = 0; i <= n; i++) {
+			CHOOSE[i][0] = 1;
+			for (int j = 1; j <= Math.min(i, POINTS); j++)
+				CHOOSE[i][j] = CHOOSE[i - 1][j - 1] + (j < i ? CHOOSE[i - 1][j]: 0);
+		}
+		POSITIONS = CHOOSE[n][POINTS];
+	}
+	
+	
+	// --- Instance variables ---
+	private final ByteBuffer chances;	// The mapped file
+	
+	
+	/**
+	 * Maps a database file into memory.
+	 * @param file The file
+	 * @throws IOException If the file cannot be read or is not a one-sided
+	 * bear-off database
+	 */
+	public OneSidedBearoff(Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			chances = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		if (chances.capacity() != HEADER_SIZE + POSITIONS * MAX_ROLLS * 2 ||
+				chances.getInt(0) != MAGIC ||
+				chances.getInt(Integer.BYTES) != POSITIONS ||
+				chances.getInt(2 * Integer.BYTES) != MAX_ROLLS)
+			throw new IOException(file + " is not a one-sided bear-off database");
+	}
+	
+	
+	/**
+	 * Returns the chance of bearing off every man of a position in exactly the
+	 * given number of rolls.
+	 * @param index The index of the position
+	 * @param rolls The number of rolls
+	 * @return The chance
+	 */
+	public double probability(int index, int rolls) {
+		if (rolls < 0 || rolls >= MAX_ROLLS)
+			return 0.0;
+		return (double)(chances.getShort(offset(index, rolls)) & SCALE) / SCALE;
+	}
+	
+	
+	/**
+	 * Returns the chance of bearing off every man of a position in the given
+	 * number of rolls or more.
+	 * @param index The index of the position
+	 * @param rolls The number of rolls
+	 * @return The chance
+	 */
+	public double probabilityAtLeast(int index, int rolls) {
+		double total = 0.0;
+		for (int i = Math.max(rolls, 0); i < MAX_ROLLS; i++)
+			total += probability(index, i);
+		return total;
+	}
+	
+	
+	/**
+	 * Returns the average number of rolls needed to bear off every man of a
+	 * position.
+	 * @param index The index of the position
+	 * @return The average number of rolls
+	 */
+	public double meanRolls(int index) {
+		double total = 0.0;
+		for (int i = 1; i < MAX_ROLLS; i++)
+			total += i * probability(index, i);
+		return total;
+	}
+	
+	
+	/**
+	 * Returns the chance that the player on roll bears off all their men
+	 * before the opponent does, in a race where both have all their men home.
+	 * @param onRoll The index of the position of the player on roll
+	 * @param opponent The index of the position of the opponent
+	 * @return The chance the player on roll wins
+	 */
+	public double winProbability(int onRoll, int opponent) {
+		
+		// The player on roll wins in n rolls if the opponent has not finished
+		// in their first n - 1 rolls
+		double win = 0.0;
+		double opponentLeft = 1.0;
+		for (int i = 0; i < MAX_ROLLS; i++) {
+			win += probability(onRoll, i) * opponentLeft;
+			opponentLeft -= probability(opponent, i);
+		}
+		return win;
+	}
+	
+	
+	/**
+	 * Returns whether every man of the given type on a board is in its home
+	 * board or borne off, so that the position is in the database.
+	 * @param board The board
+	 * @param type The type of men
+	 * @return Whether the men are all home
+	 */
+	public static boolean covers(Board board, Man type) {
+		return board.hitMen(type) == 0 && board.outsideHome(type) == 0;
+	}
+	
+	
+	/**
+	 * Returns the index of the position of one type of men on a board, which
+	 * must all be in their home board or borne off.
+	 * @param board The board
+	 * @param type The type of men
+	 * @return The index
+	 */
+	public static int index(Board board, Man type) {
+		int index = 0;
+		int bar = -1;
+		for (int distance = 1; distance <= POINTS; distance++) {
+			bar += board.menNumber(Board.point(distance, type), type) + 1;
+			index += CHOOSE[bar][distance];
+		}
+		return index;
+	}
+	
+	
+	/**
+	 * Returns the index of a position.
+	 * @param men The number of men on each point, by distance from being borne
+	 * off; the first entry is ignored
+	 * @return The index
+	 */
+	public static int index(int[] men) {
+		int index = 0;
+		int bar = -1;
+		for (int distance = 1; distance <= POINTS; distance++) {
+			bar += men[distance] + 1;
+			index += CHOOSE[bar][distance];
+		}
+		return index;
+	}
+	
+	
+	/**
+	 * Returns where a chance is stored in the file.
+	 * @param index The index of the position
+	 * @param rolls The number of rolls
+	 * @return The offset in bytes
+	 */
+	static int offset(int index, int rolls) {
+		return HEADER_SIZE + (index * MAX_ROLLS + rolls) * 2;
+	}
+}
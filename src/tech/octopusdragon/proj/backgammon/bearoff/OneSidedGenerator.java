@@ -0,0 +1,217 @@
+package tech.octopusdragon.proj.backgammon.bearoff;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+
+import tech.octopusdragon.proj.backgammon.Backgammon;
+import tech.octopusdragon.proj.backgammon.Board;
+import tech.octopusdragon.proj.backgammon.Die;
+import tech.octopusdragon.proj.backgammon.Play;
+import tech.octopusdragon.proj.backgammon.Player;
+
+/**
+ * Builds the one-sided bear-off database. Every play lowers the pip count, so
+ * positions are solved in order of pip count, and positions with the same
+ * pip count are solved in parallel. For each roll the play leaving the fewest
+ * rolls on average is assumed.
+ * @author Alex Gill
+ *
+ */
+public class OneSidedGenerator {
+	
+	// --- Constants ---
+	private static final Player PLAYER = Player.WHITE;	// Player whose men are used to find plays
+	private static final int OUTCOMES = Die.NUM_SIDES * Die.NUM_SIDES;	// Number of ordered rolls
+	
+	
+	// --- Instance variables ---
+	private int[][] men;			// Men on each point of each position, by distance
+	private double[][] chances;		// Chance of finishing in each number of rolls
+	private double[] meanRolls;		// Average number of rolls of each position
+	
+	
+	/**
+	 * Instantiates a generator.
+	 */
+	public OneSidedGenerator() {
+		men = new int[OneSidedBearoff.POSITIONS][];
+		chances = new double[OneSidedBearoff.POSITIONS][];
+		meanRolls = new double[OneSidedBearoff.POSITIONS];
+		enumerate(new int[OneSidedBearoff.POINTS + 1], OneSidedBearoff.POINTS, Board.NUM_MEN);
+	}
+	
+	
+	/**
+	 * Solves every position.
+	 */
+	public void solve() {
+		int[][] levels = levels();
+		for (int[] level: levels)
+			Arrays.stream(level).parallel().forEach(this::solve);
+	}
+	
+	
+	/**
+	 * Writes the database.
+	 * @param file The file to write to
+	 * @throws IOException If the file cannot be written
+	 */
+	public void write(Path file) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(OneSidedBearoff.offset(OneSidedBearoff.POSITIONS, 0));
+		buffer.putInt(OneSidedBearoff.MAGIC);
+		buffer.putInt(OneSidedBearoff.POSITIONS);
+		buffer.putInt(OneSidedBearoff.MAX_ROLLS);
+		for (double[] position: chances)
+			for (double chance: position)
+				buffer.putShort((short)Math.round(chance * OneSidedBearoff.SCALE));
+		buffer.flip();
+		
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			while (buffer.hasRemaining())
+				channel.write(buffer);
+		}
+	}
+	
+	
+	/**
+	 * Returns the chances of a solved position.
+	 * @param index The index of the position
+	 * @return The chance of finishing in each number of rolls
+	 */
+	double[] chances(int index) {
+		return chances[index];
+	}
+	
+	
+	/**
+	 * Returns the men of a position.
+	 * @param index The index of the position
+	 * @return The number of men on each point, by distance
+	 */
+	int[] men(int index) {
+		return men[index];
+	}
+	
+	
+	/**
+	 * Records every position with the given number of men left to place on the
+	 * points up to the given distance.
+	 * @param position The men placed on the points further away
+	 * @param distance The distance of the furthest point left
+	 * @param left The number of men left to place
+	 */
+	private void enumerate(int[] position, int distance, int left) {
+		if (distance == 0) {
+			men[OneSidedBearoff.index(position)] = position.clone();
+			return;
+		}
+		for (int n = 0; n <= left; n++) {
+			position[distance] = n;
+			enumerate(position, distance - 1, left - n);
+		}
+		position[distance] = 0;
+	}
+	
+	
+	/**
+	 * Groups the positions by pip count.
+	 * @return The indices of the positions of each pip count, lowest first
+	 */
+	private int[][] levels() {
+		int maxPips = Board.NUM_MEN * OneSidedBearoff.POINTS;
+		int[] sizes = new int[maxPips + 1];
+		for (int[] position: men)
+			sizes[pips(position)]++;
+		
+		int[][] levels = new int[maxPips + 1][];
+		for (int pips = 0; pips <= maxPips; pips++)
+			levels[pips] = new int[sizes[pips]];
+		Arrays.fill(sizes, 0);
+		for (int i = 0; i < men.length; i++) {
+			int pips = pips(men[i]);
+			levels[pips][sizes[pips]++] = i;
+		}
+		return levels;
+	}
+	
+	
+	/**
+	 * Solves one position, whose every successor must already be solved.
+	 * @param index The index of the position
+	 */
+	private void solve(int index) {
+		double[] result = new double[OneSidedBearoff.MAX_ROLLS];
+		if (pips(men[index]) == 0) {
+			result[0] = 1.0;
+			chances[index] = result;
+			return;
+		}
+		
+		int[] points = new int[Board.NUM_POINTS + 2];
+		for (int distance = 1; distance <= OneSidedBearoff.POINTS; distance++)
+			points[Board.point(distance, PLAYER.menType())] = -men[index][distance];
+		Board board = new Board(points, 0, 0);
+		
+		for (int die1 = 1; die1 <= Die.NUM_SIDES; die1++) {
+			for (int die2 = die1; die2 <= Die.NUM_SIDES; die2++) {
+				double weight = (die1 == die2 ? 1.0: 2.0) / OUTCOMES;
+				
+				// Assume the play leaving the fewest rolls on average
+				List<Play> plays = Backgammon.legalPlays(board, PLAYER, die1, die2);
+				int best = -1;
+				for (Play play: plays) {
+					int next = OneSidedBearoff.index(play.result(), PLAYER.menType());
+					if (best < 0 || meanRolls[next] < meanRolls[best])
+						best = next;
+				}
+				
+				if (chances[best][OneSidedBearoff.MAX_ROLLS - 1] != 0.0)
+					throw new IllegalStateException("Bear-off takes more than " + OneSidedBearoff.MAX_ROLLS + " rolls");
+				for (int rolls = 1; rolls < OneSidedBearoff.MAX_ROLLS; rolls++)
+					result[rolls] += weight * chances[best][rolls - 1];
+			}
+		}
+		
+		double mean = 0.0;
+		for (int rolls = 1; rolls < OneSidedBearoff.MAX_ROLLS; rolls++)
+			mean += rolls * result[rolls];
+		meanRolls[index] = mean;
+		chances[index] = result;
+	}
+	
+	
+	/**
+	 * Returns the pip count of a position.
+	 * @param position The number of men on each point, by distance
+	 * @return The pip count
+	 */
+	private static int pips(int[] position) {
+		int pips = 0;
+		for (int distance = 1; distance <= OneSidedBearoff.POINTS; distance++)
+			pips += distance * position[distance];
+		return pips;
+	}
+	
+	
+	/**
+	 * Builds the database and writes it to a file.
+	 * @param args The file to write, which defaults to bearoff1.db
+	 * @throws IOException If the file cannot be written
+	 */
+	public static void main(String[] args) throws IOException {
+		Path file = Paths.get(args.length > 0 ? args[0]: "bearoff1.db");
+		long start = System.nanoTime();
+		OneSidedGenerator generator = new OneSidedGenerator();
+		generator.solve();
+		generator.write(file);
+		System.out.printf("Wrote %d positions to %s in %.1f s%n",
+				OneSidedBearoff.POSITIONS, file, (System.nanoTime() - start) / 1e9);
+	}
+}
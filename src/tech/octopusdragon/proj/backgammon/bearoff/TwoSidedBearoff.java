@@ -0,0 +1,239 @@
+package tech.octopusdragon.proj.backgammon.bearoff;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import tech.octopusdragon.proj.backgammon.Board;
+import tech.octopusdragon.proj.backgammon.Man;
+import tech.octopusdragon.proj.backgammon.Player;
+
+/**
+ * A two-sided bear-off database: for every pair of positions where each
+ * player has up to a given number of men left on their home board, the
+ * chance that the player on roll wins with best play by both sides. The
+ * chances are stored as 16-bit fixed-point numbers in blocks, each
+ * compressed on its own, with an index of where each block starts. Blocks
+ * are read from the file only when a position in them is looked up, and a
+ * few recently used blocks are kept, so the table never has to be held in
+ * memory. Within a block each chance is stored as its difference from the
+ * one before, with the high bytes of every difference ahead of the low bytes,
+ * which makes the blocks compress better. Safe to share between threads.
+ * <p>
+ * Positions are indexed the same way as in the one-sided database; a
+ * position with up to MEN men always has an index below the number of such
+ * positions.
+ * @author Alex Gill
+ *
+ */
+public class TwoSidedBearoff implements Closeable {
+	
+	// --- Constants ---
+	static final int MAGIC = 0x42474F32;					// First int of the file
+	static final int HEADER_SIZE = 5 * Integer.BYTES;		// Bytes before the block index
+	static final int BLOCK_SIZE = 4096;						// Chances in each block
+	private static final int CACHE_BLOCKS = 64;				// Blocks kept in memory
+	
+	
+	// --- Instance variables ---
+	private final FileChannel channel;	// The open file
+	private final int men;				// Most men of each player covered
+	private final int positions;		// Number of positions of each player
+	private final long[] offsets;		// Where each block starts, and where the last one ends
+	private final Map<Integer, short[]> cache;	// Recently used blocks by number
+	
+	
+	/**
+	 * Opens a database file. Only the header and block index are read.
+	 * @param file The file
+	 * @throws IOException If the file cannot be read or is not a two-sided
+	 * bear-off database
+	 */
+	public TwoSidedBearoff(Path file) throws IOException {
+		channel = FileChannel.open(file, StandardOpenOption.READ);
+		try {
+			ByteBuffer header = read(0, HEADER_SIZE);
+			int magic = header.getInt();
+			men = header.getInt();
+			positions = header.getInt();
+			int blockSize = header.getInt();
+			int blocks = header.getInt();
+			if (magic != MAGIC || positions != positions(men) || blockSize != BLOCK_SIZE ||
+					blocks != blocks(positions))
+				throw new IOException(file + " is not a two-sided bear-off database");
+			
+			ByteBuffer index = read(HEADER_SIZE, (blocks + 1) * Long.BYTES);
+			offsets = new long[blocks + 1];
+			index.asLongBuffer().get(offsets);
+		}
+		catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+		
+		cache = new LinkedHashMap<Integer, short[]>(CACHE_BLOCKS * 2, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+			
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Integer, short[]> eldest) {
+				return size() > CACHE_BLOCKS;
+			}
+		};
+	}
+	
+	
+	/**
+	 * Returns the most men each player may have left for a position to be in
+	 * the database.
+	 * @return The number of men
+	 */
+	public int men() {
+		return men;
+	}
+	
+	
+	/**
+	 * Returns whether a position is in the database: both players have all
+	 * their men home, and no more than the covered number left.
+	 * @param board The board
+	 * @return Whether the position is covered
+	 */
+	public boolean covers(Board board) {
+		for (Man type: Man.values())
+			if (!OneSidedBearoff.covers(board, type) || Board.NUM_MEN - board.borneOff(type) > men)
+				return false;
+		return true;
+	}
+	
+	
+	/**
+	 * Returns the chance that the player on roll wins a covered position.
+	 * @param board The board
+	 * @param onRoll The player on roll
+	 * @return The chance the player on roll wins
+	 * @throws UncheckedIOException If the file cannot be read
+	 */
+	public double winProbability(Board board, Player onRoll) {
+		Player opponent = onRoll == Player.BLACK ? Player.WHITE: Player.BLACK;
+		return winProbability(OneSidedBearoff.index(board, onRoll.menType()),
+				OneSidedBearoff.index(board, opponent.menType()));
+	}
+	
+	
+	/**
+	 * Returns the chance that the player on roll wins.
+	 * @param onRoll The index of the position of the player on roll
+	 * @param opponent The index of the position of the opponent
+	 * @return The chance the player on roll wins
+	 * @throws UncheckedIOException If the file cannot be read
+	 */
+	public double winProbability(int onRoll, int opponent) {
+		long entry = (long)onRoll * positions + opponent;
+		short[] block = block((int)(entry / BLOCK_SIZE));
+		return (double)(block[(int)(entry % BLOCK_SIZE)] & OneSidedBearoff.SCALE) / OneSidedBearoff.SCALE;
+	}
+	
+	
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+	
+	
+	/**
+	 * Returns a block, reading and decompressing it if it is not cached.
+	 * @param number The number of the block
+	 * @return The chances in the block
+	 * @throws UncheckedIOException If the file cannot be read
+	 */
+	private short[] block(int number) {
+		short[] block;
+		synchronized (cache) {
+			block = cache.get(number);
+		}
+		if (block != null)
+			return block;
+		
+		// Another thread may load the same block at the same time, which does
+		// no harm
+		try {
+			ByteBuffer compressed = read(offsets[number], (int)(offsets[number + 1] - offsets[number]));
+			byte[] raw = new byte[BLOCK_SIZE * Short.BYTES];
+			Inflater inflater = new Inflater();
+			try {
+				inflater.setInput(compressed.array());
+				int length = inflater.inflate(raw) / Short.BYTES;
+				block = new short[length];
+				int chance = 0;
+				for (int i = 0; i < length; i++) {
+					chance += (raw[i] & 0xFF) << 8 | raw[length + i] & 0xFF;
+					block[i] = (short)chance;
+				}
+			}
+			finally {
+				inflater.end();
+			}
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		catch (DataFormatException e) {
+			throw new UncheckedIOException(new IOException("Corrupt block " + number, e));
+		}
+		
+		synchronized (cache) {
+			cache.put(number, block);
+		}
+		return block;
+	}
+	
+	
+	/**
+	 * Reads part of the file.
+	 * @param position Where to start reading
+	 * @param length The number of bytes to read
+	 * @return The bytes, in a heap buffer ready to be read
+	 * @throws IOException If the file cannot be read
+	 */
+	private ByteBuffer read(long position, int length) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(length);
+		while (buffer.hasRemaining())
+			if (channel.read(buffer, position + buffer.position()) < 0)
+				throw new IOException("Unexpected end of file");
+		buffer.flip();
+		return buffer;
+	}
+	
+	
+	/**
+	 * Returns the number of positions of one player with up to the given
+	 * number of men on their home board.
+	 * @param men The number of men
+	 * @return The number of positions
+	 */
+	static int positions(int men) {
+		long positions = 1;
+		for (int i = 1; i <= OneSidedBearoff.POINTS; i++)
+			positions = positions * (men + i) / i;
+		return (int)positions;
+	}
+	
+	
+	/**
+	 * Returns the number of blocks needed to hold every pair of positions.
+	 * @param positions The number of positions of one player
+	 * @return The number of blocks
+	 */
+	static int blocks(int positions) {
+		long entries = (long)positions * positions;
+		return (int)((entries + BLOCK_SIZE - 1) / BLOCK_SIZE);
+	}
+}
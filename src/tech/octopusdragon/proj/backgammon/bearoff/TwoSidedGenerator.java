@@ -0,0 +1,297 @@
+package tech.octopusdragon.proj.backgammon.bearoff;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.Deflater;
+
+import tech.octopusdragon.proj.backgammon.Backgammon;
+import tech.octopusdragon.proj.backgammon.Board;
+import tech.octopusdragon.proj.backgammon.Die;
+import tech.octopusdragon.proj.backgammon.Play;
+import tech.octopusdragon.proj.backgammon.Player;
+
+/**
+ * Builds the two-sided bear-off database. A player's plays do not depend on
+ * where the opponent's men are, so the positions each position can reach
+ * with each roll are found once. Every play lowers the total pip count of
+ * both players, so pairs of positions are solved in order of total pip
+ * count, and pairs with the same total are solved in parallel. For each roll
+ * the play giving the opponent the lowest chance of winning is assumed.
+ * <p>
+ * The chances of every pair are held in one array while they are solved,
+ * so the generator covers at most MAX_MEN men of each player, whose pairs
+ * of positions only just fit in an array. Far fewer men fit in a usual
+ * heap, since each pair takes 12 bytes while solving.
+ * @author Alex Gill
+ *
+ */
+public class TwoSidedGenerator {
+	
+	// --- Constants ---
+	public static final int DEFAULT_MEN = 6;			// Men of each player covered by default
+	public static final int MAX_MEN = 14;				// Most men whose pairs fit in an array (1.5 billion)
+	private static final Player PLAYER = Player.WHITE;	// Player whose men are used to find plays
+	private static final int OUTCOMES = Die.NUM_SIDES * Die.NUM_SIDES;	// Number of ordered rolls
+	private static final int ROLLS = Die.NUM_SIDES * (Die.NUM_SIDES + 1) / 2;	// Number of distinct rolls
+	
+	
+	// --- Instance variables ---
+	private int men;				// Most men of each player covered
+	private int positions;			// Number of positions of each player
+	private int[][] points;			// Men on each point of each position, by distance
+	private int[] pips;				// Pip count of each position
+	private int[][][] successors;	// Positions each position can reach with each roll
+	private double[] wins;			// Chance the player on roll wins each pair of positions
+	
+	
+	/**
+	 * Instantiates a generator.
+	 * @param men The most men of each player to cover
+	 * @throws IllegalArgumentException If the number of men is not from 1 to
+	 * MAX_MEN
+	 */
+	public TwoSidedGenerator(int men) {
+		if (men < 1 || men > MAX_MEN)
+			throw new IllegalArgumentException("Men " + men);
+		this.men = men;
+		positions = TwoSidedBearoff.positions(men);
+		points = new int[positions][];
+		pips = new int[positions];
+		enumerate(new int[OneSidedBearoff.POINTS + 1], OneSidedBearoff.POINTS, men);
+	}
+	
+	
+	/**
+	 * Solves every pair of positions.
+	 */
+	public void solve() {
+		successors = new int[positions][][];
+		Arrays.stream(indices(positions)).parallel().forEach(this::findSuccessors);
+		
+		wins = new double[positions * positions];
+		for (int[] level: levels())
+			Arrays.stream(level).parallel().forEach(this::solve);
+	}
+	
+	
+	/**
+	 * Writes the database. Each block is written as soon as it is
+	 * compressed, and the header with the offsets of the blocks last.
+	 * @param file The file to write to
+	 * @throws IOException If the file cannot be written
+	 */
+	public void write(Path file) throws IOException {
+		int blocks = TwoSidedBearoff.blocks(positions);
+		long[] offsets = new long[blocks + 1];
+		long start = TwoSidedBearoff.HEADER_SIZE + (long)offsets.length * Long.BYTES;
+		
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			channel.position(start);
+			
+			// Compress each block on its own so that it can be read on its own
+			Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+			byte[] raw = new byte[TwoSidedBearoff.BLOCK_SIZE * Short.BYTES];
+			byte[] compressed = new byte[raw.length * 2];
+			try {
+				for (int block = 0; block < blocks; block++) {
+					offsets[block] = channel.position();
+					int first = block * TwoSidedBearoff.BLOCK_SIZE;
+					int length = Math.min(wins.length - first, TwoSidedBearoff.BLOCK_SIZE);
+					int previous = 0;
+					for (int i = 0; i < length; i++) {
+						int chance = (int)Math.round(wins[first + i] * OneSidedBearoff.SCALE);
+						int difference = chance - previous;
+						raw[i] = (byte)(difference >> 8);
+						raw[length + i] = (byte)difference;
+						previous = chance;
+					}
+					
+					deflater.reset();
+					deflater.setInput(raw, 0, length * Short.BYTES);
+					deflater.finish();
+					while (!deflater.finished()) {
+						ByteBuffer data = ByteBuffer.wrap(compressed, 0, deflater.deflate(compressed));
+						while (data.hasRemaining())
+							channel.write(data);
+					}
+				}
+			}
+			finally {
+				deflater.end();
+			}
+			offsets[blocks] = channel.position();
+			
+			ByteBuffer header = ByteBuffer.allocate((int)start);
+			header.putInt(TwoSidedBearoff.MAGIC);
+			header.putInt(men);
+			header.putInt(positions);
+			header.putInt(TwoSidedBearoff.BLOCK_SIZE);
+			header.putInt(blocks);
+			header.asLongBuffer().put(offsets);
+			header.position(header.capacity());
+			header.flip();
+			
+			channel.position(0);
+			while (header.hasRemaining())
+				channel.write(header);
+		}
+	}
+	
+	
+	/**
+	 * Returns the chance the player on roll wins a solved pair of positions.
+	 * @param onRoll The index of the position of the player on roll
+	 * @param opponent The index of the position of the opponent
+	 * @return The chance
+	 */
+	double winProbability(int onRoll, int opponent) {
+		return wins[onRoll * positions + opponent];
+	}
+	
+	
+	/**
+	 * Records every position with the given number of men left to place on the
+	 * points up to the given distance.
+	 * @param position The men placed on the points further away
+	 * @param distance The distance of the furthest point left
+	 * @param left The number of men left to place
+	 */
+	private void enumerate(int[] position, int distance, int left) {
+		if (distance == 0) {
+			int index = OneSidedBearoff.index(position);
+			points[index] = position.clone();
+			for (int i = 1; i <= OneSidedBearoff.POINTS; i++)
+				pips[index] += i * position[i];
+			return;
+		}
+		for (int n = 0; n <= left; n++) {
+			position[distance] = n;
+			enumerate(position, distance - 1, left - n);
+		}
+		position[distance] = 0;
+	}
+	
+	
+	/**
+	 * Finds the distinct positions a position can reach with each roll.
+	 * @param index The index of the position
+	 */
+	private void findSuccessors(int index) {
+		int[] men = new int[Board.NUM_POINTS + 2];
+		for (int distance = 1; distance <= OneSidedBearoff.POINTS; distance++)
+			men[Board.point(distance, PLAYER.menType())] = -points[index][distance];
+		Board board = new Board(men, 0, 0);
+		
+		successors[index] = new int[ROLLS][];
+		int roll = 0;
+		for (int die1 = 1; die1 <= Die.NUM_SIDES; die1++) {
+			for (int die2 = die1; die2 <= Die.NUM_SIDES; die2++) {
+				List<Play> plays = pips[index] == 0 ?
+						Arrays.<Play>asList(): Backgammon.legalPlays(board, PLAYER, die1, die2);
+				int[] next = new int[plays.size()];
+				for (int i = 0; i < next.length; i++)
+					next[i] = OneSidedBearoff.index(plays.get(i).result(), PLAYER.menType());
+				successors[index][roll++] = next;
+			}
+		}
+	}
+	
+	
+	/**
+	 * Groups the pairs of positions by total pip count.
+	 * @return The entries of the pairs of each total, lowest first
+	 */
+	private int[][] levels() {
+		int maxPips = 2 * men * OneSidedBearoff.POINTS;
+		int[] sizes = new int[maxPips + 1];
+		for (int a = 0; a < positions; a++)
+			for (int b = 0; b < positions; b++)
+				sizes[pips[a] + pips[b]]++;
+		
+		int[][] levels = new int[maxPips + 1][];
+		for (int total = 0; total <= maxPips; total++)
+			levels[total] = new int[sizes[total]];
+		Arrays.fill(sizes, 0);
+		for (int a = 0; a < positions; a++) {
+			for (int b = 0; b < positions; b++) {
+				int total = pips[a] + pips[b];
+				levels[total][sizes[total]++] = a * positions + b;
+			}
+		}
+		return levels;
+	}
+	
+	
+	/**
+	 * Solves one pair of positions, whose every successor must already be
+	 * solved.
+	 * @param entry The entry of the pair
+	 */
+	private void solve(int entry) {
+		int onRoll = entry / positions;
+		int opponent = entry % positions;
+		
+		// A player with no men left has already won
+		if (pips[onRoll] == 0) {
+			wins[entry] = 1.0;
+			return;
+		}
+		if (pips[opponent] == 0) {
+			wins[entry] = 0.0;
+			return;
+		}
+		
+		double win = 0.0;
+		int roll = 0;
+		for (int die1 = 1; die1 <= Die.NUM_SIDES; die1++) {
+			for (int die2 = die1; die2 <= Die.NUM_SIDES; die2++) {
+				double best = 0.0;
+				for (int next: successors[onRoll][roll])
+					best = Math.max(best, 1.0 - wins[opponent * positions + next]);
+				win += (die1 == die2 ? 1.0: 2.0) / OUTCOMES * best;
+				roll++;
+			}
+		}
+		wins[entry] = win;
+	}
+	
+	
+	/**
+	 * Returns the numbers from 0 up to a limit.
+	 * @param count The limit
+	 * @return The numbers
+	 */
+	private static int[] indices(int count) {
+		int[] indices = new int[count];
+		for (int i = 0; i < count; i++)
+			indices[i] = i;
+		return indices;
+	}
+	
+	
+	/**
+	 * Builds the database and writes it to a file.
+	 * @param args The file to write, which defaults to bearoff2.db, and the
+	 * most men of each player to cover, from 1 to MAX_MEN, which defaults to
+	 * DEFAULT_MEN
+	 * @throws IOException If the file cannot be written
+	 */
+	public static void main(String[] args) throws IOException {
+		Path file = Paths.get(args.length > 0 ? args[0]: "bearoff2.db");
+		int men = args.length > 1 ? Integer.parseInt(args[1]): DEFAULT_MEN;
+		long start = System.nanoTime();
+		TwoSidedGenerator generator = new TwoSidedGenerator(men);
+		generator.solve();
+		generator.write(file);
+		System.out.printf("Wrote %d positions of up to %d men to %s (%d bytes) in %.1f s%n",
+				(long)generator.positions * generator.positions, men, file,
+				file.toFile().length(), (System.nanoTime() - start) / 1e9);
+	}
+}
@@ -0,0 +1,57 @@
+package tech.octopusdragon.proj.backgammon.bench;
+
+import java.util.List;
+
+import tech.octopusdragon.proj.backgammon.Backgammon;
+import tech.octopusdragon.proj.backgammon.Board;
+import tech.octopusdragon.proj.backgammon.Play;
+import tech.octopusdragon.proj.backgammon.Player;
+import tech.octopusdragon.proj.backgammon.ai.Evaluator;
+import tech.octopusdragon.proj.backgammon.ai.HeuristicEvaluator;
+import tech.octopusdragon.proj.backgammon.ai.NeuralEvaluator;
+import tech.octopusdragon.proj.backgammon.ai.NeuralNetwork;
+
+/**
+ * Benchmarks the evaluators on the boards left by every legal play of each
+ * position of the corpus, the way a search calls them.
+ * @author Alex Gill
+ *
+ */
+public class EvaluatorBenchmark {
+	
+	/**
+	 * Runs the benchmarks.
+	 * @param args Unused
+	 */
+	public static void main(String[] args) {
+		Harness.start(EvaluatorBenchmark.class, args);
+		NeuralNetwork network = new NeuralNetwork(NeuralEvaluator.INPUTS, NeuralEvaluator.DEFAULT_HIDDEN,
+				NeuralEvaluator.OUTPUTS, 1);
+		measure("heuristic", new HeuristicEvaluator());
+		measure("neural", new NeuralEvaluator(network));
+	}
+	
+	
+	/**
+	 * Measures one evaluator on every position.
+	 * @param name The name of the evaluator
+	 * @param evaluator The evaluator
+	 */
+	private static void measure(String name, Evaluator evaluator) {
+		for (Positions position: Positions.values()) {
+			Backgammon game = position.game();
+			Player player = game.curPlayer();
+			List<Play> plays = game.legalPlays();
+			Board[] boards = new Board[plays.size()];
+			for (int i = 0; i < boards.length; i++)
+				boards[i] = plays.get(i).result();
+			
+			Harness.measure(name + "/" + position, boards.length, () -> {
+				double total = 0.0;
+				for (Board board: boards)
+					total += evaluator.evaluate(board, player);
+				return (long)total;
+			});
+		}
+	}
+}
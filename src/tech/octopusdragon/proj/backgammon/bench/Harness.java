@@ -0,0 +1,210 @@
+package tech.octopusdragon.proj.backgammon.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Times small pieces of code and measures how much memory they allocate. The
+ * project is a plain Eclipse project without a build tool to fetch JMH with,
+ * so this harness follows the parts of JMH that matter most here. Each
+ * benchmark runs in a fresh JVM of its own, so the JIT compiler only ever
+ * sees one operation at the call site and the order benchmarks run in does
+ * not change their results. In that JVM the benchmark is warmed up, then
+ * timed over several iterations, and the mean and standard deviation of the
+ * iterations are reported along with the bytes allocated per operation and
+ * the garbage collections during the timed iterations.
+ * <p>
+ * A benchmark program calls start with its arguments before measuring
+ * anything. Setting the harness.forks system property to 0 runs every
+ * benchmark in the same JVM instead, which is quicker but less accurate.
+ * @author Alex Gill
+ *
+ */
+public class Harness {
+	
+	// --- Constants ---
+	private static final long WARMUP_NANOS = 1000000000L;		// Time spent warming up
+	private static final long ITERATION_NANOS = 500000000L;	// Time of each timed iteration
+	private static final int ITERATIONS = 5;					// Number of timed iterations
+	private static final String ONLY_PROPERTY = "harness.only";	// Benchmark a forked JVM runs
+	private static final String FORKS_PROPERTY = "harness.forks";	// 0 to run without forking
+	
+	
+	/**
+	 * A piece of code to benchmark. It returns a value so the JIT compiler
+	 * cannot remove the work as unused.
+	 * @author Alex Gill
+	 *
+	 */
+	public interface Operation {
+		
+		/**
+		 * Runs the code once.
+		 * @return A value depending on the work done
+		 */
+		long run();
+	}
+	
+	
+	// --- Static variables ---
+	private static volatile long sink;	// Receives the results of operations
+	private static Class<?> mainClass;	// Benchmark program forked JVMs run
+	private static String[] mainArgs;	// Arguments of the benchmark program
+	
+	
+	/**
+	 * Remembers the benchmark program, so that each benchmark can be run in
+	 * a JVM of its own.
+	 * @param main The class whose main method runs the benchmarks
+	 * @param args The arguments the program was given
+	 */
+	public static void start(Class<?> main, String[] args) {
+		mainClass = main;
+		mainArgs = args.clone();
+	}
+	
+	
+	/**
+	 * Runs a benchmark and prints the time and bytes allocated per operation.
+	 * Unless forking is turned off, the benchmark is run by the benchmark
+	 * program in a new JVM, which skips every other benchmark.
+	 * @param name The name of the benchmark
+	 * @param operationsPerCall The number of operations each call performs,
+	 * used to report the cost of a single operation
+	 * @param operation The code to benchmark
+	 */
+	public static void measure(String name, int operationsPerCall, Operation operation) {
+		String only = System.getProperty(ONLY_PROPERTY);
+		if (only != null) {
+			if (only.equals(name))
+				time(name, operationsPerCall, operation);
+		}
+		else if (mainClass == null || "0".equals(System.getProperty(FORKS_PROPERTY)))
+			time(name, operationsPerCall, operation);
+		else
+			fork(name);
+	}
+	
+	
+	/**
+	 * Runs the benchmark program in a new JVM that only runs one benchmark,
+	 * and waits for it to finish. The new JVM prints straight to this one's
+	 * output.
+	 * @param name The name of the benchmark
+	 */
+	private static void fork(String name) {
+		List<String> command = new ArrayList<String>();
+		command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+		command.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+		command.add("-cp");
+		command.add(System.getProperty("java.class.path"));
+		command.add("-D" + ONLY_PROPERTY + "=" + name);
+		command.add(mainClass.getName());
+		command.addAll(Arrays.asList(mainArgs));
+		
+		try {
+			int status = new ProcessBuilder(command).inheritIO().start().waitFor();
+			if (status != 0)
+				System.out.printf("%-40s failed with exit status %d%n", name, status);
+		}
+		catch (IOException e) {
+			throw new IllegalStateException("Cannot fork a JVM for " + name, e);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+	
+	
+	/**
+	 * Warms up and times a benchmark in this JVM, and prints the results.
+	 * @param name The name of the benchmark
+	 * @param operationsPerCall The number of operations each call performs
+	 * @param operation The code to benchmark
+	 */
+	private static void time(String name, int operationsPerCall, Operation operation) {
+		
+		// Warm up
+		long end = System.nanoTime() + WARMUP_NANOS;
+		while (System.nanoTime() < end)
+			run(operation, 1000);
+		
+		// Time each iteration, and find how many calls fit in the iteration
+		// time from the first one
+		long calls = 1000;
+		long start = System.nanoTime();
+		run(operation, calls);
+		long elapsed = System.nanoTime() - start;
+		calls = Math.max(1, calls * ITERATION_NANOS / Math.max(1, elapsed));
+		
+		double[] nanos = new double[ITERATIONS];
+		double totalBytes = 0.0;
+		long collections = collections();
+		for (int i = 0; i < ITERATIONS; i++) {
+			long bytesBefore = allocatedBytes();
+			start = System.nanoTime();
+			run(operation, calls);
+			elapsed = System.nanoTime() - start;
+			long bytes = allocatedBytes() - bytesBefore;
+			
+			nanos[i] = (double)elapsed / calls / operationsPerCall;
+			totalBytes += (double)bytes / calls / operationsPerCall;
+		}
+		collections = collections() - collections;
+		
+		double mean = 0.0;
+		for (double value: nanos)
+			mean += value / ITERATIONS;
+		double variance = 0.0;
+		for (double value: nanos)
+			variance += (value - mean) * (value - mean) / (ITERATIONS - 1);
+		
+		String bytes = allocatedBytes() < 0 ? "n/a": String.format("%.1f", totalBytes / ITERATIONS);
+		System.out.printf("%-40s %12.1f +- %8.1f ns/op %12s B/op %6d gc%n",
+				name, mean, Math.sqrt(variance), bytes, collections);
+	}
+	
+	
+	/**
+	 * Calls an operation a number of times.
+	 * @param operation The operation
+	 * @param calls The number of times to call it
+	 */
+	private static void run(Operation operation, long calls) {
+		long result = 0;
+		for (long i = 0; i < calls; i++)
+			result += operation.run();
+		sink += result;
+	}
+	
+	
+	/**
+	 * Returns the number of bytes the current thread has allocated so far.
+	 * @return The number of bytes, or a negative number if the JVM cannot
+	 * tell
+	 */
+	private static long allocatedBytes() {
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (bean instanceof com.sun.management.ThreadMXBean)
+			return ((com.sun.management.ThreadMXBean)bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+		return -1;
+	}
+	
+	
+	/**
+	 * Returns the number of garbage collections so far.
+	 * @return The number of collections by every collector
+	 */
+	private static long collections() {
+		long count = 0;
+		for (GarbageCollectorMXBean bean: ManagementFactory.getGarbageCollectorMXBeans())
+			count += Math.max(0, bean.getCollectionCount());
+		return count;
+	}
+}
@@ -0,0 +1,78 @@
+package tech.octopusdragon.proj.backgammon.bench;
+
+import tech.octopusdragon.proj.backgammon.Backgammon;
+import tech.octopusdragon.proj.backgammon.Board;
+import tech.octopusdragon.proj.backgammon.Player;
+
+/**
+ * A fixed set of positions and rolls the benchmarks run on, so results from
+ * different runs can be compared.
+ * @author Alex Gill
+ *
+ */
+public enum Positions {
+	
+	/** The starting position with an opening 3-1. */
+	OPENING(new Board(), Player.BLACK, 3, 1),
+	
+	/** Both sides have built points and left the back men behind. */
+	MIDDLE_GAME(board(new int[] {
+			0, 2, 0, 0, -2, -2, -4, 0, -3, 0, 0, 0, 3,
+			-4, 2, 0, 0, 3, 0, 2, 3, 0, 0, 0, 0, 0}, 0, 0),
+			Player.BLACK, 5, 2),
+	
+	/** Black must enter a hit man against a board full of white blots. */
+	CONTACT(board(new int[] {
+			0, 0, -1, -2, 0, -3, -4, 0, -2, 0, 0, 0, 4,
+			-2, 0, 0, 0, 3, 0, 3, 0, 2, 2, 0, -1, 0}, 1, 0),
+			Player.BLACK, 4, 2),
+	
+	/** Both sides are home and bearing off. */
+	BEAR_OFF(board(new int[] {
+			0, -3, -3, -2, -2, -2, -1, -1, 0, 0, 0, 0, 0,
+			0, 0, 0, 0, 0, 0, 2, 3, 3, 2, 2, 1, 0}, 0, 0),
+			Player.BLACK, 5, 3);
+	
+	
+	private Board board;		// The board
+	private Player player;		// The player on roll
+	private int die1;			// The first die of the roll
+	private int die2;			// The second die of the roll
+	
+	
+	/**
+	 * Constructor
+	 */
+	private Positions(Board board, Player player, int die1, int die2) {
+		this.board = board;
+		this.player = player;
+		this.die1 = die1;
+		this.die2 = die2;
+	}
+	
+	
+	/**
+	 * Creates a board from signed men counts.
+	 */
+	private static Board board(int[] men, int blackHitMen, int whiteHitMen) {
+		return new Board(men, blackHitMen, whiteHitMen);
+	}
+	
+	
+	/**
+	 * Returns a new game in this position with the dice already rolled.
+	 * @return The game
+	 */
+	public Backgammon game() {
+		return new Backgammon(board, player, die1, die2);
+	}
+	
+	
+	/**
+	 * Returns the board of this position.
+	 * @return A copy of the board
+	 */
+	public Board board() {
+		return new Board(board);
+	}
+}
@@ -0,0 +1,102 @@
+package tech.octopusdragon.proj.backgammon.bench;
+
+import tech.octopusdragon.proj.backgammon.Backgammon;
+import tech.octopusdragon.proj.backgammon.Board;
+import tech.octopusdragon.proj.backgammon.DiceSource;
+import tech.octopusdragon.proj.backgammon.Die;
+import tech.octopusdragon.proj.backgammon.Move;
+import tech.octopusdragon.proj.backgammon.SeededDiceSource;
+import tech.octopusdragon.proj.backgammon.sim.RandomStrategy;
+import tech.octopusdragon.proj.backgammon.sim.SimulationResult;
+import tech.octopusdragon.proj.backgammon.sim.Simulator;
+
+/**
+ * Benchmarks the hot paths of the rules engine on each position of the
+ * corpus, printing the time and memory allocated per operation.
+ * @author Alex Gill
+ *
+ */
+public class RulesBenchmark {
+	
+	/**
+	 * Runs the benchmarks.
+	 * @param args Names of benchmarks to run, or none to run them all
+	 */
+	public static void main(String[] args) {
+		Harness.start(RulesBenchmark.class, args);
+		for (Positions position: Positions.values()) {
+			Backgammon game = position.game();
+			Move first = game.legalPlays().get(0).moves().get(0);
+			
+			if (selected(args, "isValidMove"))
+				Harness.measure("isValidMove/" + position, (Board.NUM_POINTS + 2) * (Board.NUM_POINTS + 2), () -> {
+					long valid = 0;
+					for (int from = 0; from < Board.NUM_POINTS + 2; from++)
+						for (int to = 0; to < Board.NUM_POINTS + 2; to++)
+							if (game.isValidMove(from, to))
+								valid++;
+					return valid;
+				});
+			
+			if (selected(args, "canMove"))
+				Harness.measure("canMove/" + position, Board.NUM_POINTS + 2, () -> {
+					long movable = 0;
+					for (int i = 0; i < Board.NUM_POINTS + 2; i++)
+						if (game.canMove(i))
+							movable++;
+					return movable;
+				});
+			
+			if (selected(args, "hasMove"))
+				Harness.measure("hasMove/" + position, 1, () -> game.hasMove() ? 1: 0);
+			
+			if (selected(args, "canBearOff"))
+				Harness.measure("canBearOff/" + position, 1, () -> game.canBearOff() ? 1: 0);
+			
+			if (selected(args, "legalPlays"))
+				Harness.measure("legalPlays/" + position, 1, () -> game.legalPlays().size());
+			
+			// Each move is taken back straight away, so the game is unchanged
+			if (selected(args, "move"))
+				Harness.measure("move/" + position, 1, () -> {
+					game.make(first.fromIndex(), first.toIndex(), first.die());
+					return game.undo();
+				});
+			
+			if (selected(args, "fork"))
+				Harness.measure("fork/" + position, 1, () -> game.fork().dice().size());
+		}
+		
+		if (selected(args, "roll")) {
+			Die die = new Die();
+			DiceSource seeded = new SeededDiceSource(1);
+			Harness.measure("roll", 1, () -> die.roll());
+			Harness.measure("roll.seeded", 1, () -> die.roll(seeded));
+		}
+		
+		if (selected(args, "game")) {
+			Simulator simulator = new Simulator(new RandomStrategy(), new RandomStrategy());
+			Harness.measure("game", 1, () -> {
+				SimulationResult result = new SimulationResult();
+				simulator.playGame(result);
+				return result.games();
+			});
+		}
+	}
+	
+	
+	/**
+	 * Returns whether the given benchmark was asked for.
+	 * @param args The names of the benchmarks asked for, or none for all
+	 * @param name The name of the benchmark
+	 * @return Whether to run the benchmark
+	 */
+	private static boolean selected(String[] args, String name) {
+		if (args.length == 0)
+			return true;
+		for (String arg: args)
+			if (arg.equals(name))
+				return true;
+		return false;
+	}
+}
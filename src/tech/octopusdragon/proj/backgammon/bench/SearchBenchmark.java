@@ -0,0 +1,58 @@
+package tech.octopusdragon.proj.backgammon.bench;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import tech.octopusdragon.proj.backgammon.Backgammon;
+import tech.octopusdragon.proj.backgammon.Play;
+import tech.octopusdragon.proj.backgammon.ai.Expectiminimax;
+import tech.octopusdragon.proj.backgammon.ai.HeuristicEvaluator;
+
+/**
+ * Times a search of every position of the corpus with different numbers of
+ * threads, to show how well the search scales across cores. A search takes
+ * far longer than the operations measured by Harness, so each is simply timed
+ * a few times and the best time kept.
+ * @author Alex Gill
+ *
+ */
+public class SearchBenchmark {
+	
+	// --- Constants ---
+	private static final int RUNS = 3;	// Times each search is timed
+	
+	
+	/**
+	 * Runs the benchmark.
+	 * @param args The depth to search to, which defaults to 1, and the
+	 * largest number of threads, which defaults to the number of cores
+	 */
+	public static void main(String[] args) {
+		int depth = args.length > 0 ? Integer.parseInt(args[0]): 1;
+		int maxThreads = args.length > 1 ? Integer.parseInt(args[1]): Runtime.getRuntime().availableProcessors();
+		
+		for (int threads = 1; threads <= maxThreads; threads *= 2) {
+			ForkJoinPool pool = new ForkJoinPool(threads);
+			try {
+				Expectiminimax search = new Expectiminimax(new HeuristicEvaluator(), depth, pool);
+				for (Positions position: Positions.values()) {
+					Backgammon game = position.game();
+					List<Play> plays = game.legalPlays();
+					
+					long best = Long.MAX_VALUE;
+					Play play = null;
+					for (int i = 0; i < RUNS; i++) {
+						long start = System.nanoTime();
+						play = search.choosePlay(game, plays);
+						best = Math.min(best, System.nanoTime() - start);
+					}
+					System.out.printf("search/%d/%-12s %2d threads %10.1f ms  %s%n",
+							depth, position, threads, best / 1e6, play);
+				}
+			}
+			finally {
+				pool.shutdown();
+			}
+		}
+	}
+}
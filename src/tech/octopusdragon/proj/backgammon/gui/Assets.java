@@ -0,0 +1,130 @@
+package tech.octopusdragon.proj.backgammon.gui;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+
+import javafx.application.Platform;
+import javafx.scene.image.Image;
+import javafx.scene.media.Media;
+import javafx.scene.media.MediaPlayer;
+
+/**
+ * Loads the images and sounds of the game on background threads, several at
+ * a time, and keeps them for as long as the application runs. Each asset is
+ * loaded once, however often it is asked for, so every board built after the
+ * first one finds its images already decoded. The user interface asks for
+ * what it needs to show the board straight away and lets the rest arrive
+ * while the board is already on screen.
+ * @author Alex Gill
+ *
+ */
+public class Assets {
+	
+	// --- Constants ---
+	private static final int LOADERS = Math.max(2, Runtime.getRuntime().availableProcessors());	// Assets loaded at once
+	
+	
+	// --- Static variables ---
+	private static final ForkJoinPool pool = new ForkJoinPool(LOADERS);	// Threads the assets are loaded on
+	private static final ConcurrentMap<String, CompletableFuture<Image>> images =
+			new ConcurrentHashMap<String, CompletableFuture<Image>>();			// Images by resource name
+	private static final ConcurrentMap<String, CompletableFuture<MediaPlayer>> sounds =
+			new ConcurrentHashMap<String, CompletableFuture<MediaPlayer>>();	// Sounds by resource name
+	
+	
+	/**
+	 * Not instantiable
+	 */
+	private Assets() {
+	}
+	
+	
+	/**
+	 * Starts loading images and sounds that will be needed later, without
+	 * waiting for them.
+	 * @param names The resource names of the images and sounds; names ending
+	 * in ".wav" are sounds
+	 */
+	public static void preload(String... names) {
+		for (String name: names) {
+			if (name.endsWith(".wav"))
+				sound(name);
+			else
+				image(name);
+		}
+	}
+	
+	
+	/**
+	 * Returns an image, starting to load it if nobody has asked for it yet.
+	 * @param name The resource name of the image
+	 * @return The image once it has been decoded
+	 */
+	public static CompletableFuture<Image> image(String name) {
+		return images.computeIfAbsent(name, key -> CompletableFuture.supplyAsync(() -> {
+			try (InputStream in = resource(key).openStream()) {
+				return new Image(in);
+			}
+			catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}, pool));
+	}
+	
+	
+	/**
+	 * Returns an image, waiting for it if it has not been decoded yet.
+	 * @param name The resource name of the image
+	 * @return The image
+	 */
+	public static Image imageNow(String name) {
+		return image(name).join();
+	}
+	
+	
+	/**
+	 * Returns a sound, starting to prepare it if nobody has asked for it yet.
+	 * The sound rewinds when it reaches the end, ready to be played again.
+	 * @param name The resource name of the sound
+	 * @return The player of the sound once it has been created
+	 */
+	public static CompletableFuture<MediaPlayer> sound(String name) {
+		return sounds.computeIfAbsent(name, key -> CompletableFuture.supplyAsync(() -> {
+			MediaPlayer player = new MediaPlayer(new Media(resource(key).toExternalForm()));
+			player.setOnEndOfMedia(() -> {
+				player.stop();
+			});
+			return player;
+		}, pool));
+	}
+	
+	
+	/**
+	 * Plays a sound on the application thread. A sound that is still being
+	 * prepared plays as soon as it is ready.
+	 * @param name The resource name of the sound
+	 */
+	public static void play(String name) {
+		sound(name).thenAccept(player -> Platform.runLater(player::play));
+	}
+	
+	
+	/**
+	 * Returns where a resource is.
+	 * @param name The resource name
+	 * @return The location of the resource
+	 * @throws IllegalArgumentException If there is no such resource
+	 */
+	private static URL resource(String name) {
+		URL url = Assets.class.getClassLoader().getResource(name);
+		if (url == null)
+			throw new IllegalArgumentException("No resource " + name);
+		return url;
+	}
+}
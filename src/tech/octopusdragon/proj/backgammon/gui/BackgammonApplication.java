@@ -12,12 +12,13 @@ import javafx.animation.ScaleTransition;
 import javafx.animation.Timeline;
 import javafx.animation.TranslateTransition;
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.Cursor;
 import javafx.scene.Scene;
 import javafx.scene.control.Label;
-import javafx.scene.image.Image;
+import javafx.scene.control.Button;
 import javafx.scene.input.MouseEvent;
 import javafx.scene.layout.Background;
 import javafx.scene.layout.BackgroundFill;
@@ -26,8 +27,6 @@ import javafx.scene.layout.CornerRadii;
 import javafx.scene.layout.GridPane;
 import javafx.scene.layout.StackPane;
 import javafx.scene.layout.VBox;
-import javafx.scene.media.Media;
-import javafx.scene.media.MediaPlayer;
 import javafx.scene.paint.Color;
 import javafx.scene.shape.Rectangle;
 import javafx.stage.Stage;
@@ -63,51 +62,50 @@ public class BackgammonApplication extends Application {
 	Space bottomBar;		// Bottom bar where hit pieces are
 	Piece topCurPlayerPiece;	// Shows the current player
 	Piece bottomCurPlayerPiece;	// Shows the current player
-	
-	MediaPlayer pieceSound;
-	MediaPlayer winSound;
+	Button undoButton;		// Takes back the last move of the turn
+	List<Space> marked;		// Spaces with effects or hover handlers
 	
 	
 	@Override
 	public void init() {
-		game = new Backgammon();
-		
-		// Initialize the piece sound
-		pieceSound = new MediaPlayer(
-				new Media(
-				getClass().getClassLoader().getResource(PIECE_SOUND).toExternalForm()));
-		pieceSound.setOnEndOfMedia(() -> {
-			pieceSound.stop();
-		});
 		
-		// Initialize the dice sound
-		winSound = new MediaPlayer(
-				new Media(
-				getClass().getClassLoader().getResource(WIN_SOUND).toExternalForm()));
-		winSound.setOnEndOfMedia(() -> {
-			winSound.stop();
-		});
+		// Start loading the images and sounds in the background. Only the
+		// rolling dice are waited for, since they are on the first frame.
+		Assets.preload(BACKGROUND_IMAGE, PIECE_SOUND, WIN_SOUND);
+		DieGraphic.preload();
+		
+		game = new Backgammon(new ThreadLocalDiceSource(), new ChangeHandler());
+		marked = new ArrayList<Space>();
 	}
 	
 
 	@Override
 	public void start(Stage primaryStage) {
 		
-		// Create the root node
+		// Create the root node, showing the background once it is loaded
 		root = new StackPane();
 		root.setAlignment(Pos.CENTER);
-		root.setBackground(
+		Assets.image(BACKGROUND_IMAGE).thenAccept(image -> Platform.runLater(() ->
+				root.setBackground(
 				new Background(
 				new BackgroundImage(
-				new Image(getClass().getClassLoader().getResourceAsStream(BACKGROUND_IMAGE)),
+						  image,
 						  null,
 						  null,
 						  null,
-						  null)));
+						  null)))));
+		
+		// Create the button that takes back moves
+		undoButton = new Button("Undo");
+		undoButton.setDisable(true);
+		undoButton.setOnAction(event -> undoMove());
+		StackPane.setMargin(undoButton, new Insets(10.0));
+		StackPane.setAlignment(undoButton, Pos.BOTTOM_LEFT);
 		
 		// Build the board
 		buildBoard();
 		root.getChildren().add(gridPane);
+		root.getChildren().add(undoButton);
 		
 		// Show the pieces on the board
 		//updateDieGraphics();
@@ -171,8 +169,8 @@ public class BackgammonApplication extends Application {
 				spaces[i] = new Space(Space.StartingPlace.TOP, i, false);
 			else if (i == Board.NUM_POINTS + 1)
 				spaces[i] = new Space(Space.StartingPlace.BOTTOM, i, false);
-			else if (!game.board().point(i).isUnoccupied())
-				spaces[i] = new Space(start, i, true, game.board().point(i).menNumber(), game.board().point(i).menType());
+			else if (!game.board().isUnoccupied(i))
+				spaces[i] = new Space(start, i, true, game.board().menNumber(i), game.board().menType(i));
 			else
 				spaces[i] = new Space(start, i, true);
 			
@@ -269,6 +267,8 @@ public class BackgammonApplication extends Application {
 		// Update the die graphics
 		// If the player has not rolled, place one die in the middle
 		if (!game.hasRolled()) {
+			if (dice.size() == 1 && dice.get(0).getDie() == null)
+				return;
 			for (DieGraphic dieGraphic: dice) {
 				gridPane.getChildren().remove(dieGraphic);
 			}
@@ -281,21 +281,37 @@ public class BackgammonApplication extends Application {
 			gridPane.add(dieGraphic, Board.NUM_POINTS / 4 + 1, 2);
 		}
 		else {
-			for (DieGraphic dieGraphic: dice) {
-				gridPane.getChildren().remove(dieGraphic);
-			}
-			dice.clear();
-			// If game has a die that the GUI does not have, add it to the list
+			// Keep the graphics of dice that are still usable, and only add
+			// graphics for dice that the GUI does not have. The opening dice
+			// are clicked to stop them rolling, so they are replaced.
+			List<DieGraphic> usable = new ArrayList<DieGraphic>(game.dice().size());
 			for (Die die: game.dice()) {
-				DieGraphic dieGraphic = new DieGraphic(GRID_SQUARE_SIZE, die, false);
-				dice.add(dieGraphic);
+				DieGraphic shown = null;
+				for (DieGraphic dieGraphic: dice) {
+					if (dieGraphic.getDie() == die && dieGraphic.getOnMouseClicked() == null) {
+						shown = dieGraphic;
+						break;
+					}
+				}
+				usable.add(shown != null ? shown: new DieGraphic(GRID_SQUARE_SIZE, die, false));
+			}
+			// Remove the graphics of dice that have been used
+			for (DieGraphic dieGraphic: dice) {
+				if (!usable.contains(dieGraphic))
+					gridPane.getChildren().remove(dieGraphic);
 			}
-			// Add or re-add die graphics to the grid pane
+			dice = usable;
+			// Add die graphics to the grid pane or move them into place
 			for (int i = 0; i < dice.size(); i++) {
+				int column;
 				if (i % 2 == 0)
-					gridPane.add(dice.get(i), Board.NUM_POINTS / 4 + 1 - (int)(Math.ceil(i / 2) + 1), 2);
+					column = Board.NUM_POINTS / 4 + 1 - (int)(Math.ceil(i / 2) + 1);
 				else
-					gridPane.add(dice.get(i), Board.NUM_POINTS / 4 + 1 + (int)(Math.ceil(i / 2) + 1), 2);
+					column = Board.NUM_POINTS / 4 + 1 + (int)(Math.ceil(i / 2) + 1);
+				if (dice.get(i).getParent() == gridPane)
+					GridPane.setConstraints(dice.get(i), column, 2);
+				else
+					gridPane.add(dice.get(i), column, 2);
 			}
 		}
 	}
@@ -303,14 +319,14 @@ public class BackgammonApplication extends Application {
 	
 	public void nextTurn() {
 		if (game.isOver()) {
-			winSound.play();
+			Assets.play(WIN_SOUND);
 		}
 		else {
 			game.nextPlayer();
+			undoButton.setDisable(true);
 			topCurPlayerPiece.changeMan(game.curPlayer().menType());
 			bottomCurPlayerPiece.changeMan(game.curPlayer().menType());
 		}
-		updateDieGraphics();
 	}
 	
 	
@@ -322,23 +338,21 @@ public class BackgammonApplication extends Application {
 		if (!HIGHLIGHT_MOVABLE)
 			return;
 		
+		int movable = game.movablePoints();
 		for (int i = 1; i <= Board.NUM_POINTS; i++) {
-			if (game.canMove(i)) {
+			if ((movable & 1 << i) != 0) {
 				spaces[i].highlightPiece();
-				spaces[i].setOnMouseEntered(new EnterHandler());
-				spaces[i].setOnMouseExited(new ExitHandler());
+				mark(spaces[i]);
 			}
 		}
 		
-		if (!game.curPlayer().hitMen().isEmpty() && game.curPlayer() == Backgammon.TOP_PLAYER) {
+		if (game.hitMen(game.curPlayer()) > 0 && game.curPlayer() == Backgammon.TOP_PLAYER) {
 			topBar.highlightPiece();
-			topBar.setOnMouseEntered(new EnterHandler());
-			topBar.setOnMouseExited(new ExitHandler());
+			mark(topBar);
 		}
-		else if (!game.curPlayer().hitMen().isEmpty() && game.curPlayer() == Backgammon.BOTTOM_PLAYER) {
+		else if (game.hitMen(game.curPlayer()) > 0 && game.curPlayer() == Backgammon.BOTTOM_PLAYER) {
 			bottomBar.highlightPiece();
-			bottomBar.setOnMouseEntered(new EnterHandler());
-			bottomBar.setOnMouseExited(new ExitHandler());
+			mark(bottomBar);
 		}
 	}
 	
@@ -352,53 +366,57 @@ public class BackgammonApplication extends Application {
 			return;
 		
 		
+		int destinations = game.destinations(selectedIndex);
+		int hits = game.hitDestinations(selectedIndex);
 		for (int i = 0; i < Board.NUM_POINTS + 2; i++) {
-			if (game.isValidMove(selectedIndex, i)) {
-				spaces[i].setOnMouseEntered(new EnterHandler());
-				spaces[i].setOnMouseExited(new ExitHandler());
-				
+			if ((destinations & 1 << i) != 0) {
+				mark(spaces[i]);
 				
 				
-				// If the space is unoccupied, place a ghost piece
-				if (game.board().point(i).isUnoccupied() ||
-						game.board().point(i).menType() == game.curPlayer().menType()) {
-					spaces[i].highlightSpace();
-				}
-				
 				
 				// If the space is occupied by one opponent piece, highlight the
 				// opponent piece
-				else if (game.board().point(i).menType() != game.curPlayer().menType() &&
-						game.board().point(i).menNumber() == 1) {
+				if ((hits & 1 << i) != 0) {
 					spaces[i].highlightPiece();
 				}
+				
+				
+				// Otherwise, the space is unoccupied or the player's own, so
+				// place a ghost piece
+				else {
+					spaces[i].highlightSpace();
+				}
 			}
 		}
 	}
 	
 	
 	/**
-	 * Removes selected and highleted effects from all pieces.
+	 * Gives a space the hand cursor and remembers that it has an effect.
+	 * @param space The space
+	 */
+	public void mark(Space space) {
+		space.setOnMouseEntered(new EnterHandler());
+		space.setOnMouseExited(new ExitHandler());
+		marked.add(space);
+	}
+	
+	
+	/**
+	 * Removes selected and highleted effects from all pieces. Only the spaces
+	 * that were given an effect are touched.
 	 */
 	public void removeEffects() {
-		for (int i = 0; i < Board.NUM_POINTS + 2; i++) {
-			for (int j = 0; j < MAX_MEN_PER_POINT; j++) {
-				
-				// Remove event handlers
-				spaces[i].setOnMouseEntered(null);
-				spaces[i].setOnMouseExited(null);
-				
-				// Remove effect from piece
-				spaces[i].removeEffect();
-			}
+		for (Space space: marked) {
+			
+			// Remove event handlers
+			space.setOnMouseEntered(null);
+			space.setOnMouseExited(null);
+			
+			// Remove effect from piece
+			space.removeEffect();
 		}
-
-		topBar.setOnMouseEntered(null);
-		topBar.setOnMouseExited(null);
-		topBar.removeEffect();
-		bottomBar.setOnMouseEntered(null);
-		bottomBar.setOnMouseExited(null);
-		bottomBar.removeEffect();
+		marked.clear();
 	}
 	
 	
@@ -419,40 +437,19 @@ public class BackgammonApplication extends Application {
 			return;
 		}
 		
-		// Find out whether the move is a capturing move.
-		boolean capture = false;
-		if (game.isCapture(selectedIndex, index))
-			capture = true;
-		
-		// Move the the selected piece to the given point
+		// Move the the selected piece to the given point. The game tells the
+		// ChangeHandler which spaces and dice changed, and only those are
+		// updated.
 		game.move(selectedIndex, index);
 		
-		// Update the board to show its new state
-		/*
-		if (selectedIndex == 0 && game.curPlayer() == Backgammon.TOP_PLAYER)
-			topBar.remove();
-		else if (selectedIndex == Board.NUM_POINTS + 1 && game.curPlayer() == Backgammon.BOTTOM_PLAYER)
-			bottomBar.remove();
-		else
-			spaces[selectedIndex].remove();
-		*/
-		if (capture) {
-			//spaces[index].remove();
-			if (game.curOpponent() == Backgammon.TOP_PLAYER)
-				topBar.add(game.curOpponent().menType());
-			else
-				bottomBar.add(game.curOpponent().menType());
-		}
-		spaces[index].add(game.curPlayer().menType());
-		
 		// Play the piece sound
-		pieceSound.play();
+		Assets.play(PIECE_SOUND);
 		
-		// Update die graphics
-		updateDieGraphics();
+		// Allow the move to be taken back
+		undoButton.setDisable(!game.canUndo());
 		
 		// Show movable pieces if the player can still move
-		if (game.hasMove()) {
+		if (!game.hasMoved()) {
 			highlightMovablePieces();
 		}
 		
@@ -475,6 +472,9 @@ public class BackgammonApplication extends Application {
 			return;
 		}
 		
+		// Do not allow moves to be taken back during the animation
+		undoButton.setDisable(true);
+		
 		// Create a temporary player piece to be used for the animation
 		Piece tempPlayerPiece = new Piece(
 				GRID_SQUARE_SIZE,
@@ -592,6 +592,29 @@ public class BackgammonApplication extends Application {
 	
 	
 	
+	/**
+	 * Takes back the last move of the turn and moves its piece back.
+	 */
+	public void undoMove() {
+		
+		int record = game.undo();
+		if (record == MoveRecord.NONE)
+			return;
+		
+		// Regardless, the piece is deselected. The ChangeHandler has already
+		// moved the piece back and put back the die.
+		selected = false;
+		removeEffects();
+		
+		// Play the piece sound
+		Assets.play(PIECE_SOUND);
+		
+		highlightMovablePieces();
+		undoButton.setDisable(!game.canUndo());
+	}
+	
+	
+	
 	/**
 	 * Changes the cursor to a hand
 	 */
@@ -638,6 +661,7 @@ public class BackgammonApplication extends Application {
 					removeEffects();
 					
 					((Space)event.getSource()).select();
+					marked.add((Space)event.getSource());
 					selected = true;
 					selectedIndex = ((Space)event.getSource()).getPointIndex();
 					
@@ -660,8 +684,7 @@ public class BackgammonApplication extends Application {
 		@Override
 		public void handle(MouseEvent event) {
 			game.roll();
-			updateDieGraphics();
-			DieGraphic.diceSound.play();
+			Assets.play(DieGraphic.DICE_SOUND);
 			if (!game.hasMove()) {
 				Timeline waitTimeline = new Timeline();
 				//waitTimeline.setDelay(new Duration(2000.0));
@@ -676,6 +699,37 @@ public class BackgammonApplication extends Application {
 	}
 	
 	
+	/**
+	 * Updates only the spaces and dice that a change to the game touched.
+	 * @author Alex Gill
+	 *
+	 */
+	public class ChangeHandler implements GameListener {
+		@Override
+		public void changed(Backgammon game, int changes) {
+			
+			// The board is built from the game once the opening roll is over
+			if (bottomBar == null)
+				return;
+			
+			for (int i = 0; i < Board.NUM_POINTS + 2; i++) {
+				if (BoardChange.isPointChanged(changes, i))
+					spaces[i].show(game.board().menNumber(i), game.board().menType(i));
+			}
+			
+			Man topMen = Backgammon.TOP_PLAYER.menType();
+			Man bottomMen = Backgammon.BOTTOM_PLAYER.menType();
+			if (BoardChange.isBarChanged(changes, topMen))
+				topBar.show(game.board().hitMen(topMen), topMen);
+			if (BoardChange.isBarChanged(changes, bottomMen))
+				bottomBar.show(game.board().hitMen(bottomMen), bottomMen);
+			
+			if (BoardChange.areDiceChanged(changes))
+				updateDieGraphics();
+		}
+	}
+	
+	
 	/**
 	 * Changes the cursor to a hand when the cursor enters a space.
 	 * @author Alex Gill
@@ -1,16 +1,17 @@
 package tech.octopusdragon.proj.backgammon.gui;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.CompletableFuture;
 
 import javafx.animation.KeyFrame;
-import javafx.animation.KeyValue;
 import javafx.animation.Timeline;
+import javafx.geometry.Rectangle2D;
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
-import javafx.scene.media.Media;
-import javafx.scene.media.MediaPlayer;
+import javafx.scene.image.PixelReader;
+import javafx.scene.image.WritableImage;
 import javafx.util.Duration;
 import tech.octopusdragon.proj.backgammon.Die;
 
@@ -18,6 +19,11 @@ import tech.octopusdragon.proj.backgammon.Die;
 /**
  * A die graphic that, once instantiated, rolls until the roll method is called,
  * at which point, a die value will be shown face-up.
+ * <p>
+ * The frames of the rolling animation are copied once into a single atlas
+ * image, and a rolling die only changes which part of the atlas it shows.
+ * One clock, shared by every rolling die and running only while a die is
+ * rolling, changes the frames, so rolling dice create no objects.
  * @author Alex Gill
  *
  */
@@ -26,57 +32,100 @@ public class DieGraphic extends ImageView {
 	// --- Static constants ---
 	private static final double DURATION = 1000.0;	// Duration of animation
 	private static final int IMAGE_CHANGES = 12;	// Number of image changes
-	private static final String ONE_IMAGE = "diceOne.png";
-	private static final String TWO_IMAGE = "diceTwo.png";
-	private static final String THREE_IMAGE = "diceThree.png";
-	private static final String FOUR_IMAGE = "diceFour.png";
-	private static final String FIVE_IMAGE = "diceFive.png";
-	private static final String SIX_IMAGE = "diceSix.png";
+	private static final String[] FACE_IMAGES = {"diceOne.png", "diceTwo.png", "diceThree.png",
+			"diceFour.png", "diceFive.png", "diceSix.png"};	// Face-up images by value - 1
 	private static final String ANIMATION_DIRECTORY = "Animation";
-	private static final String DICE_SOUND = "dice.wav";
+	private static final int ANIMATION_FRAMES = 32;	// Number of rolling images
+	private static final int ATLAS_COLUMNS = 8;		// Rolling images in each row of the atlas
+	static final String DICE_SOUND = "dice.wav";
 	private static final Random rand = new Random();
 	
 	
 	// --- Static variables ---
-	private static Map<Integer, Image> dieImages;
-	private static Image[] animationImages;
-	public static MediaPlayer diceSound;
+	private static Image atlas;					// Every rolling image in one image
+	private static Rectangle2D[] frames;		// Part of the atlas each rolling image is in
+	private static int[] sequence;				// Random order the rolling images are shown in
+	private static Timeline clock;				// Shows the next frame of every rolling die
+	private static List<DieGraphic> rollingDice;	// Dice the clock is animating
 	
 	
 	// --- Instance variables ---
 	Die die;			// The Die object this graphic represents
-	Timeline animation;	// The animation
 	boolean rolling;	// Whether the rolling animation is going
+	int step;			// Position of the die in the sequence of rolling images
 	
 	
 	/**
-	 * Static constructor instantiates the images and audio used for all die
-	 * graphics.
+	 * Static constructor builds the animation used for all die graphics. The
+	 * face-up images and the dice sound are loaded in the background.
 	 */
 	static {
 		
-		// Create a map of die values and die images
-		dieImages = new HashMap<Integer, Image>();
-		dieImages.put(1, new Image(DieGraphic.class.getClassLoader().getResourceAsStream(ONE_IMAGE)));
-		dieImages.put(2, new Image(DieGraphic.class.getClassLoader().getResourceAsStream(TWO_IMAGE)));
-		dieImages.put(3, new Image(DieGraphic.class.getClassLoader().getResourceAsStream(THREE_IMAGE)));
-		dieImages.put(4, new Image(DieGraphic.class.getClassLoader().getResourceAsStream(FOUR_IMAGE)));
-		dieImages.put(5, new Image(DieGraphic.class.getClassLoader().getResourceAsStream(FIVE_IMAGE)));
-		dieImages.put(6, new Image(DieGraphic.class.getClassLoader().getResourceAsStream(SIX_IMAGE)));
-		
-		// Create an array of images to be used in the rolling animation
-		animationImages = new Image[32];
-		for (int i = 0; i < 32; i++) {
-			animationImages[i] = new Image(DieGraphic.class.getClassLoader().getResourceAsStream(String.format("%s/%02d.png", ANIMATION_DIRECTORY, (i + 1))));
+		// Start decoding the rolling images all at once, then the face-up
+		// images, which are not needed until a die stops
+		List<CompletableFuture<Image>> animationImages = new ArrayList<CompletableFuture<Image>>(ANIMATION_FRAMES);
+		for (int i = 0; i < ANIMATION_FRAMES; i++)
+			animationImages.add(Assets.image(animationImage(i)));
+		preload();
+		
+		// Copy the images used in the rolling animation into one atlas
+		WritableImage writableAtlas = null;
+		frames = new Rectangle2D[ANIMATION_FRAMES];
+		for (int i = 0; i < ANIMATION_FRAMES; i++) {
+			Image image = animationImages.get(i).join();
+			int width = (int)image.getWidth();
+			int height = (int)image.getHeight();
+			if (writableAtlas == null)
+				writableAtlas = new WritableImage(width * ATLAS_COLUMNS,
+						height * ((ANIMATION_FRAMES + ATLAS_COLUMNS - 1) / ATLAS_COLUMNS));
+			int x = width * (i % ATLAS_COLUMNS);
+			int y = height * (i / ATLAS_COLUMNS);
+			PixelReader reader = image.getPixelReader();
+			writableAtlas.getPixelWriter().setPixels(x, y, width, height, reader, 0, 0);
+			frames[i] = new Rectangle2D(x, y, width, height);
 		}
+		atlas = writableAtlas;
 		
-		// Initialize the dice sound
-		diceSound = new MediaPlayer(
-				new Media(
-				DieGraphic.class.getClassLoader().getResource(DICE_SOUND).toExternalForm()));
-		diceSound.setOnEndOfMedia(() -> {
-			diceSound.stop();
-		});
+		// Work out a long random order of rolling images in advance, never
+		// showing the same image twice in a row
+		sequence = new int[ANIMATION_FRAMES * IMAGE_CHANGES];
+		for (int i = 0; i < sequence.length; i++) {
+			do {
+				sequence[i] = rand.nextInt(ANIMATION_FRAMES);
+			} while (i > 0 && sequence[i] == sequence[i - 1]);
+		}
+		
+		// Create the clock that moves every rolling die to its next image
+		rollingDice = new ArrayList<DieGraphic>();
+		clock = new Timeline(new KeyFrame(
+				Duration.millis(DURATION / IMAGE_CHANGES),
+				e -> {
+					for (int i = 0; i < rollingDice.size(); i++)
+						rollingDice.get(i).showNextFrame();
+				}));
+		clock.setCycleCount(Timeline.INDEFINITE);
+	}
+	
+	
+	/**
+	 * Starts loading every image and sound die graphics use, without waiting
+	 * for them.
+	 */
+	static void preload() {
+		for (int i = 0; i < ANIMATION_FRAMES; i++)
+			Assets.preload(animationImage(i));
+		Assets.preload(FACE_IMAGES);
+		Assets.preload(DICE_SOUND);
+	}
+	
+	
+	/**
+	 * Returns the resource name of an image of the rolling animation.
+	 * @param index The index of the image, counting from 0
+	 * @return The resource name
+	 */
+	private static String animationImage(int index) {
+		return String.format("%s/%02d.png", ANIMATION_DIRECTORY, (index + 1));
 	}
 	
 	
@@ -89,11 +138,10 @@ public class DieGraphic extends ImageView {
 		super();
 		this.setPreserveRatio(true);
 		this.setFitWidth(size);
+		stopWhenRemoved();
 		
-		// Instantiate animation
-		animation = new Timeline();
-		playNextKeyFrame();
-		rolling = true;
+		// Start rolling
+		startAnimation();
 	}
 	
 	
@@ -110,37 +158,37 @@ public class DieGraphic extends ImageView {
 		
 		// Instantiate the die
 		this.die = die;
-		
-		// Instantiate animation
-		animation = new Timeline();
+		stopWhenRemoved();
 		
 		// Display the face-up side.
 		if (playAnimation) {
-			playNextKeyFrame();
-			rolling = true;
+			startAnimation();
 		}
 		else {
-			this.setImage(dieImages.get(die.getValue()));
+			this.setImage(Assets.imageNow(FACE_IMAGES[die.getValue() - 1]));
 			rolling = false;
 		}
 	}
 	
 	
 	/**
-	 * Returns the Die object that this die graphic represents
-	 * @return The Die object
+	 * Makes the die stop rolling once it is taken out of the scene, so the
+	 * clock does not keep animating dice that cannot be seen.
 	 */
-	public Die getDie() {
-		return die;
+	private void stopWhenRemoved() {
+		sceneProperty().addListener((observable, oldScene, newScene) -> {
+			if (newScene == null)
+				stopRolling();
+		});
 	}
 	
 	
 	/**
-	 * Returns the timeline animation of the die graphic
-	 * @return
+	 * Returns the Die object that this die graphic represents
+	 * @return The Die object
 	 */
-	public Timeline getAnimation() {
-		return animation;
+	public Die getDie() {
+		return die;
 	}
 	
 	
@@ -154,24 +202,42 @@ public class DieGraphic extends ImageView {
 	
 	
 	/**
-	 * Plays the next key frame in the infinite rolling animation
+	 * Starts the rolling animation, starting the shared clock if no other die
+	 * is rolling.
 	 */
-	public void playNextKeyFrame() {
+	private void startAnimation() {
+		rolling = true;
+		step = rand.nextInt(sequence.length);
+		this.setImage(atlas);
+		this.setViewport(frames[sequence[step]]);
 		
-		// Generate a key frame that displays a random die image
-		int animationImageIndex = rand.nextInt(animationImages.length);
-		KeyValue changeImage = new KeyValue(
-				this.imageProperty(),
-				animationImages[animationImageIndex]);
+		rollingDice.add(this);
+		if (rollingDice.size() == 1)
+			clock.play();
+	}
+	
+	
+	/**
+	 * Shows the next image of the rolling animation.
+	 */
+	private void showNextFrame() {
+		step = (step + 1) % sequence.length;
+		this.setViewport(frames[sequence[step]]);
+	}
+	
+	
+	/**
+	 * Takes the die off the shared clock, stopping the clock if no other die
+	 * is rolling.
+	 */
+	private void stopRolling() {
+		if (!rolling)
+			return;
 		
-		// Restart the animation with the new value
-		animation.stop();
-		animation.getKeyFrames().clear();
-		animation.getKeyFrames().add(new KeyFrame(
-				Duration.millis(DURATION / IMAGE_CHANGES),
-				e -> playNextKeyFrame(),
-				changeImage));
-		animation.play();
+		rolling = false;
+		rollingDice.remove(this);
+		if (rollingDice.isEmpty())
+			clock.stop();
 	}
 	
 	
@@ -218,13 +284,12 @@ public class DieGraphic extends ImageView {
 	 * Stops the animation and shows the face side up die
 	 */
 	public void stopAnimation() {
-		animation.stop();
+		stopRolling();
 		
-		this.setImage(dieImages.get(die.getValue()));
+		this.setViewport(null);
+		this.setImage(Assets.imageNow(FACE_IMAGES[die.getValue() - 1]));
 		
-		diceSound.play();
-		
-		rolling = false;
+		Assets.play(DICE_SOUND);
 	}
 	
 	
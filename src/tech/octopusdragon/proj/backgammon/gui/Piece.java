@@ -3,6 +3,8 @@ package tech.octopusdragon.proj.backgammon.gui;
 import javafx.animation.KeyFrame;
 import javafx.animation.KeyValue;
 import javafx.animation.Timeline;
+import javafx.beans.property.ObjectProperty;
+import javafx.beans.property.SimpleObjectProperty;
 import javafx.scene.Group;
 import javafx.scene.effect.BlurType;
 import javafx.scene.effect.InnerShadow;
@@ -24,12 +26,33 @@ public class Piece extends Group {
 	private static final Color SELECT_COLOR = Color.YELLOW;
 	private static final Color HIGHLIGHT_COLOR = Color.YELLOW;
 	private static final double FADE_DURATION = 1500.0;
-
+	
+	
+	// --- Static variables ---
+	private static final ObjectProperty<Color> pulse =
+			new SimpleObjectProperty<Color>(HIGHLIGHT_COLOR);	// Glow color all highlighted pieces share
+	private static final Timeline pulseAnimation = new Timeline(
+			new KeyFrame(Duration.ZERO, new KeyValue(pulse, HIGHLIGHT_COLOR)),
+			new KeyFrame(Duration.millis(FADE_DURATION),
+					new KeyValue(pulse, Color.web(HIGHLIGHT_COLOR.toString(), 0))));	// Fades the glow in and out
+	private static int numHighlighted;	// Number of pieces bound to the pulse
+	
+	
+	/**
+	 * Static constructor sets the pulse to fade in and out until it is
+	 * stopped.
+	 */
+	static {
+		pulseAnimation.setCycleCount(Timeline.INDEFINITE);
+		pulseAnimation.setAutoReverse(true);
+	}
+	
 	
 	// --- Instance variables ---
 	private double size;	// The width and height of the square
 	private boolean highlighted;	// Whether the piece is highlighted
 	private boolean selected;		//Whether the piece is selected
+	private InnerShadow glow;		// Effect shown when highlighted or selected
 	
 	
 	// --- GUI components ---
@@ -117,6 +140,13 @@ public class Piece extends Group {
 		
 		// Put everything together
 		this.getChildren().add(group);
+		
+		
+		// Create the glow once, to be reused whenever the piece is highlighted
+		// or selected
+		glow = new InnerShadow();
+		glow.setBlurType(BlurType.THREE_PASS_BOX);
+		glow.setRadius(size);
 	}
 	
 	
@@ -179,30 +209,24 @@ public class Piece extends Group {
 	
 	
 	/**
-	 * Visually shows that this piece has can be moved.
+	 * Visually shows that this piece has can be moved. The glow fades in and
+	 * out with the pulse shared by every highlighted piece, which only runs
+	 * while at least one piece is highlighted.
 	 */
 	public void highlight() {
 		
+		if (highlighted)
+			return;
+		
 		// Set this piece as highlighted
 		selected = false;
 		highlighted = true;
 		
-		// Add a glowing effect
-		InnerShadow glow = new InnerShadow();
-		glow.setBlurType(BlurType.THREE_PASS_BOX);
-		glow.setColor(HIGHLIGHT_COLOR);
-		glow.setRadius(size);
+		// Add a glowing effect that follows the shared pulse
+		glow.colorProperty().bind(pulse);
 		this.setEffect(glow);
-		
-		// Create an animation that fades the glow in and out
-		Timeline timeline = new Timeline();
-		timeline.setCycleCount(Timeline.INDEFINITE);
-		timeline.setAutoReverse(true);
-		KeyValue kv = new KeyValue(glow.colorProperty(),
-				Color.web(HIGHLIGHT_COLOR.toString(), 0));
-		KeyFrame kf = new KeyFrame(Duration.millis(FADE_DURATION), kv);
-		timeline.getKeyFrames().add(kf);
-		timeline.play();
+		if (numHighlighted++ == 0)
+			pulseAnimation.playFromStart();
 	}
 	
 	
@@ -212,14 +236,11 @@ public class Piece extends Group {
 	public void select() {
 		
 		// Set this piece as selected
-		highlighted = false;
+		stopPulse();
 		selected = true;
 		
 		// Add a glowing effect
-		InnerShadow glow = new InnerShadow();
-		glow.setBlurType(BlurType.THREE_PASS_BOX);
 		glow.setColor(SELECT_COLOR);
-		glow.setRadius(size);
 		this.setEffect(glow);
 	}
 	
@@ -230,10 +251,25 @@ public class Piece extends Group {
 	public void removeEffect() {
 		
 		// Set this piece as neither selected or highlighted
+		stopPulse();
 		selected = false;
-		highlighted = false;
 		
 		// Remove the effect
 		this.setEffect(null);
 	}
+	
+	
+	/**
+	 * Stops the glow following the shared pulse if the piece is highlighted,
+	 * and stops the pulse once no piece is highlighted.
+	 */
+	private void stopPulse() {
+		if (!highlighted)
+			return;
+		
+		highlighted = false;
+		glow.colorProperty().unbind();
+		if (--numHighlighted == 0)
+			pulseAnimation.stop();
+	}
 }
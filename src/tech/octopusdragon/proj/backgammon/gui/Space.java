@@ -25,6 +25,7 @@ public class Space extends StackPane {
 	private GridPane gridPane;
 	private List<Piece> pieces;
 	private GhostPiece ghostPiece;
+	private Man type;		// Type of the men on the space
 	
 	
 	/**
@@ -90,6 +91,7 @@ public class Space extends StackPane {
 	
 	
 	public void add(Man type) {
+		this.type = type;
 		Piece newPiece = new Piece(BackgammonApplication.GRID_SQUARE_SIZE, pieces.size() / BackgammonApplication.MAX_MEN_PER_POINT + 1, type);
 		gridPane.add(newPiece, 0, nextSpot());
 		pieces.add(newPiece);
@@ -97,8 +99,27 @@ public class Space extends StackPane {
 	
 	
 	public void remove() {
-		gridPane.getChildren().remove(pieces.get(pieces.size() - 1));
-		pieces.remove(pieces.size() - 1);
+		Piece piece = pieces.remove(pieces.size() - 1);
+		piece.removeEffect();
+		gridPane.getChildren().remove(piece);
+	}
+	
+	
+	/**
+	 * Adds or removes pieces until the space shows the given men, leaving the
+	 * pieces that are already right alone.
+	 * @param numMen The number of men
+	 * @param type The type of men
+	 */
+	public void show(int numMen, Man type) {
+		if (type != this.type) {
+			while (!pieces.isEmpty())
+				remove();
+		}
+		while (pieces.size() > numMen)
+			remove();
+		while (pieces.size() < numMen)
+			add(type);
 	}
 	
 	
@@ -0,0 +1,68 @@
+package tech.octopusdragon.proj.backgammon.io;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+
+/**
+ * A text format that files of games are written in. A format finds where
+ * each game starts and ends in a stream without understanding it, so that
+ * the games can then be parsed on any thread, in any order.
+ * @author Alex Gill
+ *
+ */
+public interface GameFormat {
+	
+	/**
+	 * Reads the text of the next game, skipping anything before it that is
+	 * not part of a game.
+	 * @param in The stream
+	 * @return The text of the game, or null if there are no more games
+	 * @throws IOException If the stream cannot be read
+	 */
+	String next(BufferedReader in) throws IOException;
+	
+	
+	/**
+	 * Parses the text of a game, checking every play with the rules engine.
+	 * Safe to call from any number of threads at once.
+	 * @param game The text of the game
+	 * @return The record of the game
+	 * @throws IllegalArgumentException If the text is not a valid game
+	 */
+	GameRecord parse(String game);
+	
+	
+	/**
+	 * Writes anything that comes before the first game of a file.
+	 * @param out Where to write
+	 * @throws IOException If writing fails
+	 */
+	default void writeHeader(Appendable out) throws IOException {
+	}
+	
+	
+	/**
+	 * Writes a game.
+	 * @param game The record of the game
+	 * @param number The number of the game in the file, from 1
+	 * @param out Where to write
+	 * @throws IOException If writing fails
+	 */
+	void write(GameRecord game, int number, Appendable out) throws IOException;
+	
+	
+	/**
+	 * Returns the format of a file from its name.
+	 * @param fileName The name of the file
+	 * @return The format
+	 * @throws IllegalArgumentException If the extension is not known
+	 */
+	static GameFormat forName(String fileName) {
+		String name = fileName.toLowerCase();
+		if (name.endsWith(".mat") || name.endsWith(".txt"))
+			return new MatFormat();
+		if (name.endsWith(".sgf"))
+			return new SgfFormat();
+		throw new IllegalArgumentException("Unknown game file format: " + fileName);
+	}
+}
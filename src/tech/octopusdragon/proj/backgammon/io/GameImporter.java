@@ -0,0 +1,229 @@
+package tech.octopusdragon.proj.backgammon.io;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
+
+/**
+ * Reads files of games in a text format. The file is read as a stream by
+ * one thread, which only finds where each game starts and ends, while the
+ * games themselves are parsed and checked on a fork/join pool. Only a few
+ * games per thread are read ahead of the one being handed on, so a file of
+ * any size is read in constant memory, and the games are handed on in the
+ * order they are in the file.
+ * @author Alex Gill
+ *
+ */
+public class GameImporter {
+	
+	// --- Constants ---
+	public static final Charset CHARSET = StandardCharsets.ISO_8859_1;	// Default character set of both formats
+	private static final int GAMES_PER_THREAD = 4;	// Games read ahead for each thread
+	
+	
+	// --- Instance variables ---
+	private GameFormat format;		// Format of the files
+	private ForkJoinPool pool;		// Pool the games are parsed on
+	private Consumer<IllegalArgumentException> errorHandler;	// Told about invalid games, or null
+	
+	
+	/**
+	 * Instantiates an importer that uses every core.
+	 * @param format The format of the files
+	 */
+	public GameImporter(GameFormat format) {
+		this(format, ForkJoinPool.commonPool());
+	}
+	
+	
+	/**
+	 * Instantiates an importer that parses games on the given pool.
+	 * @param format The format of the files
+	 * @param pool The pool to parse the games on
+	 */
+	public GameImporter(GameFormat format, ForkJoinPool pool) {
+		this.format = format;
+		this.pool = pool;
+	}
+	
+	
+	/**
+	 * Skips games that are not valid instead of stopping at the first one.
+	 * @param errorHandler Told why each invalid game was skipped, or null to
+	 * stop reading at the first one
+	 */
+	public void setErrorHandler(Consumer<IllegalArgumentException> errorHandler) {
+		this.errorHandler = errorHandler;
+	}
+	
+	
+	/**
+	 * Reads every game in a file.
+	 * @param file The file
+	 * @param games Given each game in turn
+	 * @return The number of games read
+	 * @throws IOException If the file cannot be read
+	 * @throws IllegalArgumentException If a game is not valid and there is no
+	 * error handler
+	 */
+	public long read(Path file, Consumer<GameRecord> games) throws IOException {
+		try (BufferedReader in = Files.newBufferedReader(file, CHARSET)) {
+			return read(in, games);
+		}
+	}
+	
+	
+	/**
+	 * Reads every game in a stream.
+	 * @param in The stream
+	 * @param games Given each game in turn, on the calling thread
+	 * @return The number of games read
+	 * @throws IOException If the stream cannot be read
+	 * @throws IllegalArgumentException If a game is not valid and there is no
+	 * error handler
+	 */
+	public long read(Reader in, Consumer<GameRecord> games) throws IOException {
+		BufferedReader reader = in instanceof BufferedReader ? (BufferedReader)in: new BufferedReader(in);
+		Queue<ParseTask> parsing = new ArrayDeque<ParseTask>();
+		int ahead = pool.getParallelism() * GAMES_PER_THREAD;
+		long found = 0;
+		long read = 0;
+		
+		String text;
+		while ((text = format.next(reader)) != null) {
+			ParseTask task = new ParseTask(text, ++found);
+			pool.execute(task);
+			parsing.add(task);
+			if (parsing.size() >= ahead)
+				read += handOn(parsing.remove(), games);
+		}
+		while (!parsing.isEmpty())
+			read += handOn(parsing.remove(), games);
+		
+		return read;
+	}
+	
+	
+	/**
+	 * Waits for a game to be parsed and hands it on.
+	 * @param task The task parsing the game
+	 * @param games Given the game
+	 * @return 1 if the game was handed on, or 0 if it was not valid
+	 */
+	private int handOn(ParseTask task, Consumer<GameRecord> games) {
+		GameRecord game = task.join();
+		if (task.error != null) {
+			if (errorHandler == null)
+				throw task.error;
+			errorHandler.accept(task.error);
+			return 0;
+		}
+		games.accept(game);
+		return 1;
+	}
+	
+	
+	/**
+	 * Parses one game. A game that is not valid is kept as an error rather
+	 * than thrown, so that it can be handed on in order with the others.
+	 * @author Alex Gill
+	 *
+	 */
+	private class ParseTask extends RecursiveTask<GameRecord> {
+		
+		private static final long serialVersionUID = 1L;
+		
+		private String text;					// Text of the game
+		private long number;					// Number of the game in the file
+		private IllegalArgumentException error;	// Why the game is not valid, or null
+		
+		
+		/**
+		 * Instantiates the task.
+		 * @param text The text of the game
+		 * @param number The number of the game in the file
+		 */
+		ParseTask(String text, long number) {
+			this.text = text;
+			this.number = number;
+		}
+		
+		
+		@Override
+		protected GameRecord compute() {
+			try {
+				return format.parse(text);
+			}
+			catch (IllegalArgumentException | IllegalStateException e) {
+				error = new IllegalArgumentException("Game " + number + ": " + e.getMessage(), e);
+				return null;
+			}
+		}
+	}
+	
+	
+	/**
+	 * Converts a file of games to another format. The format of each file
+	 * comes from its extension: .mat or .txt for match transcripts, .sgf for
+	 * the Smart Game Format, or .log for a game log.
+	 * @param args The file to read and the file to write
+	 * @throws IOException If a file cannot be read or written
+	 */
+	public static void main(String[] args) throws IOException {
+		Path in = Paths.get(args[0]);
+		Path out = Paths.get(args[1]);
+		
+		if (out.toString().endsWith(".log")) {
+			try (GameLog log = new GameLog(out)) {
+				readAny(in, log::append);
+			}
+			return;
+		}
+		
+		GameFormat format = GameFormat.forName(out.toString());
+		try (Writer writer = Files.newBufferedWriter(out, CHARSET)) {
+			format.writeHeader(writer);
+			int[] number = {0};
+			readAny(in, game -> {
+				try {
+					format.write(game, ++number[0], writer);
+				}
+				catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			});
+		}
+	}
+	
+	
+	/**
+	 * Reads every game in a file in any of the formats main converts from.
+	 * @param file The file
+	 * @param games Given each game in turn
+	 * @throws IOException If the file cannot be read
+	 */
+	private static void readAny(Path file, Consumer<GameRecord> games) throws IOException {
+		if (file.toString().endsWith(".log")) {
+			GameLogReader log = new GameLogReader(file);
+			for (int i = 0; i < log.games(); i++)
+				games.accept(log.record(i));
+		}
+		else {
+			GameImporter importer = new GameImporter(GameFormat.forName(file.toString()));
+			importer.setErrorHandler(e -> System.err.println(e.getMessage()));
+			importer.read(file, games);
+		}
+	}
+}
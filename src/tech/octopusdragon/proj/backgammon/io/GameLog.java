@@ -0,0 +1,411 @@
+package tech.octopusdragon.proj.backgammon.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import tech.octopusdragon.proj.backgammon.Backgammon;
+import tech.octopusdragon.proj.backgammon.Die;
+import tech.octopusdragon.proj.backgammon.GameListener;
+import tech.octopusdragon.proj.backgammon.MoveRecord;
+import tech.octopusdragon.proj.backgammon.Player;
+
+/**
+ * An append-only file of finished games. Each game is stored as the rolls,
+ * moves and take-backs that were made in it, in the order they were made,
+ * which is enough to replay it exactly. Every one of these operations is a
+ * single small number, a value with a two-bit tag below it, written as a
+ * varint of seven bits per byte, so most take one or two bytes. A game is
+ * written as its length in bytes followed by its operations.
+ * <p>
+ * A recorder listens to one game at a time and keeps its operations in
+ * memory, so the game loop never waits on the file. Only finished games are
+ * appended, a whole game at a time, through a buffer that is written out
+ * when it fills. Recorders of games on different threads can share one log.
+ * @author Alex Gill
+ *
+ */
+public class GameLog implements Closeable {
+	
+	// --- Constants ---
+	static final int MAGIC = 0x42474C31;			// First int of the file
+	static final int HEADER_SIZE = Integer.BYTES;	// Bytes before the first game
+	public static final int ROLL = 0;	// Tag of a roll of the dice
+	public static final int MOVE = 1;	// Tag of a move
+	public static final int UNDO = 2;	// Tag of a move being taken back
+	public static final int END = 3;	// Tag of the end of the game
+	
+	private static final int TAG_BITS = 2;				// Bits holding the tag
+	private static final int TAG_MASK = (1 << TAG_BITS) - 1;
+	private static final int BUFFER_SIZE = 1 << 16;		// Bytes buffered before writing
+	private static final int MAX_VARINT = 5;			// Most bytes an int takes
+	
+	
+	// --- Instance variables ---
+	private final FileChannel channel;	// The open file
+	private final ByteBuffer buffer;	// Games not yet written to the file
+	
+	
+	/**
+	 * Opens a log file for appending, creating it if it does not exist. A
+	 * game cut off at the end of the file by a crash is removed, so that new
+	 * games follow the last whole one and can still be read.
+	 * @param file The file
+	 * @throws IOException If the file cannot be opened or is not a game log
+	 */
+	public GameLog(Path file) throws IOException {
+		channel = FileChannel.open(file,
+				StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+		try {
+			if (channel.size() == 0)
+				buffer.putInt(MAGIC);
+			else {
+				long end = completeEnd(file);
+				channel.truncate(end);
+				channel.position(end);
+			}
+		}
+		catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+	}
+	
+	
+	/**
+	 * Finds where the last whole game in the file ends, by following the
+	 * length of each game from the first one. The buffer is used to read the
+	 * file and is left empty.
+	 * @param file The file, for error messages
+	 * @return The offset just after the last whole game
+	 * @throws IOException If the file cannot be read or is not a game log
+	 */
+	private long completeEnd(Path file) throws IOException {
+		long size = channel.size();
+		long start = fill(0);	// Offset in the file of the buffer
+		if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC)
+			throw new IOException(file + " is not a game log");
+		
+		long at = HEADER_SIZE;
+		while (at < size) {
+			if (at + MAX_VARINT > start + buffer.limit())
+				start = fill(at);
+			
+			// Read the length of the game
+			int position = (int)(at - start);
+			int length = -1;
+			for (int shift = 0, value = 0; position < buffer.limit() && shift < Integer.SIZE; shift += 7) {
+				byte b = buffer.get(position++);
+				value |= (b & 0x7F) << shift;
+				if (b >= 0) {
+					length = value;
+					break;
+				}
+			}
+			
+			long next = start + position + length;
+			if (length < 0 || next > size)
+				break;
+			at = next;
+		}
+		
+		buffer.clear();
+		return at;
+	}
+	
+	
+	/**
+	 * Fills the buffer with the file from an offset, or up to its end.
+	 * @param offset The offset
+	 * @return The offset
+	 * @throws IOException If the file cannot be read
+	 */
+	private long fill(long offset) throws IOException {
+		buffer.clear();
+		while (buffer.hasRemaining())
+			if (channel.read(buffer, offset + buffer.position()) < 0)
+				break;
+		buffer.flip();
+		return offset;
+	}
+	
+	
+	/**
+	 * Returns a new recorder that appends the games it listens to to this
+	 * log.
+	 * @return The recorder
+	 */
+	public Recorder recorder() {
+		return new Recorder();
+	}
+	
+	
+	/**
+	 * Appends a game, such as one read from a file in another format.
+	 * @param game The record of the game
+	 * @throws UncheckedIOException If the file cannot be written
+	 */
+	public void append(GameRecord game) {
+		Recorder recorder = new Recorder();
+		for (int i = 0; i < game.size(); i++)
+			recorder.put(game.op(i));
+		append(recorder.ops, recorder.size);
+	}
+	
+	
+	/**
+	 * Appends a finished game.
+	 * @param ops The operations of the game, as varints
+	 * @param length The number of bytes of operations
+	 * @throws UncheckedIOException If the file cannot be written
+	 */
+	private synchronized void append(byte[] ops, int length) {
+		try {
+			if (buffer.remaining() < MAX_VARINT + length)
+				write();
+			
+			putVarint(length);
+			if (buffer.remaining() >= length)
+				buffer.put(ops, 0, length);
+			else {
+				write();
+				ByteBuffer game = ByteBuffer.wrap(ops, 0, length);
+				while (game.hasRemaining())
+					channel.write(game);
+			}
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+	
+	
+	/**
+	 * Puts a varint in the buffer.
+	 * @param value The value, which is not negative
+	 */
+	private void putVarint(int value) {
+		while (value >= 0x80) {
+			buffer.put((byte)(value | 0x80));
+			value >>>= 7;
+		}
+		buffer.put((byte)value);
+	}
+	
+	
+	/**
+	 * Writes the buffered games to the file.
+	 * @throws IOException If the file cannot be written
+	 */
+	private void write() throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining())
+			channel.write(buffer);
+		buffer.clear();
+	}
+	
+	
+	/**
+	 * Writes every game appended so far to the file.
+	 * @throws IOException If the file cannot be written
+	 */
+	public synchronized void flush() throws IOException {
+		write();
+	}
+	
+	
+	/**
+	 * Writes every game appended so far and closes the file. Games still
+	 * being recorded are not written.
+	 * @throws IOException If the file cannot be written
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		try {
+			write();
+		}
+		finally {
+			channel.close();
+		}
+	}
+	
+	
+	/**
+	 * Returns a roll of the dice.
+	 * @param die1 The value of the first die
+	 * @param die2 The value of the second die
+	 * @return The operation
+	 */
+	static int roll(int die1, int die2) {
+		return ((die1 - 1) * Die.NUM_SIDES + die2 - 1) << TAG_BITS | ROLL;
+	}
+	
+	
+	/**
+	 * Returns a move.
+	 * @param fromIndex The index of the point the man leaves
+	 * @param die The value of the die used
+	 * @return The operation
+	 */
+	static int move(int fromIndex, int die) {
+		return (fromIndex * Die.NUM_SIDES + die - 1) << TAG_BITS | MOVE;
+	}
+	
+	
+	/**
+	 * Returns the end of a game.
+	 * @param winner The winner
+	 * @param points The number of points won
+	 * @return The operation
+	 */
+	static int end(Player winner, int points) {
+		return (points << 1 | (winner == Backgammon.TOP_PLAYER ? 0: 1)) << TAG_BITS | END;
+	}
+	
+	
+	/**
+	 * Returns the tag of an operation.
+	 * @param op The operation
+	 * @return ROLL, MOVE, UNDO or END
+	 */
+	public static int tag(int op) {
+		return op & TAG_MASK;
+	}
+	
+	
+	/**
+	 * Returns the value of the first die of a roll.
+	 * @param op The roll
+	 * @return The value of the die
+	 */
+	public static int die1(int op) {
+		return (op >>> TAG_BITS) / Die.NUM_SIDES + 1;
+	}
+	
+	
+	/**
+	 * Returns the value of the second die of a roll.
+	 * @param op The roll
+	 * @return The value of the die
+	 */
+	public static int die2(int op) {
+		return (op >>> TAG_BITS) % Die.NUM_SIDES + 1;
+	}
+	
+	
+	/**
+	 * Returns the index of the point a man left in a move.
+	 * @param op The move
+	 * @return The from index
+	 */
+	public static int fromIndex(int op) {
+		return (op >>> TAG_BITS) / Die.NUM_SIDES;
+	}
+	
+	
+	/**
+	 * Returns the value of the die used in a move.
+	 * @param op The move
+	 * @return The value of the die
+	 */
+	public static int die(int op) {
+		return (op >>> TAG_BITS) % Die.NUM_SIDES + 1;
+	}
+	
+	
+	/**
+	 * Returns the index of the point a man landed on in a move. The point is
+	 * not stored, since it follows from the point the man left, the die and
+	 * which way the player moves.
+	 * @param op The move
+	 * @param player The player who moved, who is the one who rolled last
+	 * @return The to index
+	 */
+	public static int toIndex(int op, Player player) {
+		int to = fromIndex(op) + Backgammon.direction(player) * die(op);
+		int off = Backgammon.offboard(player);
+		return Backgammon.direction(player) > 0 ? Math.min(to, off): Math.max(to, off);
+	}
+	
+	
+	/**
+	 * Returns the winner of a game from its end.
+	 * @param op The end
+	 * @return The winner
+	 */
+	public static Player winner(int op) {
+		return (op >>> TAG_BITS & 1) == 0 ? Backgammon.TOP_PLAYER: Backgammon.BOTTOM_PLAYER;
+	}
+	
+	
+	/**
+	 * Returns the number of points a game was won with from its end.
+	 * @param op The end
+	 * @return 1 for a single game, 2 for a gammon or 3 for a backgammon, times
+	 * the cube if the game was played with one
+	 */
+	public static int gameValue(int op) {
+		return op >>> (TAG_BITS + 1);
+	}
+	
+	
+	/**
+	 * Listens to games and appends each one to the log when it ends. A
+	 * recorder can be used for one game after another, but not for two at
+	 * once.
+	 * @author Alex Gill
+	 *
+	 */
+	public class Recorder implements GameListener {
+		
+		private byte[] ops = new byte[256];	// Operations of the game so far
+		private int size;					// Number of bytes of operations
+		
+		
+		@Override
+		public void rolled(Backgammon game, int die1, int die2) {
+			put(roll(die1, die2));
+		}
+		
+		
+		@Override
+		public void moved(Backgammon game, int record) {
+			put(move(MoveRecord.fromIndex(record), MoveRecord.die(record)));
+		}
+		
+		
+		@Override
+		public void undone(Backgammon game, int record) {
+			put(UNDO);
+		}
+		
+		
+		@Override
+		public void ended(Backgammon game) {
+			put(end(game.winner(), game.gameValue()));
+			append(ops, size);
+			size = 0;
+		}
+		
+		
+		/**
+		 * Adds an operation to the game as a varint.
+		 * @param op The operation
+		 */
+		private void put(int op) {
+			if (size + MAX_VARINT > ops.length)
+				ops = Arrays.copyOf(ops, ops.length * 2);
+			while (op >= 0x80) {
+				ops[size++] = (byte)(op | 0x80);
+				op >>>= 7;
+			}
+			ops[size++] = (byte)op;
+		}
+	}
+}
@@ -0,0 +1,266 @@
+package tech.octopusdragon.proj.backgammon.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import tech.octopusdragon.proj.backgammon.Backgammon;
+import tech.octopusdragon.proj.backgammon.Player;
+
+/**
+ * Reads a game log. The file is memory-mapped read-only and only the
+ * position of each game is read up front, so any game can be found at once
+ * without reading the ones before it. A buffer can map at most 2GB, so a
+ * larger file is mapped in several windows, each of which ends where a game
+ * ends. The operations of a game are read straight from the mapped file by
+ * their offsets, which creates no objects:
+ * <pre>
+ * for (long at = reader.start(game); at &lt; reader.end(game); at = reader.next(at)) {
+ *     int op = reader.op(at);
+ *     ...
+ * }
+ * </pre>
+ * An offset holds the number of the window in its upper 32 bits and the
+ * position in the window in its lower 32 bits, so offsets only grow through
+ * the log. A game that was cut off by a crash while being appended is left
+ * out. Safe to share between threads.
+ * @author Alex Gill
+ *
+ */
+public class GameLogReader {
+	
+	// --- Constants ---
+	private static final int MAX_WINDOW = Integer.MAX_VALUE;	// Most bytes mapped by one buffer
+	private static final int POSITION_BITS = Integer.SIZE;		// Bits of an offset holding the position
+	private static final long POSITION_MASK = (1L << POSITION_BITS) - 1;
+	
+	
+	// --- Instance variables ---
+	private final ByteBuffer[] windows;	// The mapped parts of the file
+	private long[] starts;				// Offset of the first operation of each game
+	private long[] ends;				// Offset just after the last operation of each game
+	private int games;					// Number of games
+	
+	
+	/**
+	 * Maps a log file into memory and finds the games in it.
+	 * @param file The file
+	 * @throws IOException If the file cannot be read or is not a game log
+	 */
+	public GameLogReader(Path file) throws IOException {
+		this(file, MAX_WINDOW);
+	}
+	
+	
+	/**
+	 * Maps a log file into memory in windows of up to the given size and
+	 * finds the games in it.
+	 * @param file The file
+	 * @param windowSize The most bytes to map in one window
+	 * @throws IOException If the file cannot be read, is not a game log, or
+	 * has a game larger than a window
+	 */
+	GameLogReader(Path file, int windowSize) throws IOException {
+		starts = new long[1024];
+		ends = new long[1024];
+		List<ByteBuffer> mapped = new ArrayList<ByteBuffer>();
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			long size = channel.size();
+			long base = 0;	// Offset in the file of the window
+			while (true) {
+				ByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, base,
+						Math.min(size - base, windowSize));
+				long number = mapped.size();
+				mapped.add(window);
+				
+				int first = 0;
+				if (number == 0) {
+					if (window.limit() < GameLog.HEADER_SIZE || window.getInt(0) != GameLog.MAGIC)
+						throw new IOException(file + " is not a game log");
+					first = GameLog.HEADER_SIZE;
+				}
+				
+				// Find the games that fit entirely in the window
+				int at = first;
+				while (at < window.limit()) {
+					int length = varint(window, at);
+					int start = next(window, at);
+					if (length < 0 || (long)start + length > window.limit())
+						break;
+					
+					if (games == starts.length) {
+						starts = Arrays.copyOf(starts, games * 2);
+						ends = Arrays.copyOf(ends, games * 2);
+					}
+					starts[games] = number << POSITION_BITS | start;
+					ends[games] = number << POSITION_BITS | start + length;
+					games++;
+					at = start + length;
+				}
+				
+				// Start the next window where the first game left out starts,
+				// unless the window reaches the end of the file
+				if (base + window.limit() == size)
+					break;
+				if (at == first)
+					throw new IOException(file + " has a game larger than " + windowSize + " bytes");
+				base += at;
+			}
+		}
+		windows = mapped.toArray(new ByteBuffer[mapped.size()]);
+	}
+	
+	
+	/**
+	 * Returns the number of games in the log.
+	 * @return The number of games
+	 */
+	public int games() {
+		return games;
+	}
+	
+	
+	/**
+	 * Returns where the operations of a game start.
+	 * @param game The number of the game, from 0
+	 * @return The offset of the first operation
+	 */
+	public long start(int game) {
+		return starts[game];
+	}
+	
+	
+	/**
+	 * Returns where the operations of a game end.
+	 * @param game The number of the game, from 0
+	 * @return The offset just after the last operation
+	 */
+	public long end(int game) {
+		return ends[game];
+	}
+	
+	
+	/**
+	 * Reads an operation, which GameLog can take apart.
+	 * @param offset The offset of the operation
+	 * @return The operation
+	 */
+	public int op(long offset) {
+		return varint(windows[(int)(offset >>> POSITION_BITS)], (int)(offset & POSITION_MASK));
+	}
+	
+	
+	/**
+	 * Returns where the operation after the one at an offset starts.
+	 * @param offset The offset of an operation
+	 * @return The offset of the next operation
+	 */
+	public long next(long offset) {
+		int position = next(windows[(int)(offset >>> POSITION_BITS)], (int)(offset & POSITION_MASK));
+		return offset & ~POSITION_MASK | position;
+	}
+	
+	
+	/**
+	 * Returns where the varint after the one at a position starts.
+	 * @param window The window holding the varint
+	 * @param position The position of the varint in the window
+	 * @return The position of the next varint
+	 */
+	private static int next(ByteBuffer window, int position) {
+		while (position < window.limit() && window.get(position) < 0)
+			position++;
+		return position + 1;
+	}
+	
+	
+	/**
+	 * Reads a varint.
+	 * @param window The window holding the varint
+	 * @param position The position of the varint in the window
+	 * @return The value, or -1 if the window ends before the varint does
+	 */
+	private static int varint(ByteBuffer window, int position) {
+		int value = 0;
+		for (int shift = 0; position < window.limit() && shift < Integer.SIZE; shift += 7) {
+			byte b = window.get(position++);
+			value |= (b & 0x7F) << shift;
+			if (b >= 0)
+				return value;
+		}
+		return -1;
+	}
+	
+	
+	/**
+	 * Returns the last operation of a game, which is its end.
+	 * @param game The number of the game, from 0
+	 * @return The end
+	 */
+	private int last(int game) {
+		int op = -1;
+		for (long at = start(game); at < end(game); at = next(at))
+			op = op(at);
+		return op;
+	}
+	
+	
+	/**
+	 * Returns the winner of a game.
+	 * @param game The number of the game, from 0
+	 * @return The winner
+	 */
+	public Player winner(int game) {
+		return GameLog.winner(last(game));
+	}
+	
+	
+	/**
+	 * Returns the number of points a game was won with.
+	 * @param game The number of the game, from 0
+	 * @return 1 for a single game, 2 for a gammon or 3 for a backgammon
+	 */
+	public int gameValue(int game) {
+		return GameLog.gameValue(last(game));
+	}
+	
+	
+	/**
+	 * Reads the operations of a game into a record.
+	 * @param game The number of the game, from 0
+	 * @return The record
+	 */
+	public GameRecord record(int game) {
+		GameRecord record = new GameRecord();
+		for (long at = start(game); at < end(game); at = next(at))
+			record.add(op(at));
+		return record;
+	}
+	
+	
+	/**
+	 * Replays a whole game.
+	 * @param game The number of the game, from 0
+	 * @return The game as it ended
+	 */
+	public Backgammon replay(int game) {
+		return record(game).replay();
+	}
+	
+	
+	/**
+	 * Replays the start of a game.
+	 * @param game The number of the game, from 0
+	 * @param ops The number of operations to replay
+	 * @return The game after the given number of operations, which rolls
+	 * any dice after that at random
+	 */
+	public Backgammon replay(int game, int ops) {
+		return record(game).replay(ops);
+	}
+}
@@ -0,0 +1,265 @@
+package tech.octopusdragon.proj.backgammon.io;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+import tech.octopusdragon.proj.backgammon.Backgammon;
+import tech.octopusdragon.proj.backgammon.DiceSource;
+import tech.octopusdragon.proj.backgammon.Die;
+import tech.octopusdragon.proj.backgammon.GameListener;
+import tech.octopusdragon.proj.backgammon.MoveRecord;
+import tech.octopusdragon.proj.backgammon.Player;
+
+/**
+ * The rolls and moves of one game, in the order they were made, held as
+ * the same operations a game log stores. A record can be replayed with the
+ * rules engine, which checks that every move is legal. The first roll is
+ * the opening roll, and the player who goes first is the one whose die is
+ * higher, just as when the game rolls it itself.
+ * @author Alex Gill
+ *
+ */
+public class GameRecord {
+	
+	// --- Instance variables ---
+	private int[] ops;		// The operations
+	private int size;		// Number of operations
+	private String[] names;	// Name of each player, by ordinal
+	
+	
+	/**
+	 * Instantiates an empty record.
+	 */
+	public GameRecord() {
+		ops = new int[64];
+		names = new String[Player.values().length];
+	}
+	
+	
+	/**
+	 * Adds an operation.
+	 * @param op The operation
+	 */
+	void add(int op) {
+		if (size == ops.length)
+			ops = Arrays.copyOf(ops, size * 2);
+		ops[size++] = op;
+	}
+	
+	
+	/**
+	 * Adds a roll of the dice.
+	 * @param die1 The value of the first die
+	 * @param die2 The value of the second die
+	 */
+	public void roll(int die1, int die2) {
+		add(GameLog.roll(die1, die2));
+	}
+	
+	
+	/**
+	 * Adds a move by the player who rolled last.
+	 * @param fromIndex The index of the point the man leaves
+	 * @param die The value of the die used
+	 */
+	public void move(int fromIndex, int die) {
+		add(GameLog.move(fromIndex, die));
+	}
+	
+	
+	/**
+	 * Adds the taking back of the last move.
+	 */
+	public void undo() {
+		add(GameLog.UNDO);
+	}
+	
+	
+	/**
+	 * Adds the end of the game. A game may end without its last man being
+	 * borne off, such as when a player resigns.
+	 * @param winner The winner
+	 * @param points The number of points won
+	 */
+	public void end(Player winner, int points) {
+		add(GameLog.end(winner, points));
+	}
+	
+	
+	/**
+	 * Returns the number of operations.
+	 * @return The number of operations
+	 */
+	public int size() {
+		return size;
+	}
+	
+	
+	/**
+	 * Returns an operation, which GameLog can take apart.
+	 * @param index The index of the operation
+	 * @return The operation
+	 */
+	public int op(int index) {
+		return ops[index];
+	}
+	
+	
+	/**
+	 * Returns the name of a player.
+	 * @param player The player
+	 * @return The name, or null if it is not known
+	 */
+	public String name(Player player) {
+		return names[player.ordinal()];
+	}
+	
+	
+	/**
+	 * Sets the name of a player.
+	 * @param player The player
+	 * @param name The name
+	 */
+	public void setName(Player player, String name) {
+		names[player.ordinal()] = name;
+	}
+	
+	
+	/**
+	 * Returns the end of the game.
+	 * @return The end, or -1 if the game has not ended
+	 */
+	private int end() {
+		return size > 0 && GameLog.tag(ops[size - 1]) == GameLog.END ? ops[size - 1]: -1;
+	}
+	
+	
+	/**
+	 * Returns the winner of the game.
+	 * @return The winner, or null if the game has not ended
+	 */
+	public Player winner() {
+		return end() < 0 ? null: GameLog.winner(end());
+	}
+	
+	
+	/**
+	 * Returns the number of points the game was won with.
+	 * @return The points, or 0 if the game has not ended
+	 */
+	public int points() {
+		return end() < 0 ? 0: GameLog.gameValue(end());
+	}
+	
+	
+	/**
+	 * Replays the whole game.
+	 * @return The game as it ended
+	 * @throws IllegalStateException If a move is not legal
+	 */
+	public Backgammon replay() {
+		return replay(size, null);
+	}
+	
+	
+	/**
+	 * Replays the start of the game.
+	 * @param ops The number of operations to replay
+	 * @return The game after the given number of operations, which rolls
+	 * any dice after that at random
+	 * @throws IllegalStateException If a move is not legal
+	 */
+	public Backgammon replay(int ops) {
+		return replay(ops, null);
+	}
+	
+	
+	/**
+	 * Replays the start of the game, telling a listener about each roll and
+	 * move as it is replayed.
+	 * @param ops The number of operations to replay
+	 * @param listener The listener, or null for none
+	 * @return The game after the given number of operations, which rolls
+	 * any dice after that at random
+	 * @throws IllegalStateException If a move is not legal
+	 */
+	public Backgammon replay(int ops, GameListener listener) {
+		RecordedDice dice = new RecordedDice(Math.min(ops, size));
+		Backgammon replay = new Backgammon(dice, listener);
+		
+		// The opening roll has already been made by the game itself
+		int rolls = 0;
+		int moves = 0;
+		for (int i = 0; i < Math.min(ops, size); i++) {
+			int op = this.ops[i];
+			switch (GameLog.tag(op)) {
+			
+			case GameLog.ROLL:
+				if (++rolls > dice.rolls) {
+					replay.nextPlayer();
+					replay.roll();
+				}
+				break;
+			
+			case GameLog.MOVE:
+				int fromIndex = GameLog.fromIndex(op);
+				int toIndex = GameLog.toIndex(op, replay.curPlayer());
+				moves++;
+				if (replay.make(fromIndex, toIndex, GameLog.die(op)) == MoveRecord.NONE)
+					throw new IllegalStateException("Move " + moves + " (operation " + i + ") is not legal: " +
+							fromIndex + "/" + toIndex);
+				break;
+			
+			case GameLog.UNDO:
+				replay.undo();
+				break;
+			}
+		}
+		
+		return replay;
+	}
+	
+	
+	/**
+	 * Rolls the dice of the record in the order they were rolled, and then at
+	 * random.
+	 * @author Alex Gill
+	 *
+	 */
+	private class RecordedDice implements DiceSource {
+		
+		private int next;		// Index of the next operation to look at
+		private int end;		// Index after the last operation to look at
+		private int second;		// Value of the second die of the last roll, or 0
+		private int rolls;		// Number of rolls made
+		
+		
+		/**
+		 * Instantiates the dice source.
+		 * @param end The index after the last operation to look at
+		 */
+		RecordedDice(int end) {
+			this.end = end;
+		}
+		
+		
+		@Override
+		public int roll() {
+			if (second != 0) {
+				int value = second;
+				second = 0;
+				return value;
+			}
+			
+			while (next < end) {
+				int op = ops[next++];
+				if (GameLog.tag(op) == GameLog.ROLL) {
+					rolls++;
+					second = GameLog.die2(op);
+					return GameLog.die1(op);
+				}
+			}
+			return ThreadLocalRandom.current().nextInt(Die.NUM_SIDES) + 1;
+		}
+	}
+}
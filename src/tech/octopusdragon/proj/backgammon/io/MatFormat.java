@@ -0,0 +1,292 @@
+package tech.octopusdragon.proj.backgammon.io;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import tech.octopusdragon.proj.backgammon.Backgammon;
+import tech.octopusdragon.proj.backgammon.Board;
+import tech.octopusdragon.proj.backgammon.Man;
+import tech.octopusdragon.proj.backgammon.MoveRecord;
+import tech.octopusdragon.proj.backgammon.Player;
+
+/**
+ * The match transcript format written by most backgammon programs, usually
+ * in files ending in .mat or .txt. Each game starts with a "Game" line and a
+ * line with the players' names and scores, then has a numbered line for
+ * each pair of turns, with the player on the left first:
+ * <pre>
+ *  Game 1
+ *  Black : 0                         White : 0
+ *   1)                               31: 8/5 6/5
+ *   2) 64: 24/14                     52: 13/8 13/11
+ * </pre>
+ * Points are numbered from each player's own side, with 25 or "bar" for the
+ * bar and 0 or "off" for borne off men. The player on the left is the top
+ * player. Doubling cube actions are skipped, as the rules engine does not
+ * use a cube; a game that ends with a dropped double or a resignation gets
+ * the result its "Wins" line gives.
+ * @author Alex Gill
+ *
+ */
+public class MatFormat implements GameFormat {
+	
+	// --- Constants ---
+	private static final Pattern GAME = Pattern.compile("^\\s*Game\\s+\\d+\\s*$");
+	private static final Pattern NAMES = Pattern.compile("^\\s*(.*?)\\s*:\\s*\\d+\\s+(\\S.*?)\\s*:\\s*\\d+\\s*$");
+	private static final Pattern TURNS = Pattern.compile("^\\s*\\d+\\)");
+	private static final Pattern ENTRY = Pattern.compile(
+			"[1-6][1-6]:|Doubles|Takes|Drops|Beavers|Raccoons|Redoubles|Accepts|Rejects|Resigns");
+	private static final Pattern DICE = Pattern.compile("([1-6])([1-6]):");
+	private static final Pattern MOVE = Pattern.compile("(bar|\\d+)((?:/(?:bar|off|\\d+)\\*?)+)(?:\\((\\d)\\))?");
+	private static final Pattern WINS = Pattern.compile("Wins\\s+(\\d+)\\s+points?");
+	private static final int COLUMN = 34;	// Column the right player's turns are written at
+	private static final int MAX_LINE = 1 << 12;	// Longest line that can be looked ahead at
+	
+	
+	@Override
+	public String next(BufferedReader in) throws IOException {
+		String line;
+		do {
+			line = in.readLine();
+			if (line == null)
+				return null;
+		} while (!GAME.matcher(line).matches());
+		
+		StringBuilder game = new StringBuilder(line).append('\n');
+		while (true) {
+			in.mark(MAX_LINE);
+			line = in.readLine();
+			if (line == null)
+				break;
+			if (GAME.matcher(line).matches()) {
+				in.reset();
+				break;
+			}
+			game.append(line).append('\n');
+		}
+		return game.toString();
+	}
+	
+	
+	@Override
+	public GameRecord parse(String game) {
+		Transcriber transcriber = new Transcriber();
+		int[] from = new int[Backgammon.NUM_DICE * 4];
+		int[] to = new int[from.length];
+		int split = COLUMN / 2;		// Column that tells the left side from the right
+		
+		String[] lines = game.split("\n");
+		for (int n = 0; n < lines.length; n++) {
+			String line = lines[n];
+			try {
+				Matcher names = NAMES.matcher(line);
+				Matcher turns = TURNS.matcher(line);
+				Matcher wins = WINS.matcher(line);
+				
+				if (turns.find()) {
+					
+					// Find where the turns of each side start
+					Matcher entry = ENTRY.matcher(line);
+					int left = -1;
+					int right = -1;
+					if (entry.find(turns.end())) {
+						if (entry.start() >= split)
+							right = entry.start();
+						else {
+							left = entry.start();
+							if (entry.find())
+								right = entry.start();
+						}
+					}
+					
+					if (left >= 0)
+						turn(transcriber, line.substring(left, right >= 0 ? right: line.length()),
+								Backgammon.TOP_PLAYER, from, to);
+					if (right >= 0)
+						turn(transcriber, line.substring(right), Backgammon.BOTTOM_PLAYER, from, to);
+				}
+				else if (names.matches() && transcriber.game() == null) {
+					transcriber.record().setName(Backgammon.TOP_PLAYER, names.group(1));
+					transcriber.record().setName(Backgammon.BOTTOM_PLAYER, names.group(2));
+					split = (names.start(1) + names.start(2)) / 2;
+				}
+				
+				if (wins.find()) {
+					Player winner = wins.start() < split ? Backgammon.TOP_PLAYER: Backgammon.BOTTOM_PLAYER;
+					transcriber.end(winner, Integer.parseInt(wins.group(1)));
+				}
+			}
+			catch (IllegalArgumentException e) {
+				throw new IllegalArgumentException("Line " + (n + 1) + ": " + e.getMessage(), e);
+			}
+		}
+		
+		return transcriber.record();
+	}
+	
+	
+	/**
+	 * Plays one side's turn from a line, unless it is a cube action.
+	 * @param transcriber The transcriber of the game
+	 * @param text The turn, such as "31: 8/5 6/5" or "Doubles =&gt; 2"
+	 * @param player The player whose turn it is
+	 * @param from Room for the index of the point each man left
+	 * @param to Room for the index of the point each man landed on
+	 * @throws IllegalArgumentException If the turn is not legal
+	 */
+	private static void turn(Transcriber transcriber, String text, Player player, int[] from, int[] to) {
+		Matcher dice = DICE.matcher(text);
+		if (!dice.lookingAt())
+			return;
+		int moves = moves(text.substring(dice.end()), player.menType(), from, to);
+		transcriber.turn(player, Integer.parseInt(dice.group(1)), Integer.parseInt(dice.group(2)),
+				from, to, moves);
+	}
+	
+	
+	/**
+	 * Reads the moves of one turn.
+	 * @param text The moves, such as "24/18* 13/11(2)"
+	 * @param man The type of the moving player's men
+	 * @param from Where to put the index of the point each man left
+	 * @param to Where to put the index of the point each man landed on
+	 * @return The number of moves
+	 * @throws IllegalArgumentException If a move cannot be read
+	 */
+	private static int moves(String text, Man man, int[] from, int[] to) {
+		int moves = 0;
+		for (String token: text.trim().split("\\s+")) {
+			if (token.isEmpty() || token.equals("????") || token.startsWith("(") || token.endsWith(")") && !token.contains("/"))
+				continue;
+			Matcher move = MOVE.matcher(token);
+			if (!move.matches())
+				throw new IllegalArgumentException("Not a move: " + token);
+			
+			int times = move.group(3) == null ? 1: Integer.parseInt(move.group(3));
+			for (int t = 0; t < times; t++) {
+				int point = index(move.group(1), man);
+				for (String hop: move.group(2).substring(1).split("/")) {
+					if (moves == from.length)
+						throw new IllegalArgumentException("Too many moves: " + text.trim());
+					from[moves] = point;
+					point = index(hop.replace("*", ""), man);
+					to[moves++] = point;
+				}
+			}
+		}
+		return moves;
+	}
+	
+	
+	/**
+	 * Returns the index of a point numbered from a player's own side.
+	 * @param point The number of the point, "bar" or "off"
+	 * @param man The type of the player's men
+	 * @return The index of the point
+	 */
+	private static int index(String point, Man man) {
+		if (point.equals("bar"))
+			return Board.entryIndex(man);
+		if (point.equals("off"))
+			return Board.offIndex(man);
+		int number = Integer.parseInt(point);
+		if (number > Board.NUM_POINTS + 1)
+			throw new IllegalArgumentException("Not a point: " + point);
+		return number == 0 ? Board.offIndex(man): Board.point(number, man);
+	}
+	
+	
+	@Override
+	public void writeHeader(Appendable out) throws IOException {
+		out.append(" 0 point match\n\n");
+	}
+	
+	
+	@Override
+	public void write(GameRecord game, int number, Appendable out) throws IOException {
+		StringBuilder text = new StringBuilder();
+		text.append(" Game ").append(number).append('\n');
+		pad(text.append(' ').append(name(game, Backgammon.TOP_PLAYER)).append(" : 0"), COLUMN)
+				.append(name(game, Backgammon.BOTTOM_PLAYER)).append(" : 0\n");
+		
+		// Each line starts with the turn of the player on the left
+		int[] lines = {0};
+		Backgammon replay = new TurnCollector() {
+			@Override
+			void turn(Player player, int die1, int die2, int[] moves, int size) {
+				if (player == Backgammon.TOP_PLAYER || lines[0] == 0)
+					text.append(String.format("%3d) ", ++lines[0]));
+				if (player == Backgammon.BOTTOM_PLAYER)
+					pad(text, COLUMN);
+				
+				Man man = player.menType();
+				text.append(die1).append(die2).append(':');
+				for (int i = 0; i < size; i++) {
+					text.append(' ').append(point(MoveRecord.fromIndex(moves[i]), man))
+							.append('/').append(point(MoveRecord.toIndex(moves[i]), man));
+					if (MoveRecord.isHit(moves[i]))
+						text.append('*');
+				}
+				if (player == Backgammon.BOTTOM_PLAYER)
+					text.append('\n');
+			}
+		}.collect(game);
+		if (text.charAt(text.length() - 1) != '\n')
+			text.append('\n');
+		
+		// Games that end early say who won in the record
+		Player winner = game.winner() != null ? game.winner(): replay.winner();
+		if (winner != null) {
+			int points = game.winner() != null ? game.points(): replay.gameValue();
+			pad(text, winner == Backgammon.TOP_PLAYER ? 6: COLUMN);
+			text.append("Wins ").append(points).append(points == 1 ? " point\n": " points\n");
+		}
+		out.append(text.append('\n'));
+	}
+	
+	
+	/**
+	 * Pads the last line of some text with spaces up to a column.
+	 * @param text The text
+	 * @param column The column
+	 * @return The text
+	 */
+	private static StringBuilder pad(StringBuilder text, int column) {
+		int start = text.lastIndexOf("\n") + 1;
+		do
+			text.append(' ');
+		while (text.length() - start < column);
+		return text;
+	}
+	
+	
+	/**
+	 * Returns how a point is written from a player's own side.
+	 * @param index The index of the point
+	 * @param man The type of the player's men
+	 * @return The number of the point, "bar" or "off"
+	 */
+	private static String point(int index, Man man) {
+		if (index == Board.entryIndex(man))
+			return "bar";
+		if (index == Board.offIndex(man))
+			return "off";
+		return Integer.toString(Board.distance(index, man));
+	}
+	
+	
+	/**
+	 * Returns the name of a player to write.
+	 * @param game The record of the game
+	 * @param player The player
+	 * @return The name, or the player's colour if it is not known
+	 */
+	static String name(GameRecord game, Player player) {
+		if (game.name(player) != null)
+			return game.name(player);
+		String colour = player.toString();
+		return colour.charAt(0) + colour.substring(1).toLowerCase();
+	}
+}
@@ -0,0 +1,288 @@
+package tech.octopusdragon.proj.backgammon.io;
+
+import tech.octopusdragon.proj.backgammon.Backgammon;
+import tech.octopusdragon.proj.backgammon.Player;
+
+/**
+ * The 12-character Match ID used by GNU Backgammon alongside the Position ID.
+ * It holds the 66 bits of game state that are not on the board: the cube,
+ * who is on roll, the dice, the match length and the score. The bits are
+ * packed starting with the lowest bit of the first of nine bytes, which are
+ * then written in base 64 like the Position ID.
+ * <p>
+ * The first player of the ID is the top player and the second is the bottom
+ * player. Games in this program are money games with the cube at 1 in the
+ * middle, so only who is on roll and the dice change from one ID to the next.
+ * @author Alex Gill
+ *
+ */
+public final class MatchId {
+	
+	// --- Constants ---
+	public static final int LENGTH = 12;	// Characters in a Match ID
+	private static final int BYTES = 9;		// Bytes the bits are packed into
+	public static final int NO_GAME = 0;	// Game state before a game starts
+	public static final int PLAYING = 1;	// Game state while a game is played
+	public static final int OVER = 2;		// Game state after a game is won
+	public static final int RESIGNED = 3;	// Game state after a player resigns
+	public static final int DROPPED = 4;	// Game state after a player drops a double
+	
+	// Width of each field, in the order the fields are packed
+	private static final int CUBE_BITS = 4;
+	private static final int CUBE_OWNER_BITS = 2;
+	private static final int ON_ROLL_BITS = 1;
+	private static final int CRAWFORD_BITS = 1;
+	private static final int STATE_BITS = 3;
+	private static final int TURN_BITS = 1;
+	private static final int DOUBLED_BITS = 1;
+	private static final int RESIGNATION_BITS = 2;
+	private static final int DIE_BITS = 3;
+	private static final int SCORE_BITS = 15;
+	private static final int CENTRED = 3;	// Cube owner when the cube is in the middle
+	
+	
+	// --- Instance variables ---
+	private int cube;			// Base 2 logarithm of the cube value
+	private int cubeOwner;		// Number of the player owning the cube, or CENTRED
+	private int onRoll;			// Number of the player on roll
+	private boolean crawford;	// Whether this is the Crawford game
+	private int state;			// State of the game
+	private int turn;			// Number of the player who must make a decision
+	private boolean doubled;	// Whether a double has been offered
+	private int resignation;	// Value of the game resignation offered, or 0
+	private int die1;			// Value of the first die, or 0 if not rolled
+	private int die2;			// Value of the second die, or 0 if not rolled
+	private int matchLength;	// Points the match is played to, or 0 for money
+	private int[] score;		// Score of each player
+	
+	
+	/**
+	 * Instantiates the Match ID of a game. If the current player has finished
+	 * moving, the opponent is on roll.
+	 * @param game The game
+	 */
+	public MatchId(Backgammon game) {
+		cubeOwner = CENTRED;
+		
+		// Once the player has finished moving, the opponent is next to roll
+		boolean finished = game.hasMoved() && !game.isOver();
+		onRoll = number(finished ? game.curOpponent(): game.curPlayer());
+		turn = onRoll;
+		state = game.isOver() ? OVER: PLAYING;
+		if (game.hasRolled() && !finished && !game.isOver()) {
+			die1 = game.rolledValue(0);
+			die2 = game.rolledValue(1);
+		}
+		score = new int[2];
+	}
+	
+	
+	/**
+	 * Reads a Match ID.
+	 * @param id The Match ID
+	 * @throws IllegalArgumentException If the ID is not a valid Match ID
+	 */
+	public MatchId(CharSequence id) {
+		if (id.length() != LENGTH)
+			throw new IllegalArgumentException("Match ID must have " + LENGTH + " characters: " + id);
+		
+		// Every four digits make three bytes
+		long low = 0;
+		int high = 0;
+		for (int i = 0; i < LENGTH; i += 4) {
+			int group = 0;
+			for (int d = 0; d < 4; d++) {
+				char c = id.charAt(i + d);
+				int digit = PositionId.ALPHABET.indexOf(c);
+				if (digit < 0)
+					throw new IllegalArgumentException("Invalid Match ID: " + id);
+				group = group << 6 | digit;
+			}
+			for (int b = 0; b < 3; b++) {
+				long value = group >>> (16 - 8 * b) & 0xFF;
+				int index = i / 4 * 3 + b;
+				if (index < 8)
+					low |= value << (8 * index);
+				else
+					high = (int)value;
+			}
+		}
+		if (high >>> 2 != 0)
+			throw new IllegalArgumentException("Invalid Match ID: " + id);
+		
+		int bit = 0;
+		cube = (int)field(low, bit, CUBE_BITS);
+		cubeOwner = (int)field(low, bit += CUBE_BITS, CUBE_OWNER_BITS);
+		onRoll = (int)field(low, bit += CUBE_OWNER_BITS, ON_ROLL_BITS);
+		crawford = field(low, bit += ON_ROLL_BITS, CRAWFORD_BITS) != 0;
+		state = (int)field(low, bit += CRAWFORD_BITS, STATE_BITS);
+		turn = (int)field(low, bit += STATE_BITS, TURN_BITS);
+		doubled = field(low, bit += TURN_BITS, DOUBLED_BITS) != 0;
+		resignation = (int)field(low, bit += DOUBLED_BITS, RESIGNATION_BITS);
+		die1 = (int)field(low, bit += RESIGNATION_BITS, DIE_BITS);
+		die2 = (int)field(low, bit += DIE_BITS, DIE_BITS);
+		matchLength = (int)field(low, bit += DIE_BITS, SCORE_BITS);
+		score = new int[2];
+		score[0] = (int)field(low, bit += SCORE_BITS, SCORE_BITS);
+		score[1] = (int)(field(low, bit += SCORE_BITS, Long.SIZE - bit) | (long)(high & 3) << (Long.SIZE - bit));
+		
+		if (cubeOwner == 2 || state > DROPPED || die1 > 6 || die2 > 6 || (die1 == 0) != (die2 == 0))
+			throw new IllegalArgumentException("Invalid Match ID: " + id);
+	}
+	
+	
+	/**
+	 * Returns the player on roll.
+	 * @return The player on roll
+	 */
+	public Player onRoll() {
+		return player(onRoll);
+	}
+	
+	
+	/**
+	 * Returns the value of the first die.
+	 * @return The value, or 0 if the dice have not been rolled
+	 */
+	public int die1() {
+		return die1;
+	}
+	
+	
+	/**
+	 * Returns the value of the second die.
+	 * @return The value, or 0 if the dice have not been rolled
+	 */
+	public int die2() {
+		return die2;
+	}
+	
+	
+	/**
+	 * Returns the state of the game.
+	 * @return NO_GAME, PLAYING, OVER, RESIGNED or DROPPED
+	 */
+	public int state() {
+		return state;
+	}
+	
+	
+	/**
+	 * Returns the value of the cube.
+	 * @return The cube value
+	 */
+	public int cubeValue() {
+		return 1 << cube;
+	}
+	
+	
+	/**
+	 * Returns the player who owns the cube.
+	 * @return The owner, or null if the cube is in the middle
+	 */
+	public Player cubeOwner() {
+		return cubeOwner == CENTRED ? null: player(cubeOwner);
+	}
+	
+	
+	/**
+	 * Returns the number of points the match is played to.
+	 * @return The match length, or 0 for a money game
+	 */
+	public int matchLength() {
+		return matchLength;
+	}
+	
+	
+	/**
+	 * Returns a player's score in the match.
+	 * @param player The player
+	 * @return The score
+	 */
+	public int score(Player player) {
+		return score[number(player)];
+	}
+	
+	
+	/**
+	 * Builds the game described by a Position ID and this Match ID.
+	 * @param positionId The Position ID
+	 * @return The game, with the player on roll either about to roll or
+	 * having rolled the dice of the Match ID
+	 * @throws IllegalArgumentException If the Position ID is not valid
+	 */
+	public Backgammon game(CharSequence positionId) {
+		Player player = onRoll();
+		if (die1 == 0)
+			return new Backgammon(PositionId.decode(positionId, player), player);
+		else
+			return new Backgammon(PositionId.decode(positionId, player), player, die1, die2);
+	}
+	
+	
+	/**
+	 * Returns the Match ID.
+	 * @return The Match ID
+	 */
+	@Override
+	public String toString() {
+		long low = 0;
+		int bit = 0;
+		low |= (long)cube << bit;
+		low |= (long)cubeOwner << (bit += CUBE_BITS);
+		low |= (long)onRoll << (bit += CUBE_OWNER_BITS);
+		low |= (crawford ? 1L: 0L) << (bit += ON_ROLL_BITS);
+		low |= (long)state << (bit += CRAWFORD_BITS);
+		low |= (long)turn << (bit += STATE_BITS);
+		low |= (doubled ? 1L: 0L) << (bit += TURN_BITS);
+		low |= (long)resignation << (bit += DOUBLED_BITS);
+		low |= (long)die1 << (bit += RESIGNATION_BITS);
+		low |= (long)die2 << (bit += DIE_BITS);
+		low |= (long)matchLength << (bit += DIE_BITS);
+		low |= (long)score[0] << (bit += SCORE_BITS);
+		low |= (long)score[1] << (bit += SCORE_BITS);
+		int high = score[1] >>> (Long.SIZE - bit);
+		
+		char[] id = new char[LENGTH];
+		for (int i = 0; i < BYTES; i += 3) {
+			int group = 0;
+			for (int b = 0; b < 3; b++)
+				group = group << 8 | (i + b < 8 ? (int)(low >>> (8 * (i + b))) & 0xFF: high);
+			for (int d = 0; d < 4; d++)
+				id[i / 3 * 4 + d] = PositionId.ALPHABET.charAt(group >>> (18 - 6 * d) & 0x3F);
+		}
+		return new String(id);
+	}
+	
+	
+	/**
+	 * Returns some bits of the packed fields.
+	 * @param bits The packed fields
+	 * @param first The index of the first bit
+	 * @param width The number of bits
+	 * @return The bits
+	 */
+	private static long field(long bits, int first, int width) {
+		return bits >>> first & ((1L << width) - 1);
+	}
+	
+	
+	/**
+	 * Returns the number a player has in a Match ID.
+	 * @param player The player
+	 * @return 0 for the top player or 1 for the bottom player
+	 */
+	private static int number(Player player) {
+		return player == Backgammon.TOP_PLAYER ? 0: 1;
+	}
+	
+	
+	/**
+	 * Returns the player with the given number in a Match ID.
+	 * @param number 0 for the top player or 1 for the bottom player
+	 * @return The player
+	 */
+	private static Player player(int number) {
+		return number == 0 ? Backgammon.TOP_PLAYER: Backgammon.BOTTOM_PLAYER;
+	}
+}
@@ -0,0 +1,258 @@
+package tech.octopusdragon.proj.backgammon.io;
+
+import java.util.Arrays;
+
+import tech.octopusdragon.proj.backgammon.Board;
+import tech.octopusdragon.proj.backgammon.Player;
+
+/**
+ * Encodes a board as the 80-bit position key used by GNU Backgammon and most
+ * other backgammon programs, and as the 14-character Position ID that is the
+ * key in base 64. Each player's points are listed from their own one-point to
+ * their 24-point, then their bar, first for the player not on roll and then
+ * for the player on roll; each entry is written as one bit set for each man
+ * followed by one clear bit. The bits are packed starting with the lowest bit
+ * of the first byte.
+ * <p>
+ * Encoding and decoding work on primitive values, and create no objects other
+ * than the result.
+ * @author Alex Gill
+ *
+ */
+public final class PositionId {
+	
+	// --- Constants ---
+	public static final int KEY_BYTES = 10;		// Bytes in a position key
+	public static final int LENGTH = 14;		// Characters in a Position ID
+	private static final int SLOTS = Board.NUM_POINTS + 1;	// Points and bar of each player
+	static final String ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";	// Base 64 digits
+	private static final int[] DIGITS;			// Value of each base 64 digit, or -1
+	
+	static {
+		DIGITS = new int[128];
+		Arrays.fill(DIGITS, -1);
+		for (int i = 0; i < ALPHABET.length(); i++)
+			DIGITS[ALPHABET.charAt(i)] = i;
+	}
+	
+	
+	/**
+	 * Not instantiable
+	 */
+	private PositionId() {
+	}
+	
+	
+	/**
+	 * Returns the Position ID of a board.
+	 * @param board The board
+	 * @param onRoll The player on roll
+	 * @return The Position ID
+	 */
+	public static String encode(Board board, Player onRoll) {
+		char[] id = new char[LENGTH];
+		encode(board, onRoll, id, 0);
+		return new String(id);
+	}
+	
+	
+	/**
+	 * Writes the Position ID of a board.
+	 * @param board The board
+	 * @param onRoll The player on roll
+	 * @param id Receives the Position ID
+	 * @param offset Where to write the first character
+	 */
+	public static void encode(Board board, Player onRoll, char[] id, int offset) {
+		long low = bits(board, onRoll, 0);
+		long high = bits(board, onRoll, Long.SIZE);
+		
+		// Three bytes make four digits, and the last byte makes two
+		for (int i = 0; i < KEY_BYTES; i += 3) {
+			int group = byteAt(low, high, i) << 16 |
+					(i + 1 < KEY_BYTES ? byteAt(low, high, i + 1) << 8: 0) |
+					(i + 2 < KEY_BYTES ? byteAt(low, high, i + 2): 0);
+			int digits = i + 3 <= KEY_BYTES ? 4: 2;
+			for (int d = 0; d < digits; d++)
+				id[offset++] = ALPHABET.charAt(group >>> (18 - 6 * d) & 0x3F);
+		}
+	}
+	
+	
+	/**
+	 * Writes the 80-bit position key of a board.
+	 * @param board The board
+	 * @param onRoll The player on roll
+	 * @param key Receives the KEY_BYTES bytes of the key
+	 * @param offset Where to write the first byte
+	 */
+	public static void key(Board board, Player onRoll, byte[] key, int offset) {
+		long low = bits(board, onRoll, 0);
+		long high = bits(board, onRoll, Long.SIZE);
+		for (int i = 0; i < KEY_BYTES; i++)
+			key[offset + i] = (byte)byteAt(low, high, i);
+	}
+	
+	
+	/**
+	 * Reads a board from its Position ID.
+	 * @param id The Position ID
+	 * @param onRoll The player on roll
+	 * @return The board
+	 * @throws IllegalArgumentException If the ID is not a valid Position ID
+	 */
+	public static Board decode(CharSequence id, Player onRoll) {
+		if (id.length() != LENGTH)
+			throw new IllegalArgumentException("Position ID must have " + LENGTH + " characters: " + id);
+		
+		long low = 0;
+		long high = 0;
+		int bit = 0;
+		for (int i = 0; i < LENGTH; i++) {
+			char c = id.charAt(i);
+			int digit = c < DIGITS.length ? DIGITS[c]: -1;
+			if (digit < 0)
+				throw new IllegalArgumentException("Invalid Position ID: " + id);
+			
+			// Put the digit's six bits back into the bytes they came from
+			for (int b = 5; b >= 0; b--, bit++) {
+				if ((digit >>> b & 1) == 0)
+					continue;
+				int position = (bit / 8) * 8 + 7 - bit % 8;
+				if (position < Long.SIZE)
+					low |= 1L << position;
+				else if (position < KEY_BYTES * 8)
+					high |= 1L << (position - Long.SIZE);
+				else
+					throw new IllegalArgumentException("Invalid Position ID: " + id);
+			}
+		}
+		return board(low, high, onRoll);
+	}
+	
+	
+	/**
+	 * Reads a board from its 80-bit position key.
+	 * @param key The bytes of the key
+	 * @param offset Where the first byte is
+	 * @param onRoll The player on roll
+	 * @return The board
+	 * @throws IllegalArgumentException If the key is not a valid position key
+	 */
+	public static Board decode(byte[] key, int offset, Player onRoll) {
+		long low = 0;
+		long high = 0;
+		for (int i = 0; i < KEY_BYTES; i++) {
+			long value = key[offset + i] & 0xFFL;
+			if (i < 8)
+				low |= value << (8 * i);
+			else
+				high |= value << (8 * (i - 8));
+		}
+		return board(low, high, onRoll);
+	}
+	
+	
+	/**
+	 * Returns 64 bits of the position key of a board.
+	 * @param board The board
+	 * @param onRoll The player on roll
+	 * @param first The index of the first bit to return
+	 * @return The bits
+	 */
+	private static long bits(Board board, Player onRoll, int first) {
+		long bits = 0;
+		int bit = 0;
+		for (int side = 0; side < 2; side++) {
+			Player player = side == 0 ? opponent(onRoll): onRoll;
+			for (int slot = 0; slot < SLOTS; slot++) {
+				int men = slot == Board.NUM_POINTS ?
+						board.hitMen(player.menType()):
+						board.menNumber(Board.point(slot + 1, player.menType()), player.menType());
+				
+				// Set one bit for each man; the clear bit after them is skipped
+				for (int i = 0; i < men; i++, bit++)
+					if (bit >= first && bit < first + Long.SIZE)
+						bits |= 1L << (bit - first);
+				bit++;
+			}
+		}
+		return bits;
+	}
+	
+	
+	/**
+	 * Builds a board from the bits of a position key.
+	 * @param low The first 64 bits
+	 * @param high The last 16 bits
+	 * @param onRoll The player on roll
+	 * @return The board
+	 * @throws IllegalArgumentException If the bits are not a valid key
+	 */
+	private static Board board(long low, long high, Player onRoll) {
+		int[] men = new int[Board.NUM_POINTS + 2];
+		int[] hitMen = new int[Player.values().length];
+		int bit = 0;
+		for (int side = 0; side < 2; side++) {
+			Player player = side == 0 ? opponent(onRoll): onRoll;
+			int sign = player == Player.BLACK ? 1: -1;
+			int total = 0;
+			for (int slot = 0; slot < SLOTS; slot++) {
+				int count = 0;
+				while (bit < KEY_BYTES * 8 && isSet(low, high, bit)) {
+					count++;
+					bit++;
+				}
+				bit++;
+				
+				total += count;
+				if (total > Board.NUM_MEN)
+					throw new IllegalArgumentException(player + " has more than " + Board.NUM_MEN + " men");
+				if (slot == Board.NUM_POINTS)
+					hitMen[player.ordinal()] = count;
+				else {
+					int index = Board.point(slot + 1, player.menType());
+					if (men[index] != 0 && count > 0)
+						throw new IllegalArgumentException("Both players have men on point " + index);
+					if (count > 0)
+						men[index] = sign * count;
+				}
+			}
+		}
+		return new Board(men, hitMen[Player.BLACK.ordinal()], hitMen[Player.WHITE.ordinal()]);
+	}
+	
+	
+	/**
+	 * Returns one byte of a position key.
+	 * @param low The first 64 bits
+	 * @param high The last 16 bits
+	 * @param i The index of the byte
+	 * @return The byte, from 0 to 255
+	 */
+	private static int byteAt(long low, long high, int i) {
+		return (int)(i < 8 ? low >>> (8 * i): high >>> (8 * (i - 8))) & 0xFF;
+	}
+	
+	
+	/**
+	 * Returns whether one bit of a position key is set.
+	 * @param low The first 64 bits
+	 * @param high The last 16 bits
+	 * @param bit The index of the bit
+	 * @return Whether the bit is set
+	 */
+	private static boolean isSet(long low, long high, int bit) {
+		return ((bit < Long.SIZE ? low >>> bit: high >>> (bit - Long.SIZE)) & 1) != 0;
+	}
+	
+	
+	/**
+	 * Returns the other player.
+	 * @param player The player
+	 * @return The player's opponent
+	 */
+	static Player opponent(Player player) {
+		return player == Player.BLACK ? Player.WHITE: Player.BLACK;
+	}
+}
@@ -0,0 +1,255 @@
+package tech.octopusdragon.proj.backgammon.io;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+
+import tech.octopusdragon.proj.backgammon.Backgammon;
+import tech.octopusdragon.proj.backgammon.Board;
+import tech.octopusdragon.proj.backgammon.Man;
+import tech.octopusdragon.proj.backgammon.MoveRecord;
+import tech.octopusdragon.proj.backgammon.Player;
+
+/**
+ * The Smart Game Format for backgammon (game type 6). Each game is a tree in
+ * parentheses made of nodes that start with semicolons. The first node holds
+ * properties of the game, such as PB and PW for the players' names and RE
+ * for the result, and each node after it is a turn, such as B[52hcgc] for
+ * black rolling 5-2 and moving a man from h to c and another from g to c.
+ * <p>
+ * Points are the letters a to x, numbered from white's side, so that white
+ * bears off from a to f and black from s to x. The bar is y and borne off
+ * men are z. Doubling cube actions are skipped, as the rules engine does not
+ * use a cube, and only the main line of a tree is read.
+ * @author Alex Gill
+ *
+ */
+public class SgfFormat implements GameFormat {
+	
+	// --- Constants ---
+	private static final char BAR = 'y';	// Letter of the bar
+	private static final char OFF = 'z';	// Letter of borne off men
+	
+	
+	@Override
+	public String next(BufferedReader in) throws IOException {
+		int c;
+		do {
+			c = in.read();
+			if (c < 0)
+				return null;
+		} while (c != '(');
+		
+		// Read up to the matching parenthesis, skipping property values
+		StringBuilder game = new StringBuilder().append('(');
+		int depth = 1;
+		boolean inValue = false;
+		while (depth > 0 && (c = in.read()) >= 0) {
+			game.append((char)c);
+			if (inValue) {
+				if (c == '\\') {
+					if ((c = in.read()) >= 0)
+						game.append((char)c);
+				}
+				else if (c == ']')
+					inValue = false;
+			}
+			else if (c == '[')
+				inValue = true;
+			else if (c == '(')
+				depth++;
+			else if (c == ')')
+				depth--;
+		}
+		return game.toString();
+	}
+	
+	
+	@Override
+	public GameRecord parse(String game) {
+		Transcriber transcriber = new Transcriber();
+		int[] from = new int[Backgammon.NUM_DICE * 2];
+		int[] to = new int[from.length];
+		String result = null;
+		
+		// Read the properties of the main line, which ends at its first branch
+		int nodes = 0;
+		int i = game.indexOf('(') + 1;
+		String property = "";
+		while (i < game.length()) {
+			char c = game.charAt(i);
+			if (c == ';') {
+				nodes++;
+				i++;
+			}
+			else if (c == '(' || c == ')')
+				break;
+			else if (Character.isUpperCase(c)) {
+				int start = i;
+				while (i < game.length() && Character.isUpperCase(game.charAt(i)))
+					i++;
+				property = game.substring(start, i);
+			}
+			else if (c == '[') {
+				StringBuilder value = new StringBuilder();
+				for (i++; i < game.length() && game.charAt(i) != ']'; i++) {
+					if (game.charAt(i) == '\\' && i + 1 < game.length())
+						i++;
+					value.append(game.charAt(i));
+				}
+				if (i == game.length())
+					throw new IllegalArgumentException("Property " + property + " is not closed");
+				i++;
+				
+				try {
+					if (nodes == 1) {
+						if (property.equals("PB"))
+							transcriber.record().setName(Player.BLACK, value.toString());
+						else if (property.equals("PW"))
+							transcriber.record().setName(Player.WHITE, value.toString());
+						else if (property.equals("RE"))
+							result = value.toString();
+						else if (property.equals("GM") && !value.toString().equals("6"))
+							throw new IllegalArgumentException("Not a backgammon game: GM[" + value + "]");
+					}
+					else if (property.equals("B") || property.equals("W"))
+						turn(transcriber, value.toString(),
+								property.equals("B") ? Player.BLACK: Player.WHITE, from, to);
+				}
+				catch (IllegalArgumentException e) {
+					throw new IllegalArgumentException("Node " + nodes + ": " + e.getMessage(), e);
+				}
+			}
+			else
+				i++;
+		}
+		
+		// The result is the winner's colour, the points won, and R if resigned
+		if (result != null && result.length() > 2 && result.charAt(1) == '+') {
+			Player winner = result.charAt(0) == 'B' ? Player.BLACK: Player.WHITE;
+			String points = result.substring(2).replaceAll("\\D.*", "");
+			transcriber.end(winner, points.isEmpty() ? 1: Integer.parseInt(points));
+		}
+		else if (transcriber.game() != null && transcriber.game().isOver())
+			transcriber.end(transcriber.game().winner(), transcriber.game().gameValue());
+		
+		return transcriber.record();
+	}
+	
+	
+	/**
+	 * Plays a turn, unless it is a cube action.
+	 * @param transcriber The transcriber of the game
+	 * @param value The turn, such as "52hcgc" or "double"
+	 * @param player The player whose turn it is
+	 * @param from Room for the index of the point each man left
+	 * @param to Room for the index of the point each man landed on
+	 * @throws IllegalArgumentException If the turn is not legal
+	 */
+	private static void turn(Transcriber transcriber, String value, Player player, int[] from, int[] to) {
+		if (value.length() < 2 || !isDie(value.charAt(0)) || !isDie(value.charAt(1)))
+			return;
+		if (value.length() % 2 != 0 || value.length() - 2 > 2 * from.length)
+			throw new IllegalArgumentException("Not a turn: " + value);
+		
+		int moves = 0;
+		for (int i = 2; i < value.length(); i += 2) {
+			from[moves] = index(value.charAt(i), player.menType());
+			to[moves++] = index(value.charAt(i + 1), player.menType());
+		}
+		transcriber.turn(player, value.charAt(0) - '0', value.charAt(1) - '0', from, to, moves);
+	}
+	
+	
+	/**
+	 * Returns whether a character is the value of a die.
+	 * @param c The character
+	 * @return Whether it is a digit from 1 to 6
+	 */
+	private static boolean isDie(char c) {
+		return c >= '1' && c <= '6';
+	}
+	
+	
+	/**
+	 * Returns the index of the point with the given letter.
+	 * @param letter The letter
+	 * @param man The type of the moving player's men
+	 * @return The index of the point
+	 * @throws IllegalArgumentException If the letter is not a point
+	 */
+	private static int index(char letter, Man man) {
+		if (letter == BAR)
+			return Board.entryIndex(man);
+		if (letter == OFF)
+			return Board.offIndex(man);
+		if (letter < 'a' || letter > 'x')
+			throw new IllegalArgumentException("Not a point: " + letter);
+		return Board.point(letter - 'a' + 1, Man.WHITE);
+	}
+	
+	
+	/**
+	 * Returns the letter of a point.
+	 * @param index The index of the point
+	 * @param man The type of the moving player's men
+	 * @return The letter
+	 */
+	private static char letter(int index, Man man) {
+		if (index == Board.entryIndex(man))
+			return BAR;
+		if (index == Board.offIndex(man))
+			return OFF;
+		return (char)('a' + Board.distance(index, Man.WHITE) - 1);
+	}
+	
+	
+	@Override
+	public void write(GameRecord game, int number, Appendable out) throws IOException {
+		StringBuilder text = new StringBuilder("(;FF[4]GM[6]AP[backgammon]");
+		text.append("MI[length:0][game:").append(number - 1).append("][ws:0][bs:0]");
+		text.append("PB[");
+		escape(MatFormat.name(game, Player.BLACK), text).append("]PW[");
+		escape(MatFormat.name(game, Player.WHITE), text).append(']');
+		int result = text.length();
+		
+		Backgammon replay = new TurnCollector() {
+			@Override
+			void turn(Player player, int die1, int die2, int[] moves, int size) {
+				Man man = player.menType();
+				text.append("\n;").append(player == Player.BLACK ? 'B': 'W').append('[');
+				text.append(die1).append(die2);
+				for (int i = 0; i < size; i++)
+					text.append(letter(MoveRecord.fromIndex(moves[i]), man))
+							.append(letter(MoveRecord.toIndex(moves[i]), man));
+				text.append(']');
+			}
+		}.collect(game);
+		
+		// Games that end early say who won in the record
+		Player winner = game.winner() != null ? game.winner(): replay.winner();
+		if (winner != null) {
+			int points = game.winner() != null ? game.points(): replay.gameValue();
+			boolean resigned = !replay.isOver();
+			text.insert(result, "RE[" + (winner == Player.BLACK ? 'B': 'W') + "+" + points +
+					(resigned ? "R]": "]"));
+		}
+		out.append(text.append(")\n"));
+	}
+	
+	
+	/**
+	 * Adds a property value, escaping the characters that end values.
+	 * @param value The value
+	 * @param text The text to add it to
+	 * @return The text
+	 */
+	private static StringBuilder escape(String value, StringBuilder text) {
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == ']' || c == '\\')
+				text.append('\\');
+			text.append(c);
+		}
+		return text;
+	}
+}
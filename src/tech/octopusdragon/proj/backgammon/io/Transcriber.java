@@ -0,0 +1,140 @@
+package tech.octopusdragon.proj.backgammon.io;
+
+import java.util.List;
+
+import tech.octopusdragon.proj.backgammon.Backgammon;
+import tech.octopusdragon.proj.backgammon.Board;
+import tech.octopusdragon.proj.backgammon.Man;
+import tech.octopusdragon.proj.backgammon.Move;
+import tech.octopusdragon.proj.backgammon.Play;
+import tech.octopusdragon.proj.backgammon.Player;
+
+/**
+ * Turns the turns of a game written in a file into a record, checking each
+ * one with the rules engine. Files write a turn as the men that moved, often
+ * several pips at a time and in any order, so the moves are made on a copy
+ * of the board and the turn is matched to the legal play that leads to the
+ * same board. The record then holds that play's moves, one die at a time.
+ * @author Alex Gill
+ *
+ */
+class Transcriber {
+	
+	// --- Instance variables ---
+	private GameRecord record;	// The record being written
+	private Backgammon game;	// The game, or null before the opening roll
+	private int[] dice;			// Values the game rolls next
+	private int nextDie;		// Index of the next value the game rolls
+	
+	
+	/**
+	 * Instantiates a transcriber of a new game.
+	 */
+	Transcriber() {
+		record = new GameRecord();
+		dice = new int[Backgammon.NUM_DICE];
+	}
+	
+	
+	/**
+	 * Returns the record.
+	 * @return The record
+	 */
+	GameRecord record() {
+		return record;
+	}
+	
+	
+	/**
+	 * Plays a turn.
+	 * @param player The player whose turn it is
+	 * @param die1 The value of the first die
+	 * @param die2 The value of the second die
+	 * @param from The index of the point each man left
+	 * @param to The index of the point each man landed on
+	 * @param moves The number of men moved
+	 * @throws IllegalArgumentException If it is not the player's turn or
+	 * the men moved do not make a legal play
+	 */
+	void turn(Player player, int die1, int die2, int[] from, int[] to, int moves) {
+		if (game == null) {
+			if (die1 == die2)
+				throw new IllegalArgumentException("The opening roll cannot be a double");
+			
+			// The game gives the first turn to black if the first die is higher
+			int high = Math.max(die1, die2);
+			int low = Math.min(die1, die2);
+			roll(player == Player.BLACK ? high: low, player == Player.BLACK ? low: high);
+			game = new Backgammon(() -> dice[nextDie++]);
+		}
+		else {
+			if (game.isOver())
+				throw new IllegalArgumentException("The game is already over");
+			game.nextPlayer();
+			if (game.curPlayer() != player)
+				throw new IllegalArgumentException("It is not " + player + "'s turn");
+			roll(die1, die2);
+			game.roll();
+		}
+		
+		// Move the men on a copy of the board
+		Board board = new Board(game.board());
+		Man man = player.menType();
+		for (int i = 0; i < moves; i++) {
+			int men = from[i] == Board.entryIndex(man) ? board.hitMen(man): board.menNumber(from[i], man);
+			if (men == 0)
+				throw new IllegalArgumentException(player + " has no man to move from " + from[i]);
+			board.makeMove(man, from[i], to[i]);
+		}
+		
+		List<Play> plays = game.legalPlays();
+		if (plays.isEmpty() && moves == 0)
+			return;
+		for (Play play: plays) {
+			if (play.result().equals(board)) {
+				for (Move move: play.moves())
+					record.move(move.fromIndex(), move.die());
+				game.play(play);
+				return;
+			}
+		}
+		throw new IllegalArgumentException("Not a legal play for " + player +
+				" with " + die1 + "-" + die2);
+	}
+	
+	
+	/**
+	 * Has the game roll the given dice, and records the roll.
+	 * @param die1 The value of the first die
+	 * @param die2 The value of the second die
+	 */
+	private void roll(int die1, int die2) {
+		dice[0] = die1;
+		dice[1] = die2;
+		nextDie = 0;
+		record.roll(die1, die2);
+	}
+	
+	
+	/**
+	 * Ends the game.
+	 * @param winner The winner
+	 * @param points The number of points won
+	 * @throws IllegalArgumentException If the last man was borne off by the
+	 * other player
+	 */
+	void end(Player winner, int points) {
+		if (game != null && game.isOver() && game.winner() != winner)
+			throw new IllegalArgumentException("The game was won by " + game.winner() + ", not " + winner);
+		record.end(winner, points);
+	}
+	
+	
+	/**
+	 * Returns the game as played so far.
+	 * @return The game, or null before the opening roll
+	 */
+	Backgammon game() {
+		return game;
+	}
+}
@@ -0,0 +1,83 @@
+package tech.octopusdragon.proj.backgammon.io;
+
+import tech.octopusdragon.proj.backgammon.Backgammon;
+import tech.octopusdragon.proj.backgammon.GameListener;
+import tech.octopusdragon.proj.backgammon.Player;
+
+/**
+ * Gathers the moves of a replayed game into whole turns, leaving out moves
+ * that were taken back, for writing the game to a file.
+ * @author Alex Gill
+ *
+ */
+abstract class TurnCollector implements GameListener {
+	
+	// --- Instance variables ---
+	private Player player;	// Player whose turn it is, or null before the first roll
+	private int die1;		// Value of the first die of the turn
+	private int die2;		// Value of the second die of the turn
+	private int[] moves = new int[Backgammon.NUM_DICE * 2];	// Records of the moves of the turn
+	private int size;		// Number of moves of the turn
+	
+	
+	/**
+	 * Replays a game and collects its turns.
+	 * @param game The record of the game
+	 * @return The game as it ended
+	 * @throws IllegalStateException If a move is not legal
+	 */
+	Backgammon collect(GameRecord game) {
+		Backgammon replay = game.replay(game.size(), this);
+		finish();
+		return replay;
+	}
+	
+	
+	/**
+	 * Called with each turn of the game.
+	 * @param player The player whose turn it was
+	 * @param die1 The value of the first die
+	 * @param die2 The value of the second die
+	 * @param moves The records of the moves, read with MoveRecord
+	 * @param size The number of moves
+	 */
+	abstract void turn(Player player, int die1, int die2, int[] moves, int size);
+	
+	
+	/**
+	 * Passes on the last turn if there is one.
+	 */
+	private void finish() {
+		if (player != null)
+			turn(player, die1, die2, moves, size);
+		player = null;
+	}
+	
+	
+	@Override
+	public void rolled(Backgammon game, int die1, int die2) {
+		finish();
+		player = game.curPlayer();
+		this.die1 = die1;
+		this.die2 = die2;
+		size = 0;
+	}
+	
+	
+	@Override
+	public void moved(Backgammon game, int record) {
+		moves[size++] = record;
+	}
+	
+	
+	@Override
+	public void undone(Backgammon game, int record) {
+		size--;
+	}
+	
+	
+	@Override
+	public void ended(Backgammon game) {
+		finish();
+	}
+}
@@ -0,0 +1,237 @@
+package tech.octopusdragon.proj.backgammon.server;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+
+import tech.octopusdragon.proj.backgammon.Player;
+
+/**
+ * One client of the server. The client sends commands one per line and gets
+ * one line back for each, starting with "OK" or with "ERR" and the reason.
+ * A connection is only ever used by the event loop it belongs to, and keeps
+ * a fixed pair of buffers, so idle clients cost no thread and very little
+ * memory.
+ * <p>
+ * The commands are NEW, JOIN followed by the number of a session, STATE,
+ * ROLL, MOVES followed by a point to list where a man on it can go, MOVE
+ * followed by the points a man moves from and to, UNDO, RESIGN and QUIT.
+ * @author Alex Gill
+ *
+ */
+class Connection {
+	
+	// --- Constants ---
+	private static final int MAX_LINE = 256;		// Longest command accepted
+	private static final int BUFFER_SIZE = 4096;	// Bytes of replies kept for a slow client
+	
+	
+	// --- Instance variables ---
+	private final SocketChannel channel;		// Channel to the client
+	private final SelectionKey key;				// Key of the channel in its event loop
+	private final SessionRegistry registry;		// Sessions of the server
+	private final ByteBuffer in;				// Bytes read but not yet handled
+	private final ByteBuffer out;				// Replies not yet written
+	private final StringBuilder line;			// Command read so far
+	private boolean overflow;					// Whether the command is too long
+	private boolean closing;					// Whether to close once replies are written
+	private Session session;					// Session joined, or null
+	private Player player;						// Player played in the session
+	
+	
+	/**
+	 * Instantiates a connection.
+	 * @param channel The channel to the client
+	 * @param key The key of the channel in its event loop
+	 * @param registry The sessions of the server
+	 */
+	Connection(SocketChannel channel, SelectionKey key, SessionRegistry registry) {
+		this.channel = channel;
+		this.key = key;
+		this.registry = registry;
+		in = ByteBuffer.allocate(MAX_LINE);
+		out = ByteBuffer.allocate(BUFFER_SIZE);
+		line = new StringBuilder(MAX_LINE);
+	}
+	
+	
+	/**
+	 * Reads what the client has sent and answers every complete command.
+	 * @throws IOException If the channel cannot be read or written
+	 */
+	void read() throws IOException {
+		if (channel.read(in) < 0) {
+			close();
+			return;
+		}
+		
+		in.flip();
+		while (in.hasRemaining() && !closing) {
+			char c = (char)(in.get() & 0xFF);
+			if (c == '\n') {
+				reply(overflow ? "ERR Line too long": execute(line.toString().trim()));
+				line.setLength(0);
+				overflow = false;
+			}
+			else if (c != '\r') {
+				if (line.length() < MAX_LINE)
+					line.append(c);
+				else
+					overflow = true;
+			}
+		}
+		in.clear();
+		write();
+	}
+	
+	
+	/**
+	 * Writes as many waiting replies as the channel takes, and asks to be
+	 * told when it can take more.
+	 * @throws IOException If the channel cannot be written
+	 */
+	void write() throws IOException {
+		out.flip();
+		channel.write(out);
+		boolean done = !out.hasRemaining();
+		out.compact();
+		
+		if (done && closing)
+			close();
+		else if (key.isValid())
+			key.interestOps(done ? SelectionKey.OP_READ: SelectionKey.OP_WRITE);
+	}
+	
+	
+	/**
+	 * Adds a line to the replies waiting to be written. A client that lets
+	 * too many replies pile up is disconnected.
+	 * @param reply The line
+	 */
+	private void reply(String reply) {
+		byte[] bytes = (reply + "\n").getBytes(StandardCharsets.ISO_8859_1);
+		if (bytes.length > out.remaining()) {
+			out.clear();
+			closing = true;
+			return;
+		}
+		out.put(bytes);
+	}
+	
+	
+	/**
+	 * Carries out a command.
+	 * @param command The line sent by the client
+	 * @return The reply
+	 */
+	private String execute(String command) {
+		String[] words = command.split("\\s+");
+		try {
+			switch (words[0].toUpperCase()) {
+			
+			case "NEW":
+				checkArguments(words, 0);
+				if (session != null)
+					throw new IllegalStateException("Already in session " + session.id());
+				session = registry.create();
+				player = session.join();
+				return "OK " + session.id() + " " + player;
+			
+			case "JOIN":
+				checkArguments(words, 1);
+				if (session != null)
+					throw new IllegalStateException("Already in session " + session.id());
+				Session joined;
+				try {
+					joined = registry.get(Long.parseLong(words[1]));
+				}
+				catch (NumberFormatException e) {
+					joined = null;
+				}
+				if (joined == null)
+					throw new IllegalStateException("No session " + words[1]);
+				player = joined.join();
+				session = joined;
+				return "OK " + session.id() + " " + player;
+			
+			case "STATE":
+				checkArguments(words, 0);
+				return session().state();
+			
+			case "ROLL":
+				checkArguments(words, 0);
+				return session().roll(player);
+			
+			case "MOVES":
+				checkArguments(words, 1);
+				return session().moves(player, words[1]);
+			
+			case "MOVE":
+				checkArguments(words, 2);
+				return session().move(player, words[1], words[2]);
+			
+			case "UNDO":
+				checkArguments(words, 0);
+				return session().undo(player);
+			
+			case "RESIGN":
+				checkArguments(words, 0);
+				return session().resign(player);
+			
+			case "QUIT":
+				closing = true;
+				return "OK";
+			
+			default:
+				throw new IllegalStateException("Unknown command: " + words[0]);
+			}
+		}
+		catch (IllegalStateException e) {
+			return "ERR " + e.getMessage();
+		}
+	}
+	
+	
+	/**
+	 * Checks that a command has the right number of arguments.
+	 * @param words The command and its arguments
+	 * @param count The number of arguments it takes
+	 * @throws IllegalStateException If it has another number
+	 */
+	private static void checkArguments(String[] words, int count) {
+		if (words.length != count + 1)
+			throw new IllegalStateException(words[0].toUpperCase() + " takes " + count + " arguments");
+	}
+	
+	
+	/**
+	 * Returns the session the client has joined.
+	 * @return The session
+	 * @throws IllegalStateException If the client has not joined one
+	 */
+	private Session session() {
+		if (session == null)
+			throw new IllegalStateException("Not in a session");
+		return session;
+	}
+	
+	
+	/**
+	 * Closes the connection, leaving its session and ending the session if
+	 * nobody is left in it.
+	 */
+	void close() {
+		key.cancel();
+		try {
+			channel.close();
+		}
+		catch (IOException e) {
+			// The connection is being dropped anyway
+		}
+		if (session != null && session.leave(player))
+			registry.remove(session);
+		session = null;
+	}
+}
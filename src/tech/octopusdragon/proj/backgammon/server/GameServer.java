@@ -0,0 +1,234 @@
+package tech.octopusdragon.proj.backgammon.server;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Hosts many games at once for clients on the local machine, without a user
+ * interface. Rather than a thread per client, a few event loops, one per
+ * core by default, each watch many connections with a selector and only do
+ * work when a client has sent a command. Commands take microseconds, so a
+ * handful of threads can serve thousands of mostly idle clients.
+ * @author Alex Gill
+ *
+ */
+public class GameServer {
+	
+	// --- Instance variables ---
+	private final SessionRegistry registry;		// Sessions being played
+	private final ServerSocketChannel server;	// Channel clients connect to
+	private final EventLoop[] loops;			// Loops serving the connections
+	private final Thread[] threads;				// Threads running the loops
+	private int nextLoop;						// Loop given the next connection
+	
+	
+	/**
+	 * Starts a server with an event loop for every core.
+	 * @param port The port to listen on, or 0 for any free port
+	 * @throws IOException If the port cannot be opened
+	 */
+	public GameServer(int port) throws IOException {
+		this(port, Runtime.getRuntime().availableProcessors());
+	}
+	
+	
+	/**
+	 * Starts a server.
+	 * @param port The port to listen on, or 0 for any free port
+	 * @param numLoops The number of event loops
+	 * @throws IOException If the port cannot be opened
+	 */
+	public GameServer(int port, int numLoops) throws IOException {
+		registry = new SessionRegistry();
+		server = ServerSocketChannel.open();
+		server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+		server.configureBlocking(false);
+		
+		loops = new EventLoop[numLoops];
+		threads = new Thread[numLoops];
+		for (int i = 0; i < numLoops; i++)
+			loops[i] = new EventLoop();
+		server.register(loops[0].selector, SelectionKey.OP_ACCEPT);
+		for (int i = 0; i < numLoops; i++) {
+			threads[i] = new Thread(loops[i], "GameServer-" + i);
+			threads[i].start();
+		}
+	}
+	
+	
+	/**
+	 * Returns the port the server listens on.
+	 * @return The port
+	 * @throws IOException If the channel is closed
+	 */
+	public int port() throws IOException {
+		return ((InetSocketAddress)server.getLocalAddress()).getPort();
+	}
+	
+	
+	/**
+	 * Returns the sessions being played.
+	 * @return The sessions
+	 */
+	public SessionRegistry sessions() {
+		return registry;
+	}
+	
+	
+	/**
+	 * Stops accepting clients, closes every connection and waits for the
+	 * event loops to finish.
+	 * @throws IOException If a channel cannot be closed
+	 * @throws InterruptedException If interrupted while waiting
+	 */
+	public void stop() throws IOException, InterruptedException {
+		server.close();
+		for (EventLoop loop: loops)
+			loop.running = false;
+		for (EventLoop loop: loops)
+			loop.selector.wakeup();
+		for (Thread thread: threads)
+			thread.join();
+	}
+	
+	
+	/**
+	 * Accepts waiting clients, handing them to the event loops in turn.
+	 * Only the first loop accepts clients.
+	 * @throws IOException If a client cannot be accepted
+	 */
+	private void accept() throws IOException {
+		SocketChannel channel;
+		while ((channel = server.accept()) != null) {
+			channel.configureBlocking(false);
+			EventLoop loop = loops[nextLoop];
+			nextLoop = (nextLoop + 1) % loops.length;
+			loop.pending.add(channel);
+			loop.selector.wakeup();
+		}
+	}
+	
+	
+	/**
+	 * Waits for clients to send commands, and answers them, until the server
+	 * is stopped.
+	 * @author Alex Gill
+	 *
+	 */
+	private class EventLoop implements Runnable {
+		
+		private final Selector selector;				// Selector of the loop's channels
+		private final Queue<SocketChannel> pending;		// Channels handed over by the first loop
+		private volatile boolean running;				// Whether the server is still running
+		
+		
+		/**
+		 * Instantiates the loop.
+		 * @throws IOException If the selector cannot be opened
+		 */
+		EventLoop() throws IOException {
+			selector = Selector.open();
+			pending = new ConcurrentLinkedQueue<SocketChannel>();
+			running = true;
+		}
+		
+		
+		@Override
+		public void run() {
+			try {
+				while (running) {
+					selector.select();
+					register();
+					
+					Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+					while (keys.hasNext()) {
+						SelectionKey key = keys.next();
+						keys.remove();
+						handle(key);
+					}
+				}
+			}
+			catch (IOException | ClosedSelectorException e) {
+				e.printStackTrace();
+			}
+			finally {
+				for (SelectionKey key: selector.keys())
+					if (key.attachment() instanceof Connection)
+						((Connection)key.attachment()).close();
+				try {
+					selector.close();
+				}
+				catch (IOException e) {
+					e.printStackTrace();
+				}
+			}
+		}
+		
+		
+		/**
+		 * Starts watching the channels handed over since the last check.
+		 * @throws IOException If a channel cannot be registered
+		 */
+		private void register() throws IOException {
+			SocketChannel channel;
+			while ((channel = pending.poll()) != null) {
+				SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+				key.attach(new Connection(channel, key, registry));
+			}
+		}
+		
+		
+		/**
+		 * Handles a channel that is ready. A client whose channel fails is
+		 * dropped without affecting the others.
+		 * @param key The key of the channel
+		 */
+		private void handle(SelectionKey key) {
+			if (!key.isValid())
+				return;
+			if (key.isAcceptable()) {
+				try {
+					accept();
+				}
+				catch (IOException e) {
+					e.printStackTrace();
+				}
+				return;
+			}
+			
+			Connection connection = (Connection)key.attachment();
+			try {
+				if (key.isReadable())
+					connection.read();
+				else if (key.isWritable())
+					connection.write();
+			}
+			catch (IOException e) {
+				connection.close();
+			}
+		}
+	}
+	
+	
+	/**
+	 * Runs a server until the process is stopped.
+	 * @param args The port to listen on, and optionally the number of event
+	 * loops
+	 * @throws IOException If the port cannot be opened
+	 */
+	public static void main(String[] args) throws IOException {
+		int port = args.length > 0 ? Integer.parseInt(args[0]): 4241;
+		int threads = args.length > 1 ? Integer.parseInt(args[1]): Runtime.getRuntime().availableProcessors();
+		GameServer server = new GameServer(port, threads);
+		System.out.println("Listening on port " + server.port());
+	}
+}
@@ -0,0 +1,295 @@
+package tech.octopusdragon.proj.backgammon.server;
+
+import tech.octopusdragon.proj.backgammon.Backgammon;
+import tech.octopusdragon.proj.backgammon.Board;
+import tech.octopusdragon.proj.backgammon.DiceSource;
+import tech.octopusdragon.proj.backgammon.EventStore;
+import tech.octopusdragon.proj.backgammon.Man;
+import tech.octopusdragon.proj.backgammon.MoveRecord;
+import tech.octopusdragon.proj.backgammon.Player;
+import tech.octopusdragon.proj.backgammon.ThreadLocalDiceSource;
+import tech.octopusdragon.proj.backgammon.io.MatchId;
+import tech.octopusdragon.proj.backgammon.io.PositionId;
+
+/**
+ * One game hosted by the server, with up to one connection playing each
+ * side. The two players may be served by different threads, so every
+ * command locks the session while it runs, which takes microseconds.
+ * Commands return the line to reply with, and throw an
+ * IllegalStateException with the reason when they cannot be carried out.
+ * @author Alex Gill
+ *
+ */
+public class Session {
+	
+	// --- Instance variables ---
+	private final long id;			// Number of the session
+	private final Backgammon game;	// The game
+	private final EventStore events;	// Everything that has happened in the game
+	private boolean[] seated;		// Whether each player has a connection, by ordinal
+	private Player resigned;		// Player who resigned, or null
+	
+	
+	/**
+	 * Instantiates a session with a new game.
+	 * @param id The number of the session
+	 */
+	Session(long id) {
+		this.id = id;
+		events = new EventStore();
+		game = new Backgammon(new ThreadLocalDiceSource(), events);
+		seated = new boolean[Player.values().length];
+	}
+	
+	
+	/**
+	 * Instantiates a session that carries on a game rebuilt from its events,
+	 * such as after a crash. A game that was resigned stays over.
+	 * @param id The number of the session
+	 * @param events The events of the game, to which its new events are added
+	 */
+	Session(long id, EventStore events) {
+		this.id = id;
+		this.events = events;
+		DiceSource dice = new ThreadLocalDiceSource();
+		game = new Backgammon(events.rebuild(dice), dice, events);
+		seated = new boolean[Player.values().length];
+		resigned = events.resignation();
+	}
+	
+	
+	/**
+	 * Returns the number of the session.
+	 * @return The number
+	 */
+	public long id() {
+		return id;
+	}
+	
+	
+	/**
+	 * Returns the events of the game, from which it can be audited, copied
+	 * to another server or rebuilt after a crash.
+	 * @return The events
+	 */
+	public EventStore events() {
+		return events;
+	}
+	
+	
+	/**
+	 * Seats a connection at the first free side, black first.
+	 * @return The player the connection plays
+	 * @throws IllegalStateException If both sides are taken
+	 */
+	synchronized Player join() {
+		for (Player player: Player.values()) {
+			if (!seated[player.ordinal()]) {
+				seated[player.ordinal()] = true;
+				return player;
+			}
+		}
+		throw new IllegalStateException("Session " + id + " is full");
+	}
+	
+	
+	/**
+	 * Frees a player's side.
+	 * @param player The player
+	 * @return Whether nobody is left in the session
+	 */
+	synchronized boolean leave(Player player) {
+		seated[player.ordinal()] = false;
+		for (boolean taken: seated)
+			if (taken)
+				return false;
+		return true;
+	}
+	
+	
+	/**
+	 * Returns the player who has to act next.
+	 * @return The player to move, or the opponent if the player has finished
+	 */
+	private Player toAct() {
+		return game.hasMoved() ? game.curOpponent(): game.curPlayer();
+	}
+	
+	
+	/**
+	 * Checks that the game is still going and that it is a player's turn.
+	 * @param player The player
+	 * @throws IllegalStateException If not
+	 */
+	private void checkTurn(Player player) {
+		if (isOver())
+			throw new IllegalStateException("The game is over");
+		if (toAct() != player)
+			throw new IllegalStateException("It is not your turn");
+	}
+	
+	
+	/**
+	 * Returns whether the game is over.
+	 * @return Whether a player has won or resigned
+	 */
+	private boolean isOver() {
+		return resigned != null || game.isOver();
+	}
+	
+	
+	/**
+	 * Rolls the dice for a player, ending the turn at once if no move can be
+	 * made.
+	 * @param player The player
+	 * @return The reply, such as "OK 6 5", or "OK 6 5 PASS" if the player
+	 * cannot move
+	 */
+	synchronized String roll(Player player) {
+		checkTurn(player);
+		if (game.hasMoved())
+			game.nextPlayer();
+		if (game.hasRolled())
+			throw new IllegalStateException("The dice have already been rolled");
+		game.roll();
+		return "OK " + game.rolledValue(0) + " " + game.rolledValue(1) + (game.hasMoved() ? " PASS": "");
+	}
+	
+	
+	/**
+	 * Moves one of a player's men.
+	 * @param player The player
+	 * @param from The point the man leaves, numbered from the player's side
+	 * @param to The point the man lands on, numbered from the player's side
+	 * @return The reply: "OK", "OK DONE" if the turn is over, or
+	 * "OK OVER" followed by the winner and points if the game is over
+	 * @throws IllegalStateException If the rules do not allow the move
+	 */
+	synchronized String move(Player player, String from, String to) {
+		checkTurn(player);
+		if (game.hasMoved() || !game.hasRolled())
+			throw new IllegalStateException("The dice have not been rolled");
+		
+		Man man = player.menType();
+		int fromIndex = index(from, man);
+		int toIndex = index(to, man);
+		int before = game.dice().size();
+		game.move(fromIndex, toIndex);
+		if (game.dice().size() == before)
+			throw new IllegalStateException("Illegal move");
+		
+		if (game.isOver())
+			return "OK OVER " + game.winner() + " " + game.gameValue();
+		return game.hasMoved() ? "OK DONE": "OK";
+	}
+	
+	
+	/**
+	 * Lists where one of a player's men can move with the dice left, read
+	 * from the game's index of legal moves.
+	 * @param player The player
+	 * @param from The point the man is on, numbered from the player's side
+	 * @return The reply: "OK" followed by the points the man can move to,
+	 * with 0 for bearing off and a "*" after points where it would hit
+	 */
+	synchronized String moves(Player player, String from) {
+		checkTurn(player);
+		Man man = player.menType();
+		int fromIndex = index(from, man);
+		int destinations = game.hasMoved() ? 0: game.destinations(fromIndex);
+		int hits = game.hasMoved() ? 0: game.hitDestinations(fromIndex);
+		
+		StringBuilder reply = new StringBuilder("OK");
+		for (int distance = Board.NUM_POINTS; distance >= 0; distance--) {
+			int index = Board.point(distance, man);
+			if ((destinations & 1 << index) != 0)
+				reply.append(' ').append(distance).append((hits & 1 << index) != 0 ? "*": "");
+		}
+		return reply.toString();
+	}
+	
+	
+	/**
+	 * Takes back a player's last move of the turn.
+	 * @param player The player
+	 * @return The reply
+	 */
+	synchronized String undo(Player player) {
+		if (isOver() || game.curPlayer() != player || game.undo() == MoveRecord.NONE)
+			throw new IllegalStateException("Nothing to undo");
+		return "OK";
+	}
+	
+	
+	/**
+	 * Resigns the game for a player, who loses a single game.
+	 * @param player The player
+	 * @return The reply
+	 */
+	synchronized String resign(Player player) {
+		if (isOver())
+			throw new IllegalStateException("The game is over");
+		resigned = player;
+		events.resigned(player, 1);
+		return "OK OVER " + opponent(player) + " 1";
+	}
+	
+	
+	/**
+	 * Describes the game.
+	 * @return The reply: "OK" followed by the GNU Backgammon ID of the
+	 * position, the player to act and the dice, or by "OVER", the winner and
+	 * the points if the game is over
+	 */
+	synchronized String state() {
+		MatchId match = new MatchId(game);
+		String id = PositionId.encode(game.board(), match.onRoll()) + ":" + match;
+		if (resigned != null)
+			return "OK " + id + " OVER " + opponent(resigned) + " 1";
+		if (game.isOver())
+			return "OK " + id + " OVER " + game.winner() + " " + game.gameValue();
+		if (match.die1() == 0)
+			return "OK " + id + " " + toAct();
+		return "OK " + id + " " + toAct() + " " + match.die1() + " " + match.die2();
+	}
+	
+	
+	/**
+	 * Returns the index of a point numbered from a player's own side.
+	 * @param point The number of the point, with 25 or "bar" for the bar and
+	 * 0 or "off" for bearing off
+	 * @param man The type of the player's men
+	 * @return The index of the point
+	 * @throws IllegalStateException If the point is not valid
+	 */
+	private static int index(String point, Man man) {
+		if (point.equalsIgnoreCase("bar"))
+			return Board.entryIndex(man);
+		if (point.equalsIgnoreCase("off"))
+			return Board.offIndex(man);
+		int number;
+		try {
+			number = Integer.parseInt(point);
+		}
+		catch (NumberFormatException e) {
+			throw new IllegalStateException("Not a point: " + point);
+		}
+		if (number < 0 || number > Board.NUM_POINTS + 1)
+			throw new IllegalStateException("Not a point: " + point);
+		if (number == 0)
+			return Board.offIndex(man);
+		if (number == Board.NUM_POINTS + 1)
+			return Board.entryIndex(man);
+		return Board.point(number, man);
+	}
+	
+	
+	/**
+	 * Returns a player's opponent.
+	 * @param player The player
+	 * @return The opponent
+	 */
+	private static Player opponent(Player player) {
+		return player == Player.BLACK ? Player.WHITE: Player.BLACK;
+	}
+}
@@ -0,0 +1,68 @@
+package tech.octopusdragon.proj.backgammon.server;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The sessions being played on a server, by number. Numbers are handed out
+ * with an atomic counter and sessions are kept in a concurrent map, so
+ * looking up a session never blocks and threads adding or removing sessions
+ * hardly ever wait for one another.
+ * @author Alex Gill
+ *
+ */
+public class SessionRegistry {
+	
+	// --- Instance variables ---
+	private final ConcurrentMap<Long, Session> sessions;	// Sessions by number
+	private final AtomicLong lastId;						// Number of the newest session
+	
+	
+	/**
+	 * Instantiates an empty registry.
+	 */
+	public SessionRegistry() {
+		sessions = new ConcurrentHashMap<Long, Session>();
+		lastId = new AtomicLong();
+	}
+	
+	
+	/**
+	 * Starts a new session.
+	 * @return The session
+	 */
+	public Session create() {
+		Session session = new Session(lastId.incrementAndGet());
+		sessions.put(session.id(), session);
+		return session;
+	}
+	
+	
+	/**
+	 * Returns a session.
+	 * @param id The number of the session
+	 * @return The session, or null if there is none with that number
+	 */
+	public Session get(long id) {
+		return sessions.get(id);
+	}
+	
+	
+	/**
+	 * Ends a session.
+	 * @param session The session
+	 */
+	public void remove(Session session) {
+		sessions.remove(session.id(), session);
+	}
+	
+	
+	/**
+	 * Returns the number of sessions.
+	 * @return The number of sessions
+	 */
+	public int size() {
+		return sessions.size();
+	}
+}
@@ -0,0 +1,97 @@
+package tech.octopusdragon.proj.backgammon.sim;
+
+import java.util.List;
+
+import tech.octopusdragon.proj.backgammon.Backgammon;
+import tech.octopusdragon.proj.backgammon.Board;
+import tech.octopusdragon.proj.backgammon.Man;
+import tech.octopusdragon.proj.backgammon.Play;
+
+/**
+ * Chooses the play whose resulting board scores best by a simple hand-made
+ * rule: gain in the pip race, hit the opponent, make points and avoid leaving
+ * blots. Ties are broken by preferring to bring the furthest men closer to
+ * home, which looks the same from either side of the board.
+ * @author Alex Gill
+ *
+ */
+public class HeuristicStrategy implements Strategy {
+	
+	// --- Constants ---
+	private static final int HIT_BONUS = 20;	// Score for each opponent man on the bar
+	private static final int POINT_BONUS = 4;	// Score for each point held
+	private static final int BLOT_PENALTY = 6;	// Score lost for each blot
+	private static final int TIE_SCALE = 10000;	// Scale keeping the tie breaker below one point of score
+	
+	
+	@Override
+	public Play choosePlay(Backgammon game, List<Play> plays) {
+		Man man = game.curPlayer().menType();
+		Man opponent = game.curOpponent().menType();
+		
+		Play best = null;
+		long bestScore = Long.MIN_VALUE;
+		for (Play play: plays) {
+			long score = (long)score(play.result(), man, opponent) * TIE_SCALE -
+					spread(play.result(), man);
+			if (score > bestScore) {
+				best = play;
+				bestScore = score;
+			}
+		}
+		return best;
+	}
+	
+	
+	/**
+	 * Scores a board for one type of men.
+	 * @param board The board
+	 * @param man The type of men to score for
+	 * @return The score, higher being better
+	 */
+	public static int score(Board board, Man man) {
+		return score(board, man, man == Man.BLACK ? Man.WHITE: Man.BLACK);
+	}
+	
+	
+	/**
+	 * Scores a board for one type of men.
+	 * @param board The board
+	 * @param man The type of men to score for
+	 * @param opponent The type of the opponent's men
+	 * @return The score, higher being better
+	 */
+	private static int score(Board board, Man man, Man opponent) {
+		int score = board.pipCount(opponent) - board.pipCount(man);
+		score += HIT_BONUS * board.hitMen(opponent);
+		
+		// Blots are only a worry while the opponent can still hit them
+		boolean contact = board.outsideHome(opponent) > 0 || board.hitMen(opponent) > 0;
+		for (int i = 1; i <= Board.NUM_POINTS; i++) {
+			int n = board.menNumber(i, man);
+			if (n >= 2)
+				score += POINT_BONUS;
+			else if (n == 1 && contact)
+				score -= BLOT_PENALTY;
+		}
+		return score;
+	}
+	
+	
+	/**
+	 * Returns the sum of the squared distances of one type of men from being
+	 * borne off, which is smaller when the men are closer together and nearer
+	 * home.
+	 * @param board The board
+	 * @param man The type of men
+	 * @return The spread, always less than TIE_SCALE
+	 */
+	private static int spread(Board board, Man man) {
+		int spread = board.hitMen(man) * (Board.NUM_POINTS + 1) * (Board.NUM_POINTS + 1);
+		for (int i = 1; i <= Board.NUM_POINTS; i++) {
+			int distance = Board.distance(i, man);
+			spread += board.menNumber(i, man) * distance * distance;
+		}
+		return spread;
+	}
+}
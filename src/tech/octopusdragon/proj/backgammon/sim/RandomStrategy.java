@@ -0,0 +1,27 @@
+package tech.octopusdragon.proj.backgammon.sim;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+
+import tech.octopusdragon.proj.backgammon.Backgammon;
+import tech.octopusdragon.proj.backgammon.Play;
+
+/**
+ * Chooses one of the legal plays at random.
+ * @author Alex Gill
+ *
+ */
+public class RandomStrategy implements Strategy {
+	
+	@Override
+	public Play choosePlay(Backgammon game, List<Play> plays) {
+		return plays.get(ThreadLocalRandom.current().nextInt(plays.size()));
+	}
+	
+	
+	@Override
+	public Play choosePlay(Backgammon game, List<Play> plays, SplittableRandom random) {
+		return plays.get(random.nextInt(plays.size()));
+	}
+}
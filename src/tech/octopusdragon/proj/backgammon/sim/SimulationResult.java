@@ -0,0 +1,156 @@
+package tech.octopusdragon.proj.backgammon.sim;
+
+import tech.octopusdragon.proj.backgammon.Player;
+
+/**
+ * Totals collected from a number of finished games.
+ * @author Alex Gill
+ *
+ */
+public class SimulationResult {
+	
+	// --- Instance variables ---
+	private int games;			// Number of games played
+	private long turns;			// Number of turns over all games
+	private int[] wins;			// Wins of each player
+	private int[] gammons;		// Gammons won by each player, backgammons included
+	private int[] backgammons;	// Backgammons won by each player
+	private long nanos;			// Wall-clock time taken
+	
+	
+	/**
+	 * Instantiates an empty result.
+	 */
+	public SimulationResult() {
+		wins = new int[Player.values().length];
+		gammons = new int[Player.values().length];
+		backgammons = new int[Player.values().length];
+	}
+	
+	
+	/**
+	 * Adds a finished game to the totals.
+	 * @param winner The winner of the game
+	 * @param value The value of the game: 1, 2 for a gammon or 3 for a
+	 * backgammon
+	 * @param turnCount The number of turns the game took
+	 */
+	public void add(Player winner, int value, int turnCount) {
+		games++;
+		turns += turnCount;
+		wins[winner.ordinal()]++;
+		if (value >= 2)
+			gammons[winner.ordinal()]++;
+		if (value >= 3)
+			backgammons[winner.ordinal()]++;
+	}
+	
+	
+	/**
+	 * Adds the totals of another result to this one.
+	 * @param other The other result
+	 */
+	public void add(SimulationResult other) {
+		games += other.games;
+		turns += other.turns;
+		for (int i = 0; i < wins.length; i++) {
+			wins[i] += other.wins[i];
+			gammons[i] += other.gammons[i];
+			backgammons[i] += other.backgammons[i];
+		}
+	}
+	
+	
+	/**
+	 * Records the wall-clock time the games took.
+	 * @param nanos The time in nanoseconds
+	 */
+	public void setNanos(long nanos) {
+		this.nanos = nanos;
+	}
+	
+	
+	/**
+	 * Returns the number of games played.
+	 * @return The number of games
+	 */
+	public int games() {
+		return games;
+	}
+	
+	
+	/**
+	 * Returns the number of games played per second of wall-clock time.
+	 * @return The games per second
+	 */
+	public double gamesPerSecond() {
+		return nanos == 0 ? 0.0: games / (nanos / 1e9);
+	}
+	
+	
+	/**
+	 * Returns the average number of turns per game.
+	 * @return The average number of turns
+	 */
+	public double averageTurns() {
+		return games == 0 ? 0.0: (double)turns / games;
+	}
+	
+	
+	/**
+	 * Returns the fraction of games the given player won.
+	 * @param player The player
+	 * @return The win rate
+	 */
+	public double winRate(Player player) {
+		return rate(wins[player.ordinal()]);
+	}
+	
+	
+	/**
+	 * Returns the fraction of games the given player won by a gammon or
+	 * backgammon.
+	 * @param player The player
+	 * @return The gammon rate
+	 */
+	public double gammonRate(Player player) {
+		return rate(gammons[player.ordinal()]);
+	}
+	
+	
+	/**
+	 * Returns the fraction of games the given player won by a backgammon.
+	 * @param player The player
+	 * @return The backgammon rate
+	 */
+	public double backgammonRate(Player player) {
+		return rate(backgammons[player.ordinal()]);
+	}
+	
+	
+	/**
+	 * Returns a count as a fraction of the games played.
+	 * @param count The count
+	 * @return The fraction
+	 */
+	private double rate(int count) {
+		return games == 0 ? 0.0: (double)count / games;
+	}
+	
+	
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append(String.format("Games:         %d in %.2f s (%.1f games/s)%n",
+				games, nanos / 1e9, gamesPerSecond()));
+		sb.append(String.format("Average turns: %.2f%n", averageTurns()));
+		for (Player player: Player.values()) {
+			sb.append(String.format("%-14s wins %.2f%%, gammons %.2f%%, backgammons %.2f%%%n",
+					player + ":",
+					winRate(player) * 100,
+					gammonRate(player) * 100,
+					backgammonRate(player) * 100));
+		}
+		return sb.toString();
+	}
+}
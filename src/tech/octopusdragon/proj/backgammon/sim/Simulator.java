@@ -0,0 +1,248 @@
+package tech.octopusdragon.proj.backgammon.sim;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import tech.octopusdragon.proj.backgammon.Backgammon;
+import tech.octopusdragon.proj.backgammon.DiceSource;
+import tech.octopusdragon.proj.backgammon.Play;
+import tech.octopusdragon.proj.backgammon.Player;
+import tech.octopusdragon.proj.backgammon.SeededDiceSource;
+import tech.octopusdragon.proj.backgammon.ThreadLocalDiceSource;
+import tech.octopusdragon.proj.backgammon.io.GameLog;
+
+/**
+ * Plays complete games without a user interface, spreading them over all
+ * cores with a fork/join pool.
+ * @author Alex Gill
+ *
+ */
+public class Simulator {
+	
+	// --- Constants ---
+	private static final int GAMES_PER_TASK = 16;	// Games a task plays without splitting
+	private static final int MAX_TURNS = 10000;		// Turns after which a game is abandoned
+	
+	
+	// --- Instance variables ---
+	private Strategy blackStrategy;	// Strategy of the black player
+	private Strategy whiteStrategy;	// Strategy of the white player
+	private ForkJoinPool pool;		// Pool the games are played on
+	private DiceSource dice;		// Dice shared by games that are not seeded
+	private boolean seeded;			// Whether each game rolls from its own seed
+	private long seed;				// Seed of the first game if seeded
+	private GameLog log;			// Log finished games are appended to, or null
+	
+	
+	/**
+	 * Instantiates a simulator that uses every core.
+	 * @param blackStrategy The strategy of the black player
+	 * @param whiteStrategy The strategy of the white player
+	 */
+	public Simulator(Strategy blackStrategy, Strategy whiteStrategy) {
+		this(blackStrategy, whiteStrategy, ForkJoinPool.commonPool());
+	}
+	
+	
+	/**
+	 * Instantiates a simulator that plays on the given pool.
+	 * @param blackStrategy The strategy of the black player
+	 * @param whiteStrategy The strategy of the white player
+	 * @param pool The pool to play the games on
+	 */
+	public Simulator(Strategy blackStrategy, Strategy whiteStrategy, ForkJoinPool pool) {
+		this.blackStrategy = blackStrategy;
+		this.whiteStrategy = whiteStrategy;
+		this.pool = pool;
+		dice = new ThreadLocalDiceSource();
+	}
+	
+	
+	/**
+	 * Makes the games reproducible: game number i rolls its dice and makes
+	 * the random choices of its strategies from the seed plus i, no matter
+	 * which thread plays it.
+	 * @param seed The seed of the first game
+	 */
+	public void setSeed(long seed) {
+		this.seed = seed;
+		seeded = true;
+	}
+	
+	
+	/**
+	 * Appends every game played from now on to a log.
+	 * @param log The log, or null to stop logging games
+	 */
+	public void setLog(GameLog log) {
+		this.log = log;
+	}
+	
+	
+	/**
+	 * Plays a number of games.
+	 * @param games The number of games
+	 * @return The totals of all games
+	 */
+	public SimulationResult run(int games) {
+		long start = System.nanoTime();
+		SimulationResult result = pool.invoke(new SelfPlayTask(0, games));
+		result.setNanos(System.nanoTime() - start);
+		return result;
+	}
+	
+	
+	/**
+	 * Plays one game to the end.
+	 * @param result The totals to add the finished game to
+	 */
+	public void playGame(SimulationResult result) {
+		playGame(result, dice, new SplittableRandom());
+	}
+	
+	
+	/**
+	 * Plays one game to the end.
+	 * @param result The totals to add the finished game to
+	 * @param diceSource The source of the game's dice values
+	 * @param random The generator of the strategies' random choices
+	 */
+	public void playGame(SimulationResult result, DiceSource diceSource, SplittableRandom random) {
+		Backgammon game = new Backgammon(diceSource, log == null ? null: log.recorder());
+		int turns = playOut(game, random);
+		result.add(game.winner(), game.gameValue(), turns);
+	}
+	
+	
+	/**
+	 * Plays a game that is already under way to the end.
+	 * @param game The game, in which the current player has either rolled or
+	 * is about to roll
+	 * @param random The generator of the strategies' random choices
+	 * @return The number of turns played
+	 */
+	public int playOut(Backgammon game, SplittableRandom random) {
+		int turns = 0;
+		
+		while (!game.isOver()) {
+			if (++turns > MAX_TURNS)
+				throw new IllegalStateException("Game did not finish in " + MAX_TURNS + " turns");
+			
+			game.roll();
+			
+			List<Play> plays = game.legalPlays();
+			if (!plays.isEmpty()) {
+				Strategy strategy = game.curPlayer() == Player.BLACK ? blackStrategy: whiteStrategy;
+				game.play(strategy.choosePlay(game, plays, random));
+			}
+			
+			if (!game.isOver())
+				game.nextPlayer();
+		}
+		
+		return turns;
+	}
+	
+	
+	/**
+	 * Plays a number of games, splitting them between tasks until each task
+	 * has only a few games left to play.
+	 * @author Alex Gill
+	 *
+	 */
+	private class SelfPlayTask extends RecursiveTask<SimulationResult> {
+		
+		private static final long serialVersionUID = 1L;
+		
+		private int first;	// Number of the first game to play
+		private int games;	// Number of games to play
+		
+		
+		/**
+		 * Instantiates the task.
+		 * @param first The number of the first game to play
+		 * @param games The number of games to play
+		 */
+		SelfPlayTask(int first, int games) {
+			this.first = first;
+			this.games = games;
+		}
+		
+		
+		@Override
+		protected SimulationResult compute() {
+			if (games > GAMES_PER_TASK) {
+				SelfPlayTask left = new SelfPlayTask(first, games / 2);
+				SelfPlayTask right = new SelfPlayTask(first + games / 2, games - games / 2);
+				left.fork();
+				SimulationResult result = right.compute();
+				result.add(left.join());
+				return result;
+			}
+			
+			SimulationResult result = new SimulationResult();
+			for (int i = first; i < first + games; i++) {
+				if (seeded) {
+					SeededDiceSource source = new SeededDiceSource(seed + i);
+					playGame(result, source, source.choices());
+				}
+				else
+					playGame(result, dice, new SplittableRandom());
+			}
+			return result;
+		}
+	}
+	
+	
+	/**
+	 * Plays games between two strategies and prints the totals.
+	 * @param args The number of games, the number of threads, the
+	 * strategies of black and white ("random" or "heuristic"), and
+	 * optionally a seed to make the games reproducible and a file to log the
+	 * games to
+	 * @throws IOException If the log file cannot be written
+	 */
+	public static void main(String[] args) throws IOException {
+		int games = args.length > 0 ? Integer.parseInt(args[0]): 10000;
+		int threads = args.length > 1 ? Integer.parseInt(args[1]): Runtime.getRuntime().availableProcessors();
+		Strategy black = strategy(args.length > 2 ? args[2]: "heuristic");
+		Strategy white = strategy(args.length > 3 ? args[3]: "random");
+		
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		GameLog log = args.length > 5 ? new GameLog(Paths.get(args[5])): null;
+		try {
+			Simulator simulator = new Simulator(black, white, pool);
+			if (args.length > 4)
+				simulator.setSeed(Long.parseLong(args[4]));
+			simulator.setLog(log);
+			SimulationResult result = simulator.run(games);
+			System.out.print(result);
+		}
+		finally {
+			pool.shutdown();
+			if (log != null)
+				log.close();
+		}
+	}
+	
+	
+	/**
+	 * Returns the strategy with the given name.
+	 * @param name The name of the strategy
+	 * @return The strategy
+	 */
+	private static Strategy strategy(String name) {
+		switch (name) {
+		case "random":
+			return new RandomStrategy();
+		case "heuristic":
+			return new HeuristicStrategy();
+		default:
+			throw new IllegalArgumentException("Unknown strategy: " + name);
+		}
+	}
+}
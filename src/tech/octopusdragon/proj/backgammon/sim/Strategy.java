@@ -0,0 +1,39 @@
+package tech.octopusdragon.proj.backgammon.sim;
+
+import java.util.List;
+import java.util.SplittableRandom;
+
+import tech.octopusdragon.proj.backgammon.Backgammon;
+import tech.octopusdragon.proj.backgammon.Play;
+
+/**
+ * Chooses which play to make on a turn. Strategies may be shared by games
+ * running on different threads, so implementations must be thread-safe.
+ * @author Alex Gill
+ *
+ */
+public interface Strategy {
+	
+	/**
+	 * Chooses a play for the current player.
+	 * @param game The game, which must not be changed
+	 * @param plays The legal plays, of which there is at least one
+	 * @return The chosen play
+	 */
+	Play choosePlay(Backgammon game, List<Play> plays);
+	
+	
+	/**
+	 * Chooses a play for the current player, drawing any random choices from
+	 * the given generator so that a game played from a seed is the same on
+	 * any thread. Strategies that choose without randomness need not
+	 * override this.
+	 * @param game The game, which must not be changed
+	 * @param plays The legal plays, of which there is at least one
+	 * @param random The generator of the game, used by one thread at a time
+	 * @return The chosen play
+	 */
+	default Play choosePlay(Backgammon game, List<Play> plays, SplittableRandom random) {
+		return choosePlay(game, plays);
+	}
+}
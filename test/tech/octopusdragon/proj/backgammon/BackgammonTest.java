@@ -0,0 +1,63 @@
+package tech.octopusdragon.proj.backgammon;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+
+import org.junit.Test;
+
+/**
+ * Tests the rules of the game.
+ * @author Alex Gill
+ *
+ */
+public class BackgammonTest {
+	
+	/**
+	 * Tests that a man cannot be moved onto a point held by the opponent,
+	 * even with a die matching the distance.
+	 */
+	@Test
+	public void makeRejectsBlockedPoint() {
+		Backgammon game = new Backgammon(new Board(), Player.BLACK, 5, 3);
+		Board before = new Board(game.board());
+		
+		assertFalse(game.isValidMove(1, 6));
+		assertEquals(MoveRecord.NONE, game.make(1, 6, 5));
+		assertEquals(before, game.board());
+		assertEquals(2, game.dice().size());
+	}
+	
+	
+	/**
+	 * Tests that a man cannot be moved from a point the player has no men
+	 * on.
+	 */
+	@Test
+	public void makeRejectsEmptyPoint() {
+		Backgammon game = new Backgammon(new Board(), Player.BLACK, 5, 3);
+		Board before = new Board(game.board());
+		
+		assertEquals(MoveRecord.NONE, game.make(3, 6, 3));
+		assertEquals(before, game.board());
+		
+		game.move(3, 6);
+		assertEquals(before, game.board());
+		assertEquals(2, game.dice().size());
+	}
+	
+	
+	/**
+	 * Tests that a legal move is still made, both before and after the legal
+	 * moves have been indexed.
+	 */
+	@Test
+	public void makeAcceptsLegalMove() {
+		Backgammon game = new Backgammon(new Board(), Player.BLACK, 5, 3);
+		assertNotEquals(MoveRecord.NONE, game.make(12, 17, 5));
+		
+		game.movablePoints();
+		assertNotEquals(MoveRecord.NONE, game.make(17, 20, 3));
+		assertEquals(0, game.dice().size());
+	}
+}
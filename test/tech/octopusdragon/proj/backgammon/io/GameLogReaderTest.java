@@ -0,0 +1,129 @@
+package tech.octopusdragon.proj.backgammon.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import tech.octopusdragon.proj.backgammon.sim.RandomStrategy;
+import tech.octopusdragon.proj.backgammon.sim.Simulator;
+
+/**
+ * Tests reading game logs.
+ * @author Alex Gill
+ *
+ */
+public class GameLogReaderTest {
+	
+	// --- Constants ---
+	private static final int GAMES = 50;		// Games in the log
+	private static final int WINDOW = 4096;		// Bytes mapped by each small window
+	private static final int APPENDED = 10;		// Games appended after a crash
+	private static final int TORN = 5;			// Bytes cut off the last game by a crash
+	
+	
+	// --- Instance variables ---
+	private Path file;	// The log
+	
+	
+	/**
+	 * Writes a log of seeded games.
+	 * @throws IOException If the log cannot be written
+	 */
+	@Before
+	public void writeLog() throws IOException {
+		file = Files.createTempFile("games", ".log");
+		Files.delete(file);
+		try (GameLog log = new GameLog(file)) {
+			Simulator simulator = new Simulator(new RandomStrategy(), new RandomStrategy());
+			simulator.setSeed(1);
+			simulator.setLog(log);
+			simulator.run(GAMES);
+		}
+	}
+	
+	
+	/**
+	 * Deletes the log.
+	 * @throws IOException If the log cannot be deleted
+	 */
+	@After
+	public void deleteLog() throws IOException {
+		Files.deleteIfExists(file);
+	}
+	
+	
+	/**
+	 * Tests that a log mapped in many small windows reads the same games as
+	 * one mapped at once.
+	 * @throws IOException If the log cannot be read
+	 */
+	@Test
+	public void windowsEndOnGames() throws IOException {
+		assertTrue(Files.size(file) > 4 * WINDOW);
+		GameLogReader whole = new GameLogReader(file);
+		GameLogReader windowed = new GameLogReader(file, WINDOW);
+		
+		assertEquals(GAMES, whole.games());
+		assertEquals(GAMES, windowed.games());
+		for (int game = 0; game < GAMES; game++) {
+			GameRecord expected = whole.record(game);
+			GameRecord actual = windowed.record(game);
+			assertEquals(expected.size(), actual.size());
+			for (int i = 0; i < expected.size(); i++)
+				assertEquals(expected.op(i), actual.op(i));
+			assertEquals(whole.winner(game), windowed.winner(game));
+		}
+	}
+	
+	
+	/**
+	 * Tests that games appended after a crash cut off the last game can all
+	 * be read, along with the whole games before it.
+	 * @throws IOException If the log cannot be read or written
+	 */
+	@Test
+	public void tornGameIsDroppedOnReopen() throws IOException {
+		GameLogReader before = new GameLogReader(file);
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+			channel.truncate(channel.size() - TORN);
+		}
+		
+		try (GameLog log = new GameLog(file)) {
+			Simulator simulator = new Simulator(new RandomStrategy(), new RandomStrategy());
+			simulator.setSeed(2);
+			simulator.setLog(log);
+			simulator.run(APPENDED);
+		}
+		
+		GameLogReader after = new GameLogReader(file);
+		assertEquals(GAMES - 1 + APPENDED, after.games());
+		for (int game = 0; game < GAMES - 1; game++) {
+			GameRecord expected = before.record(game);
+			GameRecord actual = after.record(game);
+			assertEquals(expected.size(), actual.size());
+			for (int i = 0; i < expected.size(); i++)
+				assertEquals(expected.op(i), actual.op(i));
+		}
+		for (int game = 0; game < after.games(); game++)
+			after.replay(game);
+	}
+	
+	
+	/**
+	 * Tests that a game larger than a window is reported.
+	 * @throws IOException If the log cannot be read
+	 */
+	@Test(expected = IOException.class)
+	public void gameLargerThanWindow() throws IOException {
+		new GameLogReader(file, 16);
+	}
+}
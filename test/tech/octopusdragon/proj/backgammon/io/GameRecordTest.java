@@ -0,0 +1,58 @@
+package tech.octopusdragon.proj.backgammon.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import tech.octopusdragon.proj.backgammon.Backgammon;
+import tech.octopusdragon.proj.backgammon.Board;
+import tech.octopusdragon.proj.backgammon.Man;
+
+/**
+ * Tests replaying game records.
+ * @author Alex Gill
+ *
+ */
+public class GameRecordTest {
+	
+	/**
+	 * Tests that a legal move is replayed.
+	 */
+	@Test
+	public void replaysLegalMove() {
+		GameRecord record = new GameRecord();
+		record.roll(5, 3);
+		Man men = record.replay(1).curPlayer().menType();
+		record.move(Board.point(13, men), 5);
+		
+		Backgammon game = record.replay();
+		assertEquals(1, game.dice().size());
+		assertEquals(4, game.board().menNumber(Board.point(8, men), men));
+	}
+	
+	
+	/**
+	 * Tests that a record with a move the rules do not allow is rejected,
+	 * naming the move.
+	 */
+	@Test
+	public void rejectsIllegalMove() {
+		GameRecord record = new GameRecord();
+		record.roll(5, 3);
+		Man men = record.replay(1).curPlayer().menType();
+		record.move(Board.point(13, men), 5);
+		record.move(Board.point(3, men), 3);
+		
+		try {
+			record.replay();
+			fail("An illegal move was replayed");
+		}
+		catch (IllegalStateException e) {
+			assertNotNull(e.getMessage());
+			assertTrue(e.getMessage(), e.getMessage().startsWith("Move 2 "));
+		}
+	}
+}
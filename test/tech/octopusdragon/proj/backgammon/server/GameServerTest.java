@@ -0,0 +1,99 @@
+package tech.octopusdragon.proj.backgammon.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the game server through its text protocol.
+ * @author Alex Gill
+ *
+ */
+public class GameServerTest {
+	
+	// --- Instance variables ---
+	private GameServer server;		// The server
+	private Socket[] sockets;		// Connection of each client
+	private BufferedReader[] in;	// Replies to each client
+	private OutputStream[] out;		// Commands from each client
+	
+	
+	/**
+	 * Starts a server and connects two clients to it.
+	 * @throws IOException If the server cannot be started
+	 */
+	@Before
+	public void start() throws IOException {
+		server = new GameServer(0, 1);
+		sockets = new Socket[2];
+		in = new BufferedReader[sockets.length];
+		out = new OutputStream[sockets.length];
+		for (int i = 0; i < sockets.length; i++) {
+			sockets[i] = new Socket(InetAddress.getLoopbackAddress(), server.port());
+			in[i] = new BufferedReader(new InputStreamReader(sockets[i].getInputStream(), StandardCharsets.ISO_8859_1));
+			out[i] = sockets[i].getOutputStream();
+		}
+	}
+	
+	
+	/**
+	 * Disconnects the clients and stops the server.
+	 * @throws IOException If the server cannot be stopped
+	 * @throws InterruptedException If interrupted while stopping the server
+	 */
+	@After
+	public void stop() throws IOException, InterruptedException {
+		for (Socket socket: sockets)
+			socket.close();
+		server.stop();
+	}
+	
+	
+	/**
+	 * Tests that moves the rules do not allow are refused and leave the
+	 * game as it was.
+	 * @throws IOException If the server cannot be reached
+	 */
+	@Test
+	public void illegalMovesAreRefused() throws IOException {
+		String[] created = send(0, "NEW").split(" ");
+		assertEquals("OK", created[0]);
+		assertTrue(send(1, "JOIN " + created[1]).startsWith("OK"));
+		
+		// The opening roll has been made, so one player is on roll
+		String state = send(0, "STATE");
+		int onRoll = state.split(" ")[2].equals(created[2]) ? 0: 1;
+		assertTrue(send(onRoll, "MOVES 13").startsWith("OK"));
+		
+		// The opponent holds their 6-point, which is the 19-point numbered
+		// from the player's side, and the player has no men on the 22-point
+		assertTrue(send(onRoll, "MOVE 24 19").startsWith("ERR"));
+		assertTrue(send(onRoll, "MOVE 22 18").startsWith("ERR"));
+		assertEquals(state, send(onRoll, "STATE"));
+	}
+	
+	
+	/**
+	 * Sends a command and waits for the reply.
+	 * @param client The number of the client
+	 * @param command The command
+	 * @return The reply
+	 * @throws IOException If the server cannot be reached
+	 */
+	private String send(int client, String command) throws IOException {
+		out[client].write((command + "\n").getBytes(StandardCharsets.ISO_8859_1));
+		out[client].flush();
+		return in[client].readLine();
+	}
+}
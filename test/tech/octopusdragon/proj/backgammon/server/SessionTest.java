@@ -0,0 +1,70 @@
+package tech.octopusdragon.proj.backgammon.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import tech.octopusdragon.proj.backgammon.GameEvent;
+import tech.octopusdragon.proj.backgammon.Player;
+
+/**
+ * Tests sessions and rebuilding them from their events.
+ * @author Alex Gill
+ *
+ */
+public class SessionTest {
+	
+	/**
+	 * Tests that a session rebuilt from the events of a game still being
+	 * played carries on where it left off.
+	 */
+	@Test
+	public void rebuildsGameInPlay() {
+		Session session = new Session(1);
+		session.join();
+		session.join();
+		
+		Session rebuilt = new Session(2, session.events());
+		String state = rebuilt.state();
+		assertEquals(session.state(), state);
+		
+		// Moves in the rebuilt session are added to the same events
+		Player player = Player.valueOf(state.split(" ")[2]);
+		String to = rebuilt.moves(player, "13").split(" ")[1];
+		int size = rebuilt.events().size();
+		assertTrue(rebuilt.move(player, "13", to).startsWith("OK"));
+		assertTrue(rebuilt.events().size() > size);
+		assertEquals(rebuilt.state(), new Session(3, rebuilt.events()).state());
+	}
+	
+	
+	/**
+	 * Tests that a resignation is recorded as an event, and that a session
+	 * rebuilt from the events knows the game is over.
+	 */
+	@Test
+	public void rebuildsResignation() {
+		Session session = new Session(1);
+		session.join();
+		session.join();
+		assertEquals("OK OVER " + Player.WHITE + " 1", session.resign(Player.BLACK));
+		
+		GameEvent last = session.events().event(session.events().size() - 1);
+		assertEquals(GameEvent.Type.RESIGNED, last.type());
+		assertEquals(Player.BLACK, last.player());
+		assertEquals(1, last.points());
+		
+		Session rebuilt = new Session(2, session.events());
+		assertEquals(session.state(), rebuilt.state());
+		assertTrue(rebuilt.state().endsWith(" OVER " + Player.WHITE + " 1"));
+		try {
+			rebuilt.resign(Player.WHITE);
+			fail("A rebuilt game that was resigned is still being played");
+		}
+		catch (IllegalStateException e) {
+			assertEquals("The game is over", e.getMessage());
+		}
+	}
+}
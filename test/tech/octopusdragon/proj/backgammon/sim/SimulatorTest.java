@@ -0,0 +1,58 @@
+package tech.octopusdragon.proj.backgammon.sim;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+import tech.octopusdragon.proj.backgammon.Player;
+
+/**
+ * Tests the simulator.
+ * @author Alex Gill
+ *
+ */
+public class SimulatorTest {
+	
+	// --- Constants ---
+	private static final int GAMES = 200;	// Games played by each run
+	private static final long SEED = 42;	// Seed of the first game
+	
+	
+	/**
+	 * Tests that games played from a seed between random strategies end the
+	 * same way whether they are played on one thread or several.
+	 */
+	@Test
+	public void seededGamesDoNotDependOnThreads() {
+		SimulationResult single = run(1);
+		SimulationResult several = run(4);
+		
+		assertEquals(GAMES, several.games());
+		assertEquals(single.averageTurns(), several.averageTurns(), 0.0);
+		for (Player player: Player.values()) {
+			assertEquals(single.winRate(player), several.winRate(player), 0.0);
+			assertEquals(single.gammonRate(player), several.gammonRate(player), 0.0);
+			assertEquals(single.backgammonRate(player), several.backgammonRate(player), 0.0);
+		}
+	}
+	
+	
+	/**
+	 * Plays the seeded games on a number of threads.
+	 * @param threads The number of threads
+	 * @return The totals of the games
+	 */
+	private static SimulationResult run(int threads) {
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		try {
+			Simulator simulator = new Simulator(new RandomStrategy(), new RandomStrategy(), pool);
+			simulator.setSeed(SEED);
+			return simulator.run(GAMES);
+		}
+		finally {
+			pool.shutdown();
+		}
+	}
+}